@@ -0,0 +1,105 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the discovery of patch files in generated testbed directories.
+ * <p>
+ * Every constraint directory contains nested subdirectories with further files, and the output directory
+ * mirrors the constraint directories like after a previous run, so the discovery has to skip deep trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestOptionsBenchmark {
+    private static final int CASES_PER_CONSTRAINT = 10;
+
+    @Param({"10", "100"})
+    public int constraintCount;
+
+    @Param({"0", "5"})
+    public int nestedDepth;
+
+    private TestOptions options;
+
+    /**
+     * Generates the testbed directory.
+     *
+     * @throws IOException if the files could not be written.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var basePath = Files.createTempDirectory("testbed-benchmark");
+        options = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+        Files.writeString(basePath.resolve("data.xtf"), "<TRANSFER/>");
+        Files.writeString(basePath.resolve("Model.ili"), "INTERLIS 2.4;");
+
+        for (var constraint = 0; constraint < constraintCount; constraint++) {
+            var constraintName = "ModelA.TopicA.ClassA.Constraint" + constraint;
+            writeCases(basePath.resolve(constraintName), "testcase-", ".xtf");
+            writeCases(options.outputPath().resolve(constraintName), "testcase-", "_merged.xtf");
+
+            var nestedDirectory = basePath.resolve(constraintName);
+            for (var depth = 0; depth < nestedDepth; depth++) {
+                nestedDirectory = nestedDirectory.resolve("nested-" + depth);
+                writeCases(nestedDirectory, "archived-", ".xtf");
+            }
+        }
+    }
+
+    private static void writeCases(Path directory, String prefix, String suffix) throws IOException {
+        Files.createDirectories(directory);
+        for (var i = 0; i < CASES_PER_CONSTRAINT; i++) {
+            Files.writeString(directory.resolve(prefix + i + suffix), "<TRANSFER/>");
+        }
+    }
+
+    /**
+     * Deletes the testbed directory.
+     *
+     * @throws IOException if the files could not be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(options.basePath())) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Finds the patch files of the testbed.
+     *
+     * @return the paths to the patch files.
+     * @throws IOException if the testbed directory could not be read.
+     */
+    @Benchmark
+    public List<Path> patchDataFiles() throws IOException {
+        return options.patchDataFiles();
+    }
+}
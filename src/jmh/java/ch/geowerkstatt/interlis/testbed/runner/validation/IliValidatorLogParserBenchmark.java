@@ -0,0 +1,94 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks searching constraint errors in generated ilivalidator log files of different sizes.
+ * <p>
+ * The expected error is written as the last line, so the whole log has to be scanned in both benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IliValidatorLogParserBenchmark {
+    private static final String CONSTRAINT_NAME = "ModelA.TopicA.ClassA.ConstraintA";
+
+    @Param({"10000", "1000000"})
+    public int lineCount;
+
+    private Path logFile;
+
+    /**
+     * Generates the log file.
+     *
+     * @throws IOException if the log file could not be written.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        logFile = Files.createTempFile("ilivalidator-benchmark", ".log");
+        try (var writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8)) {
+            writer.write("Info: validate data...\n");
+            for (var i = 0; i < lineCount; i++) {
+                if (i % 10 == 0) {
+                    writer.write("Error: line " + i + ": ModelA.TopicA.ClassA: tid " + i + ": Mandatory Constraint ModelA.TopicA.ClassA.ConstraintB is not true.\n");
+                } else {
+                    writer.write("Info: validate mandatory constraint ModelA.TopicA.ClassA.Constraint" + i + "...\n");
+                }
+            }
+            writer.write("Error: line " + lineCount + ": ModelA.TopicA.ClassA: tid 1: Mandatory Constraint " + CONSTRAINT_NAME + " is not true.\n");
+        }
+    }
+
+    /**
+     * Deletes the log file.
+     *
+     * @throws IOException if the log file could not be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(logFile);
+    }
+
+    /**
+     * Searches an error that is contained in the last line of the log.
+     *
+     * @return whether the error was found.
+     * @throws ValidatorException if the log could not be read.
+     */
+    @Benchmark
+    public boolean containsConstraintError() throws ValidatorException {
+        return IliValidatorLogParser.containsConstraintError(logFile, CONSTRAINT_NAME);
+    }
+
+    /**
+     * Searches an error that is not contained in the log.
+     *
+     * @return whether the error was found.
+     * @throws ValidatorException if the log could not be read.
+     */
+    @Benchmark
+    public boolean containsNoConstraintError() throws ValidatorException {
+        return IliValidatorLogParser.containsConstraintError(logFile, "ModelA.TopicA.ClassA.ConstraintC");
+    }
+}
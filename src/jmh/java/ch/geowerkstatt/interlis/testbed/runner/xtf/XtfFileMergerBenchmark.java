@@ -0,0 +1,120 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks merging a patch file into generated base files of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XtfFileMergerBenchmark {
+    @Param({"ILI23", "ILI24"})
+    public String format;
+
+    @Param({"1000", "10000", "100000"})
+    public int objectCount;
+
+    private Path directory;
+    private Path baseFile;
+    private Path patchFile;
+    private Path outputFile;
+    private XtfFileMerger merger;
+    private Document baseDocument;
+
+    /**
+     * Generates the XTF files and parses the base document.
+     *
+     * @throws IOException if the files could not be written.
+     * @throws ParserConfigurationException if no XML parser is available.
+     * @throws SAXException if the base file could not be parsed.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ParserConfigurationException, SAXException {
+        directory = Files.createTempDirectory("xtf-merger-benchmark");
+        baseFile = directory.resolve("data.xtf");
+        patchFile = directory.resolve("patch.xtf");
+        outputFile = directory.resolve("output.xtf");
+        var xtfFormat = XtfGenerator.Format.valueOf(format);
+        XtfGenerator.writeBaseFile(baseFile, xtfFormat, objectCount);
+        XtfGenerator.writePatchFile(patchFile, xtfFormat);
+
+        merger = new XtfFileMerger();
+
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        baseDocument = factory.newDocumentBuilder().parse(baseFile.toFile());
+    }
+
+    /**
+     * Deletes the generated files.
+     *
+     * @throws IOException if the files could not be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Merges with a merger that already parsed the base file, as for all but the first fail case of a run.
+     *
+     * @return whether the merge was successful.
+     */
+    @Benchmark
+    public boolean mergeWithParsedBaseFile() {
+        return merger.merge(baseFile, patchFile, outputFile);
+    }
+
+    /**
+     * Merges with a new merger that has to parse the base file first, as for the first fail case of a run.
+     *
+     * @return whether the merge was successful.
+     */
+    @Benchmark
+    public boolean mergeWithNewMerger() {
+        return new XtfFileMerger().merge(baseFile, patchFile, outputFile);
+    }
+
+    /**
+     * Finds and indexes all baskets and objects of the parsed base document.
+     *
+     * @return the baskets of the base document.
+     */
+    @Benchmark
+    public Optional<Map<String, Basket>> findBaskets() {
+        return XtfFileMerger.findBaskets(baseDocument);
+    }
+}
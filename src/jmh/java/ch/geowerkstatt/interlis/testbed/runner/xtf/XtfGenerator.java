@@ -0,0 +1,117 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates synthetic XTF files for the benchmarks.
+ * <p>
+ * The base file contains the requested number of objects, spread over {@link #BASKET_COUNT} baskets.
+ * The patch file replaces, adds and deletes a few objects in the first basket, similar to a typical fail case.
+ */
+final class XtfGenerator {
+    static final int BASKET_COUNT = 10;
+
+    private XtfGenerator() {
+    }
+
+    /**
+     * The supported XTF formats.
+     */
+    enum Format {
+        ILI23,
+        ILI24
+    }
+
+    /**
+     * Writes a base file with the given number of objects.
+     *
+     * @param file        the path to the file to write.
+     * @param format      the XTF format.
+     * @param objectCount the total number of objects.
+     * @throws IOException if the file could not be written.
+     */
+    static void writeBaseFile(Path file, Format format, int objectCount) throws IOException {
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeStart(writer, format, true);
+            var objectsPerBasket = Math.max(1, objectCount / BASKET_COUNT);
+            for (var basket = 0; basket < BASKET_COUNT; basket++) {
+                writeBasketStart(writer, format, basket);
+                for (var object = 0; object < objectsPerBasket; object++) {
+                    writeObject(writer, format, basket + "_" + object, "Some text " + object, "");
+                }
+                writeBasketEnd(writer, format);
+            }
+            writeEnd(writer, format);
+        }
+    }
+
+    /**
+     * Writes a patch file that modifies the first basket of a generated base file.
+     *
+     * @param file   the path to the file to write.
+     * @param format the XTF format.
+     * @throws IOException if the file could not be written.
+     */
+    static void writePatchFile(Path file, Format format) throws IOException {
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeStart(writer, format, false);
+            writeBasketStart(writer, format, 0);
+            writeObject(writer, format, "0_0", "Replaced text", "");
+            writeObject(writer, format, "new_1", "Added text", "");
+            writeObject(writer, format, "0_1", "Deleted", format == Format.ILI23 ? " DELETE=\"\"" : " delete=\"\"");
+            writeBasketEnd(writer, format);
+            writeEnd(writer, format);
+        }
+    }
+
+    private static void writeStart(Writer writer, Format format, boolean withHeader) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        if (format == Format.ILI23) {
+            writer.write("<TRANSFER xmlns=\"http://www.interlis.ch/INTERLIS2.3\">\n");
+            if (withHeader) {
+                writer.write("  <HEADERSECTION SENDER=\"benchmark\" VERSION=\"2.3\"><MODELS></MODELS></HEADERSECTION>\n");
+            }
+            writer.write("  <DATASECTION>\n");
+        } else {
+            writer.write("<ili:transfer xmlns:ili=\"http://www.interlis.ch/xtf/2.4/INTERLIS\" xmlns=\"http://www.interlis.ch/xtf/2.4/ModelA\">\n");
+            if (withHeader) {
+                writer.write("  <ili:headersection><ili:models></ili:models><ili:sender>benchmark</ili:sender></ili:headersection>\n");
+            }
+            writer.write("  <ili:datasection>\n");
+        }
+    }
+
+    private static void writeEnd(Writer writer, Format format) throws IOException {
+        writer.write(format == Format.ILI23 ? "  </DATASECTION>\n</TRANSFER>\n" : "  </ili:datasection>\n</ili:transfer>\n");
+    }
+
+    private static void writeBasketStart(Writer writer, Format format, int basket) throws IOException {
+        if (format == Format.ILI23) {
+            writer.write("    <ModelA.TopicA BID=\"B" + basket + "\">\n");
+        } else {
+            writer.write("    <TopicA ili:bid=\"B" + basket + "\">\n");
+        }
+    }
+
+    private static void writeBasketEnd(Writer writer, Format format) throws IOException {
+        writer.write(format == Format.ILI23 ? "    </ModelA.TopicA>\n" : "    </TopicA>\n");
+    }
+
+    private static void writeObject(Writer writer, Format format, String id, String text, String extraAttributes) throws IOException {
+        if (format == Format.ILI23) {
+            writer.write("      <ModelA.TopicA.ClassA TID=\"A" + id + "\"" + extraAttributes + ">\n");
+            writer.write("        <attr1>" + text + "</attr1>\n");
+            writer.write("        <line><POLYLINE><COORD><C1>1.0</C1><C2>2.0</C2></COORD><COORD><C1>1.5</C1><C2>2.5</C2></COORD></POLYLINE></line>\n");
+            writer.write("      </ModelA.TopicA.ClassA>\n");
+        } else {
+            writer.write("      <ClassA ili:tid=\"A" + id + "\"" + extraAttributes + ">\n");
+            writer.write("        <attr1>" + text + "</attr1>\n");
+            writer.write("        <attr2>" + id + "</attr2>\n");
+            writer.write("      </ClassA>\n");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs several testbeds in one process.
+ * <p>
+ * The testbeds run one after another, each with its own {@link TestOptions}. The validator resources, such as the
+ * loaded ilivalidator classes or the validator worker processes, and the threads that run the fail cases are shared by all testbeds.
+ */
+public final class BatchRunner {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String DATA_FILE_EXTENSION = ".xtf";
+
+    private final List<TestOptions> testbeds;
+    private final RunOptions runOptions;
+    private final Validator validator;
+    private final XtfMerger xtfMerger;
+
+    /**
+     * Creates a new instance of the BatchRunner class.
+     *
+     * @param testbeds   the test options of the testbeds to run.
+     * @param runOptions the options controlling the execution of the test cases.
+     * @param validator  the validator that is shared by all testbeds.
+     * @param xtfMerger  the XTF merger to use.
+     */
+    public BatchRunner(List<TestOptions> testbeds, RunOptions runOptions, Validator validator, XtfMerger xtfMerger) {
+        this.testbeds = testbeds;
+        this.runOptions = runOptions;
+        this.validator = validator;
+        this.xtfMerger = xtfMerger;
+    }
+
+    /**
+     * Runs all testbeds and logs a combined summary.
+     *
+     * @return the results of the testbeds, in the order of the testbeds. In fail-fast mode, the testbeds after the first failed testbed are not run and have no result.
+     */
+    public List<TestbedResult> run() {
+        var results = new ArrayList<TestbedResult>(testbeds.size());
+        var executor = runOptions.jobs() > 1 ? Executors.newFixedThreadPool(runOptions.jobs()) : null;
+        try {
+            for (var testbed : testbeds) {
+                var result = runTestbed(testbed, executor);
+                results.add(result);
+                if (!result.success() && runOptions.failFast()) {
+                    LOGGER.warn("Skipping the remaining {} testbeds after the failure of testbed {}.", testbeds.size() - results.size(), testbed.basePath());
+                    break;
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        logSummary(results, testbeds.size());
+        return results;
+    }
+
+    private TestbedResult runTestbed(TestOptions testbed, ExecutorService executor) {
+        var start = System.nanoTime();
+        boolean success;
+        try {
+            var testbedValidator = validator.forTestbed(testbed);
+            success = new Runner(testbed, runOptions, testbedValidator, xtfMerger, executor).run();
+        } catch (ValidatorException e) {
+            LOGGER.error("Validator could not be prepared for testbed {}, check the configuration.", testbed.basePath(), e);
+            success = false;
+        }
+        return new TestbedResult(testbed.basePath(), success, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static void logSummary(List<TestbedResult> results, int testbedCount) {
+        var passed = 0;
+        for (var result : results) {
+            if (result.success()) {
+                passed++;
+                LOGGER.info("Testbed {} passed in {} ms.", result.basePath(), result.duration().toMillis());
+            } else {
+                LOGGER.warn("Testbed {} failed after {} ms.", result.basePath(), result.duration().toMillis());
+            }
+        }
+        LOGGER.info("{} of {} testbeds passed.", passed, testbedCount);
+    }
+
+    /**
+     * Finds the testbeds in the subdirectories of a root directory.
+     * A subdirectory is considered a testbed if it directly contains a data file.
+     *
+     * @param rootPath the path to the root directory.
+     * @return the paths to the testbeds, sorted by name.
+     * @throws IOException if the root directory could not be read.
+     */
+    public static List<Path> findTestbeds(Path rootPath) throws IOException {
+        try (var directories = Files.list(rootPath)) {
+            var testbeds = new ArrayList<Path>();
+            for (var directory : directories.filter(Files::isDirectory).sorted().toList()) {
+                if (containsDataFile(directory)) {
+                    testbeds.add(directory);
+                }
+            }
+            return testbeds;
+        }
+    }
+
+    private static boolean containsDataFile(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.anyMatch(file -> Files.isRegularFile(file) && file.getFileName().toString().toLowerCase().endsWith(DATA_FILE_EXTENSION));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+/**
+ * Defines how the runner uses the cache of validation results.
+ */
+public enum CacheMode {
+    /**
+     * The cache is neither read nor written.
+     */
+    DISABLED,
+
+    /**
+     * Cached results are used for unchanged fail cases and new results are added to the cache.
+     */
+    ENABLED,
+
+    /**
+     * All fail cases are validated again and their results replace the cached results.
+     */
+    REFRESH
+}
@@ -0,0 +1,25 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidationResult;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Merges and validates single fail cases in place of the runner, for example on other machines.
+ * The runner still checks the cached results and verifies the returned result.
+ */
+public interface CaseExecutor {
+    /**
+     * Merges the patch file with the base data file and validates the merged file.
+     *
+     * @param baseFile   the path to the base data file.
+     * @param patchFile  the path to the patch file of the fail case.
+     * @param mergedFile the path the runner uses for the merged file.
+     * @param logFile    the path the runner uses for the log file.
+     * @return the validation result, or an empty optional if the patch file could not be merged.
+     * @throws ValidatorException if the fail case could not be run.
+     */
+    Optional<ValidationResult> execute(Path baseFile, Path patchFile, Path mergedFile, Path logFile) throws ValidatorException;
+}
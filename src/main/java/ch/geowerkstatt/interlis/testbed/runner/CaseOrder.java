@@ -0,0 +1,57 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.timing.TimingHistory;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Orders fail cases so that the slowest fail cases are started first, which shortens parallel runs
+ * where a few slow fail cases would otherwise start last.
+ */
+final class CaseOrder {
+    private CaseOrder() {
+    }
+
+    /**
+     * Orders the fail cases by their expected duration, longest first.
+     * <p>
+     * The expected duration is taken from the timing history. For fail cases without history, it is estimated from
+     * the file size and the average duration per byte of the fail cases with history. Without any history, the fail
+     * cases are ordered by file size.
+     *
+     * @param patchFiles the patch files of the fail cases.
+     * @param history    the timing history of the testbed.
+     * @param caseName   gets the name of a fail case in the history.
+     * @param fileSize   gets the size of the files of a fail case.
+     * @return the indexes of the patch files in the order they should be started.
+     */
+    static List<Integer> longestFirst(List<Path> patchFiles, TimingHistory history, Function<Path, String> caseName, ToLongFunction<Path> fileSize) {
+        var sizes = patchFiles.stream().mapToLong(fileSize).toArray();
+        var durations = patchFiles.stream().map(caseName).map(history::durationMillis).toList();
+
+        long knownMillis = 0;
+        long knownBytes = 0;
+        for (var i = 0; i < patchFiles.size(); i++) {
+            if (durations.get(i).isPresent()) {
+                knownMillis += durations.get(i).getAsLong();
+                knownBytes += sizes[i];
+            }
+        }
+
+        var millisPerByte = knownBytes > 0 ? (double) knownMillis / knownBytes : 1.0;
+        var expected = new double[patchFiles.size()];
+        for (var i = 0; i < patchFiles.size(); i++) {
+            expected[i] = durations.get(i).isPresent() ? durations.get(i).getAsLong() : sizes[i] * millisPerByte;
+        }
+
+        return IntStream.range(0, patchFiles.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> expected[i]).reversed().thenComparing(i -> i))
+                .toList();
+    }
+}
@@ -0,0 +1,175 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the fail cases of a testbed that are run.
+ *
+ * @param constraintPatterns glob patterns for the constraint names, e.g. {@code ModelA.TopicA.*}. Fail cases match if their
+ *                           constraint matches any of the patterns. An empty list selects all constraints.
+ * @param changedSince       a git revision; if present, only fail cases with changes since this revision are selected.
+ */
+public record CaseSelection(List<String> constraintPatterns, Optional<String> changedSince) {
+    private static final String DATA_FILE_EXTENSION = ".xtf";
+
+    /**
+     * Gets the selection of all fail cases.
+     *
+     * @return the selection.
+     */
+    public static CaseSelection all() {
+        return new CaseSelection(List.of(), Optional.empty());
+    }
+
+    /**
+     * Checks whether the selection contains all fail cases.
+     *
+     * @return {@code true} if no selector is set.
+     */
+    public boolean isAll() {
+        return constraintPatterns.isEmpty() && changedSince.isEmpty();
+    }
+
+    /**
+     * Selects the fail cases of the testbed.
+     * <p>
+     * The constraint name of a fail case is the name of the directory containing its patch file.
+     * With {@link #changedSince()}, the changed files are read from the git repository containing the testbed, including
+     * uncommitted and untracked files. A fail case is selected if its patch file or another file in its constraint
+     * directory changed. All fail cases are selected if the base data, a model file or the ilivalidator configuration changed.
+     *
+     * @param options    the test options.
+     * @param patchFiles the patch files of all fail cases.
+     * @return the selected patch files, in the order of the given patch files.
+     * @throws IOException if the changed files could not be read from git.
+     */
+    public List<Path> select(TestOptions options, List<Path> patchFiles) throws IOException {
+        var selected = patchFiles;
+        if (!constraintPatterns.isEmpty()) {
+            var patterns = constraintPatterns.stream().map(CaseSelection::globToPattern).toList();
+            selected = selected.stream()
+                    .filter(patchFile -> patterns.stream().anyMatch(pattern -> pattern.matcher(getConstraintName(patchFile)).matches()))
+                    .toList();
+        }
+
+        if (changedSince.isPresent()) {
+            var changes = TestbedWatcher.getChanges(options, getChangedPaths(options, changedSince.get()));
+            selected = selected.stream().filter(changes::affects).toList();
+        }
+        return selected;
+    }
+
+    private static String getConstraintName(Path patchFile) {
+        return patchFile.getParent().getFileName().toString();
+    }
+
+    /**
+     * Converts a glob pattern with {@code *} and {@code ?} wildcards to a regular expression.
+     *
+     * @param glob the glob pattern.
+     * @return the regular expression matching the whole input.
+     */
+    static Pattern globToPattern(String glob) {
+        var regex = new StringBuilder();
+        var literal = new StringBuilder();
+        for (var c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static Set<Path> getChangedPaths(TestOptions options, String revision) throws IOException {
+        var basePath = options.basePath();
+        var realBasePath = basePath.toRealPath();
+        var repositoryRoot = Path.of(runGit(basePath, "rev-parse", "--show-toplevel").getFirst()).toRealPath();
+
+        var changedFiles = new ArrayList<String>();
+        changedFiles.addAll(runGit(basePath, "diff", "-z", "--name-only", revision, "--"));
+        changedFiles.addAll(runGit(basePath, "ls-files", "-z", "--others", "--exclude-standard", "--full-name"));
+
+        var changedPaths = new HashSet<Path>();
+        for (var changedFile : changedFiles) {
+            var path = repositoryRoot.resolve(changedFile).normalize();
+            if (!path.startsWith(realBasePath)) {
+                if (options.ilivalidatorConfigPath().isPresent() && path.equals(options.ilivalidatorConfigPath().get().toRealPath())) {
+                    changedPaths.add(options.ilivalidatorConfigPath().get());
+                }
+                continue;
+            }
+
+            var testbedPath = basePath.resolve(realBasePath.relativize(path).toString());
+            changedPaths.add(testbedPath);
+
+            // Other files in a constraint directory, e.g. notes about the fail cases, affect all fail cases of the directory.
+            var parent = testbedPath.getParent();
+            if (parent != null && basePath.equals(parent.getParent()) && !testbedPath.getFileName().toString().toLowerCase().endsWith(DATA_FILE_EXTENSION)) {
+                changedPaths.add(parent);
+            }
+        }
+        return changedPaths;
+    }
+
+    private static List<String> runGit(Path directory, String... arguments) throws IOException {
+        var command = new ArrayList<String>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+
+        var process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectError(ProcessBuilder.Redirect.PIPE)
+                .start();
+        // The error output is read while the output is read, so git cannot block on a full error pipe.
+        var error = new FutureTask<>(() -> {
+            try (var stderr = process.getErrorStream()) {
+                return new String(stderr.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+        });
+        Thread.ofVirtual().name("git-stderr").start(error);
+
+        var output = new ByteArrayOutputStream();
+        try (var stdout = process.getInputStream()) {
+            stdout.transferTo(output);
+            if (process.waitFor() != 0) {
+                throw new IOException("git " + String.join(" ", arguments) + " failed: " + error.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("git " + String.join(" ", arguments) + " failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("git " + String.join(" ", arguments) + " was interrupted.", e);
+        }
+
+        var text = output.toString(StandardCharsets.UTF_8);
+        var separator = text.indexOf('\0') >= 0 || text.isEmpty() ? "\0" : "\n";
+        var lines = new ArrayList<String>();
+        for (var line : text.split(separator)) {
+            if (!line.isBlank()) {
+                lines.add(separator.equals("\n") ? line.trim() : line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,61 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Reads the constraints a fail case is expected to violate.
+ * <p>
+ * A fail case always expects an error of the constraint named by its directory. Further constraints can be listed in a
+ * file next to the patch file with the same name and the extension {@value #FILE_EXTENSION}, one fully qualified
+ * constraint name per line. Empty lines and lines starting with {@code #} are ignored.
+ */
+final class ExpectedConstraints {
+    /**
+     * The file extension of the files listing further expected constraints.
+     */
+    static final String FILE_EXTENSION = ".constraints";
+
+    private static final String COMMENT_PREFIX = "#";
+
+    private ExpectedConstraints() {
+    }
+
+    /**
+     * Gets the file listing further expected constraints of a fail case.
+     *
+     * @param patchFile the patch file of the fail case.
+     * @return the path of the file, which may not exist.
+     */
+    static Path getFile(Path patchFile) {
+        var patchFileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(patchFile.getFileName().toString());
+        return patchFile.resolveSibling(patchFileNameWithoutExtension + FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the constraints a fail case is expected to violate.
+     *
+     * @param patchFile      the patch file of the fail case.
+     * @param constraintName the constraint named by the directory of the fail case.
+     * @return the expected constraints, starting with {@code constraintName}.
+     * @throws IOException if the file listing further constraints exists but could not be read.
+     */
+    static List<String> read(Path patchFile, String constraintName) throws IOException {
+        var constraintNames = new LinkedHashSet<String>();
+        constraintNames.add(constraintName);
+
+        var file = getFile(patchFile);
+        if (Files.isRegularFile(file)) {
+            for (var line : Files.readAllLines(file)) {
+                var name = line.strip();
+                if (!name.isEmpty() && !name.startsWith(COMMENT_PREFIX)) {
+                    constraintNames.add(name);
+                }
+            }
+        }
+        return List.copyOf(constraintNames);
+    }
+}
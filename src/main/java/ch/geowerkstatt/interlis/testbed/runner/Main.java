@@ -1,20 +1,71 @@
 package ch.geowerkstatt.interlis.testbed.runner;
 
+import ch.geowerkstatt.interlis.testbed.runner.remote.CaseCoordinator;
+import ch.geowerkstatt.interlis.testbed.runner.remote.CaseWorker;
+import ch.geowerkstatt.interlis.testbed.runner.timing.FlightRecording;
+import ch.geowerkstatt.interlis.testbed.runner.validation.InProcessValidator;
 import ch.geowerkstatt.interlis.testbed.runner.validation.InterlisValidator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorOptions;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.StreamingXtfMerger;
 import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfFileMerger;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public final class Main {
+    private static final Logger LOGGER = LogManager.getLogger();
     private static final String VALIDATOR_PATH_OPTION = "validator";
     private static final String VALIDATOR_CONFIG_OPTION = "config";
+    private static final String JOBS_OPTION = "jobs";
+    private static final String IN_PROCESS_OPTION = "in-process";
+    private static final String VALIDATOR_WORKERS_OPTION = "validator-workers";
+    private static final String WORKER_MAX_JOBS_OPTION = "worker-max-jobs";
+    private static final String COMPILE_MODELS_OPTION = "compile-models";
+    private static final String VALIDATOR_JVM_OPTION = "validator-jvm-option";
+    private static final String CLASS_DATA_SHARING_OPTION = "class-data-sharing";
+    private static final String STREAMING_MERGE_OPTION = "streaming-merge";
+    private static final String PRUNE_BASKETS_OPTION = "prune-baskets";
+    private static final String NO_CACHE_OPTION = "no-cache";
+    private static final String REFRESH_CACHE_OPTION = "refresh-cache";
+    private static final String WATCH_OPTION = "watch";
+    private static final String KEEP_MERGED_FILES_OPTION = "keep-merged-files";
+    private static final String KEEP_LOG_FILES_OPTION = "keep-log-files";
+    private static final String TESTBED_ROOT_OPTION = "testbed-root";
+    private static final String NO_TIMING_REPORT_OPTION = "no-timing-report";
+    private static final String FLIGHT_RECORDING_OPTION = "flight-recording";
+    private static final String FAIL_FAST_OPTION = "fail-fast";
+    private static final String SHARD_OPTION = "shard";
+    private static final String SKIP_BASE_VALIDATION_OPTION = "skip-base-validation";
+    private static final String COMPRESS_OUTPUT_OPTION = "compress-output";
+    private static final String CONSTRAINT_OPTION = "constraint";
+    private static final String CHANGED_SINCE_OPTION = "changed-since";
+    private static final String MERGE_SHARDS_OPTION = "merge-shards";
+    private static final String COORDINATOR_OPTION = "coordinator";
+    private static final String WORKER_OPTION = "worker";
+    private static final String COORDINATOR_BIND_OPTION = "coordinator-bind";
+    private static final String REMOTE_TOKEN_OPTION = "remote-token";
+    private static final String REMOTE_TOKEN_VARIABLE = "INTERLIS_TESTBED_REMOTE_TOKEN";
+    private static final int MAX_PORT = 65535;
 
     private Main() {
     }
@@ -30,21 +81,154 @@ public final class Main {
             return;
         }
 
-        var testOptions = parseTestOptions(args);
-        var validator = new InterlisValidator(testOptions);
-        var xtfMerger = new XtfFileMerger();
-        var runner = new Runner(testOptions, validator, xtfMerger);
-        if (!runner.run()) {
+        var arguments = parseArguments(args);
+        if (arguments.shardMerge().isPresent()) {
+            if (!mergeShardResults(arguments.shardMerge().get())) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        boolean success;
+        try (var recording = startFlightRecording(arguments); var validator = createValidator(arguments)) {
+            var xtfMerger = createMerger(arguments);
+            if (arguments.worker().isPresent()) {
+                var coordinator = arguments.worker().get();
+                success = new CaseWorker(arguments.testbeds().getFirst(), validator, xtfMerger, arguments.runOptions().jobs(), arguments.remoteToken())
+                        .run(coordinator.getHostString(), coordinator.getPort());
+            } else if (arguments.coordinator().isPresent()) {
+                try (var coordinator = CaseCoordinator.start(arguments.testbeds().getFirst(), arguments.coordinator().get(), arguments.remoteToken())) {
+                    success = new Runner(arguments.testbeds().getFirst(), arguments.runOptions(), validator, xtfMerger, null, coordinator).run();
+                }
+            } else if (arguments.testbeds().size() > 1) {
+                var results = new BatchRunner(arguments.testbeds(), arguments.runOptions(), validator, xtfMerger).run();
+                success = results.stream().allMatch(TestbedResult::success);
+            } else {
+                var runner = new Runner(arguments.testbeds().getFirst(), arguments.runOptions(), validator, xtfMerger);
+                if (arguments.watch()) {
+                    new TestbedWatcher(arguments.testbeds().getFirst(), runner).watch();
+                    success = true;
+                } else {
+                    success = runner.run();
+                }
+            }
+        } catch (ValidatorException e) {
+            LOGGER.error("Validator could not be created, check the configuration.", e);
+            success = false;
+        } catch (IOException e) {
+            LOGGER.error("Testbed directory could not be watched, flight recording could not be started or the coordinator port could not be opened.", e);
+            success = false;
+        }
+
+        if (!success) {
             System.exit(1);
         }
     }
 
-    private static TestOptions parseTestOptions(String[] args) {
+    private static boolean mergeShardResults(ShardMerge shardMerge) {
+        try {
+            var files = ShardResult.findFiles(shardMerge.inputs());
+            if (files.isEmpty()) {
+                LOGGER.error("No shard results found in {}.", shardMerge.inputs());
+                return false;
+            }
+
+            var results = new ArrayList<ShardResult>(files.size());
+            for (var file : files) {
+                LOGGER.info("Reading shard result {}", file);
+                results.add(ShardResult.read(file));
+            }
+
+            var merged = ShardResult.merge(results);
+            merged.write(shardMerge.reportFile());
+
+            var verified = merged.cases().values().stream().filter(status -> status == ShardResult.CaseStatus.VERIFIED).count();
+            LOGGER.info("Base data: {}, {} of {} fail cases verified in {} shard results.", merged.baseData(), verified, merged.cases().size(), results.size());
+            merged.cases().forEach((patchFile, status) -> {
+                if (status != ShardResult.CaseStatus.VERIFIED) {
+                    LOGGER.warn("Fail case {}: {}", patchFile, status);
+                }
+            });
+            LOGGER.info("Combined shard result written to {}.", shardMerge.reportFile());
+            return merged.success();
+        } catch (IOException e) {
+            LOGGER.error("Shard results could not be merged.", e);
+            return false;
+        }
+    }
+
+    private static FlightRecording startFlightRecording(Arguments arguments) throws IOException {
+        if (arguments.flightRecording().isEmpty()) {
+            return null;
+        }
+        return FlightRecording.start(arguments.flightRecording().get());
+    }
+
+    private static Validator createValidator(Arguments arguments) throws ValidatorException {
+        if (arguments.inProcess()) {
+            return new InProcessValidator(arguments.testbeds().getFirst(), arguments.validatorOptions());
+        }
+        return new InterlisValidator(arguments.testbeds().getFirst(), arguments.validatorOptions());
+    }
+
+    private static XtfMerger createMerger(Arguments arguments) {
+        if (arguments.streamingMerge()) {
+            return new StreamingXtfMerger();
+        }
+        return new XtfFileMerger(arguments.pruneBaskets());
+    }
+
+    private static Arguments parseArguments(String[] args) {
         var options = createCliOptions();
         try {
             var parser = new DefaultParser();
             var commandLine = parser.parse(options, args);
-            return getTestOptions(commandLine);
+            if (commandLine.hasOption(MERGE_SHARDS_OPTION)) {
+                return getShardMergeArguments(commandLine);
+            }
+            if (!commandLine.hasOption(VALIDATOR_PATH_OPTION)) {
+                throw new ParseException("Missing required option: " + VALIDATOR_PATH_OPTION);
+            }
+
+            var testbeds = getTestbeds(commandLine);
+            if (testbeds.size() > 1 && commandLine.hasOption(WATCH_OPTION)) {
+                throw new ParseException("--" + WATCH_OPTION + " can only be used with a single testbed.");
+            }
+            if (commandLine.hasOption(PRUNE_BASKETS_OPTION) && commandLine.hasOption(STREAMING_MERGE_OPTION)) {
+                throw new ParseException("--" + PRUNE_BASKETS_OPTION + " cannot be used with --" + STREAMING_MERGE_OPTION + ".");
+            }
+            if (commandLine.hasOption(COORDINATOR_OPTION) && commandLine.hasOption(WORKER_OPTION)) {
+                throw new ParseException("--" + COORDINATOR_OPTION + " cannot be used with --" + WORKER_OPTION + ".");
+            }
+            if ((commandLine.hasOption(COORDINATOR_OPTION) || commandLine.hasOption(WORKER_OPTION)) && (testbeds.size() > 1 || commandLine.hasOption(WATCH_OPTION))) {
+                throw new ParseException("--" + COORDINATOR_OPTION + " and --" + WORKER_OPTION + " can only be used with a single testbed and without --" + WATCH_OPTION + ".");
+            }
+            if (commandLine.hasOption(CLASS_DATA_SHARING_OPTION) && (commandLine.hasOption(IN_PROCESS_OPTION) || commandLine.hasOption(VALIDATOR_WORKERS_OPTION))) {
+                throw new ParseException("--" + CLASS_DATA_SHARING_OPTION + " cannot be used with --" + IN_PROCESS_OPTION + " or --" + VALIDATOR_WORKERS_OPTION + ".");
+            }
+            var runOptions = getRunOptions(commandLine);
+            if (commandLine.hasOption(COORDINATOR_OPTION) && runOptions.mergedFileRetention() != OutputRetention.NEVER) {
+                throw new ParseException("--" + KEEP_MERGED_FILES_OPTION + " can only be never with --" + COORDINATOR_OPTION + ", the merged files are only written on the workers.");
+            }
+            var coordinator = getCoordinatorOption(commandLine);
+            var remoteToken = getRemoteToken(commandLine);
+            if (coordinator.isPresent() && !coordinator.get().getAddress().isLoopbackAddress() && remoteToken.isEmpty()) {
+                throw new ParseException("--" + COORDINATOR_OPTION + " requires a token with --" + REMOTE_TOKEN_OPTION + " or " + REMOTE_TOKEN_VARIABLE
+                        + " if it accepts workers from other hosts.");
+            }
+            return new Arguments(
+                    testbeds,
+                    runOptions,
+                    getValidatorOptions(commandLine),
+                    commandLine.hasOption(IN_PROCESS_OPTION),
+                    commandLine.hasOption(STREAMING_MERGE_OPTION),
+                    commandLine.hasOption(PRUNE_BASKETS_OPTION),
+                    commandLine.hasOption(WATCH_OPTION),
+                    Optional.ofNullable(commandLine.getOptionValue(FLIGHT_RECORDING_OPTION)).map(Path::of),
+                    coordinator,
+                    getWorkerOption(commandLine),
+                    remoteToken,
+                    Optional.empty());
         } catch (ParseException e) {
             System.err.println("Error parsing command line arguments: " + e.getMessage());
             printUsage(options);
@@ -53,17 +237,174 @@ public final class Main {
         }
     }
 
+    private static Arguments getShardMergeArguments(CommandLine commandLine) {
+        var inputs = commandLine.getArgList().stream().map(Path::of).toList();
+        var shardMerge = new ShardMerge(Path.of(commandLine.getOptionValue(MERGE_SHARDS_OPTION)), inputs.isEmpty() ? List.of(Path.of(".")) : inputs);
+        return new Arguments(List.of(), RunOptions.defaults(), ValidatorOptions.defaults(), false, false, false, false, Optional.empty(), Optional.empty(), Optional.empty(), "", Optional.of(shardMerge));
+    }
+
     private static void printUsage(Options options) {
         HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp("java -jar interlis-testbed-runner.jar [options] [testbed directory (default: current directory)]", options);
+        formatter.printHelp("java -jar interlis-testbed-runner.jar [options] [testbed directories (default: current directory)]", options);
     }
 
-    private static TestOptions getTestOptions(CommandLine commandLine) {
-        var remainingArgs = commandLine.getArgList();
-        var basePath = remainingArgs.isEmpty() ? Path.of(".") : Path.of(remainingArgs.getFirst());
+    private static List<TestOptions> getTestbeds(CommandLine commandLine) throws ParseException {
+        var basePaths = new ArrayList<Path>();
+        for (var arg : commandLine.getArgList()) {
+            basePaths.add(Path.of(arg));
+        }
+        if (commandLine.hasOption(TESTBED_ROOT_OPTION)) {
+            var rootPath = Path.of(commandLine.getOptionValue(TESTBED_ROOT_OPTION));
+            try {
+                var testbeds = BatchRunner.findTestbeds(rootPath);
+                if (testbeds.isEmpty()) {
+                    throw new ParseException("No testbeds found in " + rootPath + ".");
+                }
+                basePaths.addAll(testbeds);
+            } catch (IOException e) {
+                throw new ParseException("The testbed root " + rootPath + " could not be read: " + e.getMessage());
+            }
+        }
+        if (basePaths.isEmpty()) {
+            basePaths.add(Path.of("."));
+        }
+
         var validatorPath = Path.of(commandLine.getOptionValue(VALIDATOR_PATH_OPTION));
         Optional<Path> validatorConfigPath = commandLine.hasOption(VALIDATOR_CONFIG_OPTION) ? Optional.of(Path.of(commandLine.getOptionValue(VALIDATOR_CONFIG_OPTION))) : Optional.empty();
-        return new TestOptions(basePath, validatorPath, validatorConfigPath);
+        return basePaths.stream()
+                .map(basePath -> new TestOptions(basePath, validatorPath, validatorConfigPath))
+                .toList();
+    }
+
+    private static RunOptions getRunOptions(CommandLine commandLine) throws ParseException {
+        var jobs = getPositiveIntOption(commandLine, JOBS_OPTION, RunOptions.defaultJobs());
+        var cacheMode = CacheMode.ENABLED;
+        if (commandLine.hasOption(NO_CACHE_OPTION)) {
+            cacheMode = CacheMode.DISABLED;
+        } else if (commandLine.hasOption(REFRESH_CACHE_OPTION)) {
+            cacheMode = CacheMode.REFRESH;
+        }
+        // The coordinator never has the merged files, they are written and deleted by the workers.
+        var mergedFileRetention = getOutputRetentionOption(commandLine, KEEP_MERGED_FILES_OPTION, commandLine.hasOption(COORDINATOR_OPTION) ? OutputRetention.NEVER : OutputRetention.ALWAYS);
+        var logFileRetention = getOutputRetentionOption(commandLine, KEEP_LOG_FILES_OPTION, OutputRetention.ALWAYS);
+        var shard = getShardOption(commandLine);
+        return new RunOptions(jobs, cacheMode, mergedFileRetention, logFileRetention, !commandLine.hasOption(NO_TIMING_REPORT_OPTION), commandLine.hasOption(FAIL_FAST_OPTION),
+                shard, commandLine.hasOption(SKIP_BASE_VALIDATION_OPTION), getCaseSelection(commandLine), commandLine.hasOption(COMPRESS_OUTPUT_OPTION));
+    }
+
+    private static CaseSelection getCaseSelection(CommandLine commandLine) {
+        var constraintPatterns = commandLine.hasOption(CONSTRAINT_OPTION) ? List.of(commandLine.getOptionValues(CONSTRAINT_OPTION)) : List.<String>of();
+        return new CaseSelection(constraintPatterns, Optional.ofNullable(commandLine.getOptionValue(CHANGED_SINCE_OPTION)));
+    }
+
+    private static Optional<Shard> getShardOption(CommandLine commandLine) throws ParseException {
+        if (!commandLine.hasOption(SHARD_OPTION)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(Shard.parse(commandLine.getOptionValue(SHARD_OPTION)));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("The value of --" + SHARD_OPTION + " is invalid: " + e.getMessage());
+        }
+    }
+
+    // The coordinator only accepts workers on the same host unless another address is given.
+    private static Optional<InetSocketAddress> getCoordinatorOption(CommandLine commandLine) throws ParseException {
+        if (!commandLine.hasOption(COORDINATOR_OPTION)) {
+            if (commandLine.hasOption(COORDINATOR_BIND_OPTION)) {
+                throw new ParseException("--" + COORDINATOR_BIND_OPTION + " can only be used with --" + COORDINATOR_OPTION + ".");
+            }
+            return Optional.empty();
+        }
+
+        var port = parsePort(commandLine.getOptionValue(COORDINATOR_OPTION), COORDINATOR_OPTION);
+        if (!commandLine.hasOption(COORDINATOR_BIND_OPTION)) {
+            return Optional.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        var address = commandLine.getOptionValue(COORDINATOR_BIND_OPTION);
+        try {
+            return Optional.of(new InetSocketAddress(InetAddress.getByName(address), port));
+        } catch (UnknownHostException e) {
+            throw new ParseException("The address of --" + COORDINATOR_BIND_OPTION + " is unknown: " + address);
+        }
+    }
+
+    private static String getRemoteToken(CommandLine commandLine) {
+        if (commandLine.hasOption(REMOTE_TOKEN_OPTION)) {
+            return commandLine.getOptionValue(REMOTE_TOKEN_OPTION);
+        }
+        return Optional.ofNullable(System.getenv(REMOTE_TOKEN_VARIABLE)).orElse("");
+    }
+
+    private static Optional<InetSocketAddress> getWorkerOption(CommandLine commandLine) throws ParseException {
+        if (!commandLine.hasOption(WORKER_OPTION)) {
+            return Optional.empty();
+        }
+
+        var value = commandLine.getOptionValue(WORKER_OPTION);
+        var separator = value.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new ParseException("The value of --" + WORKER_OPTION + " must have the form <host>:<port>.");
+        }
+        return Optional.of(InetSocketAddress.createUnresolved(value.substring(0, separator), parsePort(value.substring(separator + 1), WORKER_OPTION)));
+    }
+
+    private static int parsePort(String value, String option) throws ParseException {
+        try {
+            var port = Integer.parseInt(value);
+            if (port < 0 || port > MAX_PORT) {
+                throw new ParseException("The port of --" + option + " must be between 0 and " + MAX_PORT + ".");
+            }
+            return port;
+        } catch (NumberFormatException e) {
+            throw new ParseException("The port of --" + option + " is not a number: " + value);
+        }
+    }
+
+    private static OutputRetention getOutputRetentionOption(CommandLine commandLine, String option, OutputRetention defaultRetention) throws ParseException {
+        if (!commandLine.hasOption(option)) {
+            return defaultRetention;
+        }
+
+        var value = commandLine.getOptionValue(option);
+        for (var retention : OutputRetention.values()) {
+            if (retention.name().equalsIgnoreCase(value)) {
+                return retention;
+            }
+        }
+        throw new ParseException("The value of --" + option + " must be one of " + getOutputRetentionValues() + ".");
+    }
+
+    private static String getOutputRetentionValues() {
+        return Arrays.stream(OutputRetention.values())
+                .map(retention -> retention.name().toLowerCase())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static ValidatorOptions getValidatorOptions(CommandLine commandLine) throws ParseException {
+        var workerCount = getPositiveIntOption(commandLine, VALIDATOR_WORKERS_OPTION, 0);
+        var maxJobsPerWorker = getPositiveIntOption(commandLine, WORKER_MAX_JOBS_OPTION, ValidatorOptions.defaultMaxJobsPerWorker());
+        var jvmArguments = commandLine.hasOption(VALIDATOR_JVM_OPTION) ? List.of(commandLine.getOptionValues(VALIDATOR_JVM_OPTION)) : List.<String>of();
+        var classDataSharing = Optional.ofNullable(commandLine.getOptionValue(CLASS_DATA_SHARING_OPTION)).map(Path::of);
+        return new ValidatorOptions(workerCount, maxJobsPerWorker, commandLine.hasOption(COMPILE_MODELS_OPTION), jvmArguments, classDataSharing);
+    }
+
+    private static int getPositiveIntOption(CommandLine commandLine, String option, int defaultValue) throws ParseException {
+        if (!commandLine.hasOption(option)) {
+            return defaultValue;
+        }
+
+        try {
+            var value = Integer.parseInt(commandLine.getOptionValue(option));
+            if (value < 1) {
+                throw new ParseException("The value of --" + option + " must be at least 1.");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ParseException("The value of --" + option + " must be a number.");
+        }
     }
 
     private static Options createCliOptions() {
@@ -73,8 +414,7 @@ public final class Main {
                 .argName("path")
                 .longOpt(VALIDATOR_PATH_OPTION)
                 .hasArg()
-                .required()
-                .desc("path to ilivalidator.jar")
+                .desc("path to ilivalidator.jar (required unless --" + MERGE_SHARDS_OPTION + " is used)")
                 .build();
         options.addOption(validatorPathOption);
 
@@ -86,6 +426,213 @@ public final class Main {
             .build();
         options.addOption(validatorConfigOption);
 
+        var jobsOption = Option.builder("j")
+            .longOpt(JOBS_OPTION)
+            .hasArg()
+            .argName("count")
+            .desc("number of fail cases to merge and validate in parallel (default: number of processors)")
+            .build();
+        options.addOption(jobsOption);
+
+        var inProcessOption = Option.builder()
+            .longOpt(IN_PROCESS_OPTION)
+            .desc("run ilivalidator inside the runner process instead of starting a new process for every file")
+            .build();
+        options.addOption(inProcessOption);
+
+        var validatorWorkersOption = Option.builder()
+            .longOpt(VALIDATOR_WORKERS_OPTION)
+            .hasArg()
+            .argName("count")
+            .desc("number of long-lived validator processes that are reused for many files (default: new process for every file)")
+            .build();
+        options.addOption(validatorWorkersOption);
+
+        var workerMaxJobsOption = Option.builder()
+            .longOpt(WORKER_MAX_JOBS_OPTION)
+            .hasArg()
+            .argName("count")
+            .desc("number of validations after which a validator process is replaced (default: " + ValidatorOptions.defaultMaxJobsPerWorker() + ")")
+            .build();
+        options.addOption(workerMaxJobsOption);
+
+        var compileModelsOption = Option.builder()
+            .longOpt(COMPILE_MODELS_OPTION)
+            .desc("compile the models of the testbed before the first validation and resolve them locally for every validation")
+            .build();
+        options.addOption(compileModelsOption);
+
+        var validatorJvmOption = Option.builder()
+            .longOpt(VALIDATOR_JVM_OPTION)
+            .hasArg()
+            .argName("option")
+            .desc("additional JVM option for the ilivalidator processes, e.g. '--" + VALIDATOR_JVM_OPTION + "=-Xmx4g', can be specified multiple times")
+            .build();
+        options.addOption(validatorJvmOption);
+
+        var classDataSharingOption = Option.builder()
+            .longOpt(CLASS_DATA_SHARING_OPTION)
+            .hasArg()
+            .argName("directory")
+            .desc("create a class data sharing archive of ilivalidator in the directory and start the ilivalidator processes with it")
+            .build();
+        options.addOption(classDataSharingOption);
+
+        var streamingMergeOption = Option.builder()
+            .longOpt(STREAMING_MERGE_OPTION)
+            .desc("merge the fail cases without loading the base data into memory, for very large base data files")
+            .build();
+        options.addOption(streamingMergeOption);
+
+        var pruneBasketsOption = Option.builder()
+            .longOpt(PRUNE_BASKETS_OPTION)
+            .desc("write only the baskets changed by a fail case and the baskets they refer to into the merged file, for models whose constraints only check within a basket")
+            .build();
+        options.addOption(pruneBasketsOption);
+
+        var noCacheOption = Option.builder()
+            .longOpt(NO_CACHE_OPTION)
+            .desc("validate all fail cases without reading or writing cached results")
+            .build();
+        var refreshCacheOption = Option.builder()
+            .longOpt(REFRESH_CACHE_OPTION)
+            .desc("validate all fail cases again and replace their cached results")
+            .build();
+        options.addOptionGroup(new OptionGroup().addOption(noCacheOption).addOption(refreshCacheOption));
+
+        var watchOption = Option.builder()
+            .longOpt(WATCH_OPTION)
+            .desc("keep running and validate the affected fail cases again whenever a file in the testbed directory changes")
+            .build();
+        options.addOption(watchOption);
+
+        var keepMergedFilesOption = Option.builder()
+            .longOpt(KEEP_MERGED_FILES_OPTION)
+            .hasArg()
+            .argName(getOutputRetentionValues())
+            .desc("which merged files are kept in the output directory (default: always, never with --" + COORDINATOR_OPTION + ")")
+            .build();
+        options.addOption(keepMergedFilesOption);
+
+        var keepLogFilesOption = Option.builder()
+            .longOpt(KEEP_LOG_FILES_OPTION)
+            .hasArg()
+            .argName(getOutputRetentionValues())
+            .desc("which validator log files are kept in the output directory, with 'failed' the log is kept in memory if possible (default: always)")
+            .build();
+        options.addOption(keepLogFilesOption);
+
+        var compressOutputOption = Option.builder()
+            .longOpt(COMPRESS_OUTPUT_OPTION)
+            .desc("compress the kept merged files and log files of the fail cases with gzip (.gz)")
+            .build();
+        options.addOption(compressOutputOption);
+
+        var testbedRootOption = Option.builder()
+            .longOpt(TESTBED_ROOT_OPTION)
+            .hasArg()
+            .argName("directory")
+            .desc("run every subdirectory of the directory that contains a data file as a testbed")
+            .build();
+        options.addOption(testbedRootOption);
+
+        var noTimingReportOption = Option.builder()
+            .longOpt(NO_TIMING_REPORT_OPTION)
+            .desc("do not write the time spent in each phase to timing-report.json and do not update the timing history in the output directory")
+            .build();
+        options.addOption(noTimingReportOption);
+
+        var flightRecordingOption = Option.builder()
+            .longOpt(FLIGHT_RECORDING_OPTION)
+            .hasArg()
+            .argName("file")
+            .desc("record the run with Java Flight Recorder, including merge, validation and log scan events, and write the recording to the file")
+            .build();
+        options.addOption(flightRecordingOption);
+
+        var failFastOption = Option.builder()
+            .longOpt(FAIL_FAST_OPTION)
+            .desc("stop at the first fail case that could not be verified, cancel the remaining fail cases and testbeds and stop running validator processes")
+            .build();
+        options.addOption(failFastOption);
+
+        var shardOption = Option.builder()
+            .longOpt(SHARD_OPTION)
+            .hasArg()
+            .argName("index/count")
+            .desc("run only one part of the fail cases, e.g. 0/4 for the first of four parts, and write the result to output/shard-<index>-of-<count>.tsv")
+            .build();
+        options.addOption(shardOption);
+
+        var skipBaseValidationOption = Option.builder()
+            .longOpt(SKIP_BASE_VALIDATION_OPTION)
+            .desc("do not validate the base data, e.g. for shards other than the first")
+            .build();
+        options.addOption(skipBaseValidationOption);
+
+        var mergeShardsOption = Option.builder()
+            .longOpt(MERGE_SHARDS_OPTION)
+            .hasArg()
+            .argName("report file")
+            .desc("combine the shard results in the given files or directories into one report and exit with an error if any shard failed")
+            .build();
+        options.addOption(mergeShardsOption);
+
+        var constraintOption = Option.builder()
+            .longOpt(CONSTRAINT_OPTION)
+            .hasArg()
+            .argName("pattern")
+            .desc("run only the fail cases of constraints matching the pattern, e.g. 'ModelA.TopicA.*', can be specified multiple times")
+            .build();
+        options.addOption(constraintOption);
+
+        var changedSinceOption = Option.builder()
+            .longOpt(CHANGED_SINCE_OPTION)
+            .hasArg()
+            .argName("revision")
+            .desc("run only the fail cases whose files changed since the given git revision, or all fail cases if the base data or a model changed")
+            .build();
+        options.addOption(changedSinceOption);
+
+        var coordinatorOption = Option.builder()
+            .longOpt(COORDINATOR_OPTION)
+            .hasArg()
+            .argName("port")
+            .desc("validate the base data and hand out the fail cases to workers that connect to the TCP port, -j limits the number of fail cases handed out at once")
+            .build();
+        options.addOption(coordinatorOption);
+
+        var workerOption = Option.builder()
+            .longOpt(WORKER_OPTION)
+            .hasArg()
+            .argName("host:port")
+            .desc("run the fail cases handed out by the coordinator on a local copy of the testbed, with -j connections")
+            .build();
+        options.addOption(workerOption);
+
+        var coordinatorBindOption = Option.builder()
+            .longOpt(COORDINATOR_BIND_OPTION)
+            .hasArg()
+            .argName("address")
+            .desc("local address the coordinator accepts workers on, e.g. 0.0.0.0 for all interfaces (default: loopback address)")
+            .build();
+        options.addOption(coordinatorBindOption);
+
+        var remoteTokenOption = Option.builder()
+            .longOpt(REMOTE_TOKEN_OPTION)
+            .hasArg()
+            .argName("token")
+            .desc("token shared by the coordinator and its workers, only workers with the token are accepted (default: " + REMOTE_TOKEN_VARIABLE + " environment variable)")
+            .build();
+        options.addOption(remoteTokenOption);
+
         return options;
     }
+
+    private record Arguments(List<TestOptions> testbeds, RunOptions runOptions, ValidatorOptions validatorOptions, boolean inProcess, boolean streamingMerge, boolean pruneBaskets, boolean watch, Optional<Path> flightRecording,
+                             Optional<InetSocketAddress> coordinator, Optional<InetSocketAddress> worker, String remoteToken, Optional<ShardMerge> shardMerge) {
+    }
+
+    private record ShardMerge(Path reportFile, List<Path> inputs) {
+    }
 }
@@ -0,0 +1,31 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+/**
+ * Defines which output files of the fail cases are kept in the output directory.
+ */
+public enum OutputRetention {
+    /**
+     * The output files of all fail cases are kept.
+     */
+    ALWAYS,
+
+    /**
+     * The output files are only kept for fail cases that could not be verified.
+     */
+    FAILED,
+
+    /**
+     * The output files are deleted as soon as the fail case has been checked.
+     */
+    NEVER;
+
+    /**
+     * Checks whether the output files of a fail case are kept.
+     *
+     * @param verified whether the fail case has been verified.
+     * @return {@code true} if the output files are kept.
+     */
+    public boolean keeps(boolean verified) {
+        return this == ALWAYS || this == FAILED && !verified;
+    }
+}
@@ -0,0 +1,200 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidationResult;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorLog;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorOptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Persistent cache of validation results in the output directory of a testbed.
+ * <p>
+ * The results are stored by a hash of all inputs that can influence the validation of a fail case:
+ * the base data file, the patch file and its location, the model files of the testbed,
+ * the ilivalidator config file, the ilivalidator jar, whether the merged files are pruned to the changed baskets,
+ * whether the models are compiled to resolve the model directories and the JVM arguments of ilivalidator.
+ */
+final class ResultCache {
+    private static final String CACHE_DIR_NAME = ".cache";
+    private static final String RESULT_FILE_EXTENSION = ".properties";
+    private static final String LOG_FILE_EXTENSION = ".log";
+    private static final String VALID_PROPERTY = "valid";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String PRUNED_BASKETS_MARKER = "pruned-baskets";
+    private static final String COMPILED_MODELS_MARKER = "compiled-models";
+    private static final String JVM_ARGUMENT_MARKER = "jvm-argument";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TestOptions options;
+    private final Path cacheDirectory;
+    private final byte[] testbedHash;
+
+    private ResultCache(TestOptions options, byte[] testbedHash) {
+        this.options = options;
+        this.cacheDirectory = options.outputPath().resolve(CACHE_DIR_NAME);
+        this.testbedHash = testbedHash;
+    }
+
+    /**
+     * Creates the result cache for a testbed.
+     * The files shared by all fail cases are hashed once when the cache is created.
+     *
+     * @param options          the test options.
+     * @param baseFilePath     the path to the base data file.
+     * @param prunedBaskets    whether the merged files only contain the baskets changed by the patches.
+     * @param validatorOptions the options of the validator, if the validator is configured by validator options.
+     * @return the result cache.
+     * @throws IOException if the files of the testbed could not be read.
+     */
+    static ResultCache create(TestOptions options, Path baseFilePath, boolean prunedBaskets, Optional<ValidatorOptions> validatorOptions) throws IOException {
+        var digest = createDigest();
+        updateDigest(digest, baseFilePath);
+        for (var modelFile : options.modelFiles()) {
+            updateDigest(digest, modelFile.getFileName().toString());
+            updateDigest(digest, modelFile);
+        }
+        if (options.ilivalidatorConfigPath().isPresent()) {
+            updateDigest(digest, options.ilivalidatorConfigPath().get());
+        }
+        updateDigest(digest, options.ilivalidatorPath());
+        if (prunedBaskets) {
+            updateDigest(digest, PRUNED_BASKETS_MARKER);
+        }
+        if (validatorOptions.isPresent()) {
+            if (validatorOptions.get().compileModels()) {
+                updateDigest(digest, COMPILED_MODELS_MARKER);
+            }
+            for (var jvmArgument : validatorOptions.get().jvmArguments()) {
+                updateDigest(digest, JVM_ARGUMENT_MARKER);
+                updateDigest(digest, jvmArgument);
+            }
+        }
+        return new ResultCache(options, digest.digest());
+    }
+
+    /**
+     * Gets the cache key of a fail case.
+     *
+     * @param patchFile the path to the patch file of the fail case.
+     * @return the cache key.
+     * @throws IOException if the patch file could not be read.
+     */
+    String getKey(Path patchFile) throws IOException {
+        return getKey(patchFile, hashFile(patchFile));
+    }
+
+    /**
+     * Gets the cache key of a fail case whose patch file was already hashed.
+     *
+     * @param patchFile     the path to the patch file of the fail case.
+     * @param patchFileHash the hash of the patch file, as computed by {@link #hashFile(Path)}.
+     * @return the cache key.
+     */
+    String getKey(Path patchFile, String patchFileHash) {
+        var digest = createDigest();
+        digest.update(testbedHash);
+        updateDigest(digest, options.basePath().relativize(patchFile).toString().replace('\\', '/'));
+        updateDigest(digest, patchFileHash);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the hash of the content of a file.
+     *
+     * @param file the path to the file.
+     * @return the hexadecimal SHA-256 hash of the file.
+     * @throws IOException if the file could not be read.
+     */
+    static String hashFile(Path file) throws IOException {
+        var digest = createDigest();
+        var buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Loads a cached validation result.
+     *
+     * @param key the cache key of the fail case.
+     * @return the cached validation result with its log stored in the cache, or an empty optional if the cache does not contain the fail case.
+     * @throws IOException if the cache could not be read.
+     */
+    Optional<ValidationResult> load(String key) throws IOException {
+        var resultFile = cacheDirectory.resolve(key + RESULT_FILE_EXTENSION);
+        var cachedLogFile = cacheDirectory.resolve(key + LOG_FILE_EXTENSION);
+        if (!Files.exists(resultFile) || !Files.exists(cachedLogFile)) {
+            return Optional.empty();
+        }
+
+        var properties = new Properties();
+        try (var reader = Files.newBufferedReader(resultFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        var valid = Boolean.parseBoolean(properties.getProperty(VALID_PROPERTY));
+        return Optional.of(new ValidationResult(valid, ValidatorLog.ofFile(cachedLogFile)));
+    }
+
+    /**
+     * Stores the validation result of a fail case.
+     *
+     * @param key    the cache key of the fail case.
+     * @param result the result of the validation.
+     * @throws IOException if the result could not be written.
+     */
+    void store(String key, ValidationResult result) throws IOException {
+        Files.createDirectories(cacheDirectory);
+
+        var temporaryLogFile = Files.createTempFile(cacheDirectory, key, LOG_FILE_EXTENSION);
+        result.log().writeTo(temporaryLogFile);
+        Files.move(temporaryLogFile, cacheDirectory.resolve(key + LOG_FILE_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        var properties = new Properties();
+        properties.setProperty(VALID_PROPERTY, Boolean.toString(result.valid()));
+        var temporaryResultFile = Files.createTempFile(cacheDirectory, key, RESULT_FILE_EXTENSION);
+        try (OutputStream output = Files.newOutputStream(temporaryResultFile)) {
+            properties.store(output, null);
+        }
+        Files.move(temporaryResultFile, cacheDirectory.resolve(key + RESULT_FILE_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void updateDigest(MessageDigest digest, Path file) throws IOException {
+        var buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,197 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.util.Optional;
+
+/**
+ * Options that control how the runner executes the test cases of a testbed.
+ *
+ * @param jobs                the maximum number of fail cases that are merged and validated concurrently.
+ * @param cacheMode           how cached validation results are used.
+ * @param mergedFileRetention which merged files are kept in the output directory.
+ * @param logFileRetention    which validator log files are kept in the output directory.
+ * @param timingReport        whether a report with the time spent in each phase and the timing history are written to the output directory.
+ * @param failFast            whether the remaining fail cases are cancelled after the first fail case that could not be verified.
+ * @param shard               the part of the fail cases to run, or empty to run all fail cases.
+ * @param skipBaseValidation  whether the validation of the base data is skipped, for example because another shard validates it.
+ * @param caseSelection       which fail cases of the testbed are run.
+ * @param compressOutput      whether the kept merged files and log files are compressed with gzip.
+ */
+public record RunOptions(int jobs, CacheMode cacheMode, OutputRetention mergedFileRetention, OutputRetention logFileRetention, boolean timingReport, boolean failFast,
+                         Optional<Shard> shard, boolean skipBaseValidation, CaseSelection caseSelection, boolean compressOutput) {
+    /**
+     * Creates a new instance of the RunOptions class.
+     *
+     * @throws IllegalArgumentException if the number of jobs is less than 1.
+     */
+    public RunOptions {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("The number of jobs must be at least 1.");
+        }
+    }
+
+    /**
+     * Gets the options that run all fail cases sequentially without using cached results and keep all merged files and log files uncompressed.
+     * No timing report is written, the base data is validated and all fail cases are run, also after a fail case could not be verified.
+     *
+     * @return the default options.
+     */
+    public static RunOptions defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a builder for options that differ from the {@link #defaults()}.
+     *
+     * @return the builder with the default options.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default number of jobs, based on the number of available processors.
+     *
+     * @return the default number of jobs.
+     */
+    public static int defaultJobs() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Builds run options, the options that are not set keep their {@link #defaults()}.
+     */
+    public static final class Builder {
+        private int jobs = 1;
+        private CacheMode cacheMode = CacheMode.DISABLED;
+        private OutputRetention mergedFileRetention = OutputRetention.ALWAYS;
+        private OutputRetention logFileRetention = OutputRetention.ALWAYS;
+        private boolean timingReport;
+        private boolean failFast;
+        private Optional<Shard> shard = Optional.empty();
+        private boolean skipBaseValidation;
+        private CaseSelection caseSelection = CaseSelection.all();
+        private boolean compressOutput;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of fail cases that are merged and validated concurrently.
+         *
+         * @param jobs the value for {@link RunOptions#jobs()}.
+         * @return this builder.
+         */
+        public Builder jobs(int jobs) {
+            this.jobs = jobs;
+            return this;
+        }
+
+        /**
+         * Sets how cached validation results are used.
+         *
+         * @param cacheMode the value for {@link RunOptions#cacheMode()}.
+         * @return this builder.
+         */
+        public Builder cacheMode(CacheMode cacheMode) {
+            this.cacheMode = cacheMode;
+            return this;
+        }
+
+        /**
+         * Sets which merged files are kept in the output directory.
+         *
+         * @param mergedFileRetention the value for {@link RunOptions#mergedFileRetention()}.
+         * @return this builder.
+         */
+        public Builder mergedFileRetention(OutputRetention mergedFileRetention) {
+            this.mergedFileRetention = mergedFileRetention;
+            return this;
+        }
+
+        /**
+         * Sets which validator log files are kept in the output directory.
+         *
+         * @param logFileRetention the value for {@link RunOptions#logFileRetention()}.
+         * @return this builder.
+         */
+        public Builder logFileRetention(OutputRetention logFileRetention) {
+            this.logFileRetention = logFileRetention;
+            return this;
+        }
+
+        /**
+         * Sets whether a timing report and the timing history are written.
+         *
+         * @param timingReport the value for {@link RunOptions#timingReport()}.
+         * @return this builder.
+         */
+        public Builder timingReport(boolean timingReport) {
+            this.timingReport = timingReport;
+            return this;
+        }
+
+        /**
+         * Sets whether the remaining fail cases are cancelled after the first fail case that could not be verified.
+         *
+         * @param failFast the value for {@link RunOptions#failFast()}.
+         * @return this builder.
+         */
+        public Builder failFast(boolean failFast) {
+            this.failFast = failFast;
+            return this;
+        }
+
+        /**
+         * Sets the part of the fail cases to run.
+         *
+         * @param shard the value for {@link RunOptions#shard()}.
+         * @return this builder.
+         */
+        public Builder shard(Shard shard) {
+            this.shard = Optional.of(shard);
+            return this;
+        }
+
+        /**
+         * Sets whether the validation of the base data is skipped.
+         *
+         * @param skipBaseValidation the value for {@link RunOptions#skipBaseValidation()}.
+         * @return this builder.
+         */
+        public Builder skipBaseValidation(boolean skipBaseValidation) {
+            this.skipBaseValidation = skipBaseValidation;
+            return this;
+        }
+
+        /**
+         * Sets which fail cases of the testbed are run.
+         *
+         * @param caseSelection the value for {@link RunOptions#caseSelection()}.
+         * @return this builder.
+         */
+        public Builder caseSelection(CaseSelection caseSelection) {
+            this.caseSelection = caseSelection;
+            return this;
+        }
+
+        /**
+         * Sets whether the kept merged files and log files are compressed with gzip.
+         *
+         * @param compressOutput the value for {@link RunOptions#compressOutput()}.
+         * @return this builder.
+         */
+        public Builder compressOutput(boolean compressOutput) {
+            this.compressOutput = compressOutput;
+            return this;
+        }
+
+        /**
+         * Creates the run options.
+         *
+         * @return the run options.
+         */
+        public RunOptions build() {
+            return new RunOptions(jobs, cacheMode, mergedFileRetention, logFileRetention, timingReport, failFast, shard, skipBaseValidation, caseSelection, compressOutput);
+        }
+    }
+}
@@ -1,22 +1,58 @@
 package ch.geowerkstatt.interlis.testbed.runner;
 
+import ch.geowerkstatt.interlis.testbed.runner.timing.CaseTimings;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import ch.geowerkstatt.interlis.testbed.runner.timing.TimingHistory;
+import ch.geowerkstatt.interlis.testbed.runner.timing.TimingReport;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidationResult;
 import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
 import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorLog;
 import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
 public final class Runner {
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final String COMPRESSED_FILE_EXTENSION = ".gz";
 
     private final TestOptions options;
+    private final RunOptions runOptions;
     private final Validator validator;
     private final XtfMerger xtfMerger;
+    private final ExecutorService executor;
+    private final CaseExecutor caseExecutor;
+    private final Map<TestbedManifest.Entry, String> patchFileHashes = new ConcurrentHashMap<>();
     private Path baseFilePath;
+    private ResultCache resultCache;
+    private TestbedManifest previousManifest;
+    private ShardResult shardResult;
+    private TimingReport timingReport;
 
     /**
      * Creates a new instance of the Runner class.
@@ -26,9 +62,53 @@ public final class Runner {
      * @param xtfMerger the XTF merger to use.
      */
     public Runner(TestOptions options, Validator validator, XtfMerger xtfMerger) {
+        this(options, RunOptions.defaults(), validator, xtfMerger);
+    }
+
+    /**
+     * Creates a new instance of the Runner class.
+     *
+     * @param options    the test options.
+     * @param runOptions the options controlling the execution of the test cases.
+     * @param validator  the validator to use.
+     * @param xtfMerger  the XTF merger to use.
+     */
+    public Runner(TestOptions options, RunOptions runOptions, Validator validator, XtfMerger xtfMerger) {
+        this(options, runOptions, validator, xtfMerger, null);
+    }
+
+    /**
+     * Creates a new instance of the Runner class that runs the fail cases on a shared executor.
+     * The executor is not shut down by the runner, so it can be used for several testbeds.
+     *
+     * @param options    the test options.
+     * @param runOptions the options controlling the execution of the test cases.
+     * @param validator  the validator to use.
+     * @param xtfMerger  the XTF merger to use.
+     * @param executor   the executor that runs the fail cases if more than one job is configured.
+     */
+    public Runner(TestOptions options, RunOptions runOptions, Validator validator, XtfMerger xtfMerger, ExecutorService executor) {
+        this(options, runOptions, validator, xtfMerger, executor, null);
+    }
+
+    /**
+     * Creates a new instance of the Runner class that hands the merging and validation of the fail cases to a case executor.
+     * The base data file is still validated by the given validator.
+     *
+     * @param options      the test options.
+     * @param runOptions   the options controlling the execution of the test cases.
+     * @param validator    the validator to use for the base data file.
+     * @param xtfMerger    the XTF merger to use.
+     * @param executor     the executor that runs the fail cases if more than one job is configured, or {@code null} to create one.
+     * @param caseExecutor the executor that merges and validates the fail cases, or {@code null} to run them in this process.
+     */
+    public Runner(TestOptions options, RunOptions runOptions, Validator validator, XtfMerger xtfMerger, ExecutorService executor, CaseExecutor caseExecutor) {
         this.options = options;
+        this.runOptions = runOptions;
         this.validator = validator;
         this.xtfMerger = xtfMerger;
+        this.executor = executor;
+        this.caseExecutor = caseExecutor;
     }
 
     /**
@@ -38,35 +118,329 @@ public final class Runner {
      */
     public boolean run() {
         LOGGER.info("Starting validation of testbed at {}", options.basePath());
+        return runWithTimingReport(() -> {
+            shardResult = runOptions.shard().map(ShardResult::new).orElse(null);
+            var success = runTestbed();
+            writeShardResult(success);
+            return success;
+        });
+    }
 
+    private boolean runTestbed() {
+        FutureTask<TestbedManifest> patchFileDiscovery = null;
         try {
-            if (!validateBaseData()) {
+            readPreviousManifest();
+            patchFileHashes.clear();
+            var discovery = startDiscovery();
+            var discoveredPatchFiles = new LinkedBlockingQueue<Optional<Path>>();
+            patchFileDiscovery = new FutureTask<>(() -> {
+                try {
+                    return discovery.findPatchFiles(patchFile -> discoveredPatchFiles.add(Optional.of(patchFile)));
+                } finally {
+                    discoveredPatchFiles.add(Optional.empty());
+                }
+            });
+            // The constraint directories are listed while the base data is validated.
+            Thread.ofVirtual().name("testbed-discovery").start(patchFileDiscovery);
+
+            if (!prepareBaseData(discovery.baseDataFile())) {
                 return false;
             }
 
-            if (!mergeAndValidateTransferFiles()) {
-                return false;
+            if (runsWhileDiscovering()) {
+                var patchFiles = new ArrayList<Path>();
+                var discoveredCases = new DiscoveredCases(discoveredPatchFiles, patchFiles);
+                var success = mergeAndValidateTransferFiles(patchFiles, discoveredCases);
+                if (discoveredCases.isInterrupted()) {
+                    throw new ValidatorException("The run was interrupted while the fail cases were listed.");
+                }
+                var manifest = awaitDiscovery(patchFileDiscovery);
+                reportChanges(manifest);
+                writeManifest(manifest);
+                if (patchFiles.isEmpty()) {
+                    LOGGER.error("No patch files found.");
+                    return false;
+                }
+                if (!success) {
+                    return false;
+                }
+                LOGGER.info("Validation of testbed completed.");
+                return true;
             }
 
-            LOGGER.info("Validation of testbed completed.");
-            return true;
+            var manifest = awaitDiscovery(patchFileDiscovery);
+            reportChanges(manifest);
+            try {
+                return runDiscoveredCases(manifest.patchFiles());
+            } finally {
+                writeManifest(manifest);
+            }
         } catch (ValidatorException e) {
             LOGGER.error("Validation could not run, check the configuration.", e);
             return false;
+        } finally {
+            if (patchFileDiscovery != null) {
+                patchFileDiscovery.cancel(true);
+            }
+        }
+    }
+
+    private boolean runDiscoveredCases(List<Path> patchFiles) throws ValidatorException {
+        if (patchFiles.isEmpty()) {
+            LOGGER.error("No patch files found.");
+            return false;
+        }
+
+        if (!runOptions.caseSelection().isAll()) {
+            var allCount = patchFiles.size();
+            patchFiles = selectCases(patchFiles);
+            LOGGER.info("Selected {} of {} fail cases.", patchFiles.size(), allCount);
+            if (patchFiles.isEmpty()) {
+                LOGGER.info("Validation of testbed completed.");
+                return true;
+            }
+        }
+
+        if (runOptions.shard().isPresent()) {
+            var shard = runOptions.shard().get();
+            patchFiles = shard.select(patchFiles, Runner::getFileSize);
+            LOGGER.info("Running {} fail cases of shard {}.", patchFiles.size(), shard);
+            if (patchFiles.isEmpty()) {
+                LOGGER.info("Validation of testbed completed.");
+                return true;
+            }
+        }
+
+        if (!mergeAndValidateTransferFiles(patchFiles)) {
+            return false;
+        }
+
+        LOGGER.info("Validation of testbed completed.");
+        return true;
+    }
+
+    private TestbedDiscovery startDiscovery() throws ValidatorException {
+        try (var measurement = PhaseTimer.start(Phase.DISCOVERY)) {
+            return TestbedDiscovery.start(options);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    private static TestbedManifest awaitDiscovery(FutureTask<TestbedManifest> patchFileDiscovery) throws ValidatorException {
+        try (var measurement = PhaseTimer.start(Phase.DISCOVERY)) {
+            return patchFileDiscovery.get();
+        } catch (ExecutionException e) {
+            throw new ValidatorException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidatorException(e);
+        }
+    }
+
+    // Cases can be started as soon as they are found unless they are selected, sharded or run in parallel, where the
+    // slowest cases are started first and the order is only known once all cases were found.
+    private boolean runsWhileDiscovering() {
+        return runOptions.caseSelection().isAll()
+                && runOptions.shard().isEmpty()
+                && runOptions.jobs() == 1;
+    }
+
+    private void readPreviousManifest() {
+        var manifestFile = options.outputPath().resolve(TestbedManifest.FILE_NAME);
+        try {
+            previousManifest = TestbedManifest.read(manifestFile, options.basePath()).orElse(null);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read the testbed manifest {}.", manifestFile, e);
+            previousManifest = null;
         }
     }
 
-    private boolean validateBaseData() throws ValidatorException {
+    private void reportChanges(TestbedManifest manifest) {
+        if (previousManifest == null) {
+            return;
+        }
+
+        var changes = TestbedWatcher.getChanges(options, manifest.changedPaths(previousManifest));
+        if (changes.allCases()) {
+            LOGGER.info("The base data or models of the testbed changed since the previous run.");
+        } else if (!changes.isEmpty()) {
+            var changedCases = manifest.patchFiles().stream().filter(changes::affects).count();
+            LOGGER.info("{} fail cases changed since the previous run.", changedCases);
+        }
+    }
+
+    // The hashes of unchanged patch files are kept, so the next run can compute their cache keys without reading them.
+    private void writeManifest(TestbedManifest manifest) {
+        var contentHashes = new HashMap<TestbedManifest.Entry, String>();
+        if (previousManifest != null) {
+            contentHashes.putAll(previousManifest.contentHashes());
+        }
+        contentHashes.putAll(patchFileHashes);
+
+        var manifestFile = options.outputPath().resolve(TestbedManifest.FILE_NAME);
+        var hashedManifest = manifest.withContentHashes(contentHashes);
+        try {
+            hashedManifest.write(manifestFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the testbed manifest {}.", manifestFile, e);
+        }
+        previousManifest = hashedManifest;
+    }
+
+    /**
+     * Merges and validates the given fail cases without validating the base data file again.
+     * Patch files that are not part of the testbed are ignored.
+     *
+     * @param patchFiles the paths to the patch files of the fail cases to run.
+     * @return {@code true} if all given fail cases were verified, {@code false} otherwise.
+     */
+    public boolean runFailCases(Collection<Path> patchFiles) {
+        return runWithTimingReport(() -> runSelectedFailCases(patchFiles));
+    }
+
+    private boolean runSelectedFailCases(Collection<Path> patchFiles) {
+        shardResult = null;
         try {
-            var baseFilePath = options.baseDataFilePath();
-            if (baseFilePath.isEmpty()) {
-                LOGGER.error("No base data file found.");
+            if (!resolveBaseFile(getBaseDataFile())) {
                 return false;
             }
-            this.baseFilePath = baseFilePath.get();
+
+            var selectedPatchFiles = getPatchDataFiles().stream()
+                    .filter(patchFiles::contains)
+                    .toList();
+            if (selectedPatchFiles.isEmpty()) {
+                LOGGER.info("No fail cases to run.");
+                return true;
+            }
+
+            LOGGER.info("Running {} fail cases of testbed at {}", selectedPatchFiles.size(), options.basePath());
+            return mergeAndValidateTransferFiles(selectedPatchFiles);
+        } catch (ValidatorException e) {
+            LOGGER.error("Validation could not run, check the configuration.", e);
+            return false;
+        }
+    }
+
+    private boolean runWithTimingReport(BooleanSupplier run) {
+        var report = new TimingReport(options.basePath());
+        timingReport = report;
+        boolean success;
+        try (var runTimings = report.startRun()) {
+            success = run.getAsBoolean();
+        }
+
+        if (runOptions.timingReport()) {
+            writeTimingReport(report);
+            updateTimingHistory(report);
+        }
+        return success;
+    }
+
+    private void writeTimingReport(TimingReport report) {
+        var reportFile = options.outputPath().resolve(TimingReport.FILE_NAME);
+        try {
+            Files.createDirectories(reportFile.getParent());
+            report.write(reportFile);
+            LOGGER.info("Timing report written to {}.", reportFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the timing report to {}.", reportFile, e);
+        }
+    }
+
+    private void updateTimingHistory(TimingReport report) {
+        var historyFile = options.outputPath().resolve(TimingHistory.FILE_NAME);
+        var history = readTimingHistory();
+        history.update(report);
+        try {
+            history.write(historyFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the timing history {}.", historyFile, e);
+        }
+    }
+
+    private boolean resolveBaseFile(Optional<Path> baseFilePath) {
+        if (baseFilePath.isEmpty()) {
+            LOGGER.error("No base data file found.");
+            return false;
+        }
+        this.baseFilePath = baseFilePath.get();
+        return true;
+    }
+
+    private Optional<Path> getBaseDataFile() throws ValidatorException {
+        try {
+            return options.baseDataFilePath();
         } catch (IOException e) {
             throw new ValidatorException(e);
         }
+    }
+
+    private List<Path> getPatchDataFiles() throws ValidatorException {
+        try (var measurement = PhaseTimer.start(Phase.DISCOVERY)) {
+            return options.patchDataFiles();
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    private List<Path> selectCases(List<Path> patchFiles) throws ValidatorException {
+        try (var measurement = PhaseTimer.start(Phase.DISCOVERY)) {
+            return runOptions.caseSelection().select(options, patchFiles);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    private boolean prepareBaseData(Optional<Path> baseDataFile) throws ValidatorException {
+        if (!runOptions.skipBaseValidation()) {
+            var valid = validateBaseData(baseDataFile);
+            setShardBaseData(valid ? ShardResult.BaseDataStatus.VALID : ShardResult.BaseDataStatus.INVALID);
+            return valid;
+        }
+
+        if (!resolveBaseFile(baseDataFile)) {
+            setShardBaseData(ShardResult.BaseDataStatus.INVALID);
+            return false;
+        }
+        LOGGER.info("Skipping validation of base data file {}", baseFilePath);
+        setShardBaseData(ShardResult.BaseDataStatus.SKIPPED);
+        return true;
+    }
+
+    private void setShardBaseData(ShardResult.BaseDataStatus status) {
+        if (shardResult != null) {
+            shardResult.setBaseData(status);
+        }
+    }
+
+    private void writeShardResult(boolean passed) {
+        if (shardResult == null) {
+            return;
+        }
+
+        shardResult.setPassed(passed);
+        var resultFile = options.outputPath().resolve(ShardResult.fileName(runOptions.shard().get()));
+        try {
+            shardResult.write(resultFile);
+            LOGGER.info("Shard result written to {}.", resultFile);
+        } catch (IOException e) {
+            LOGGER.error("Could not write the shard result to {}.", resultFile, e);
+        }
+    }
+
+    private static long getFileSize(Path patchFile) {
+        try {
+            return Files.size(patchFile);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private boolean validateBaseData(Optional<Path> baseDataFile) throws ValidatorException {
+        if (!resolveBaseFile(baseDataFile)) {
+            return false;
+        }
 
         LOGGER.info("Validating base data file {}", baseFilePath);
         var filenameWithoutExtension = StringUtils.getFilenameWithoutExtension(baseFilePath.getFileName().toString());
@@ -81,50 +455,453 @@ public final class Runner {
         return valid;
     }
 
-    private boolean mergeAndValidateTransferFiles() throws ValidatorException {
-        List<Path> patchFiles;
+    private boolean mergeAndValidateTransferFiles(List<Path> patchFiles) throws ValidatorException {
+        var startOrder = runOptions.jobs() == 1 ? IntStream.range(0, patchFiles.size()).boxed().toList() : getStartOrder(patchFiles);
+        if (runOptions.jobs() != 1) {
+            LOGGER.info("Running {} fail cases with {} parallel jobs.", patchFiles.size(), runOptions.jobs());
+        }
+        return mergeAndValidateTransferFiles(patchFiles, startOrder.iterator());
+    }
+
+    // The patch files may still be added to while the cases are started, they are complete once the start order is exhausted.
+    private boolean mergeAndValidateTransferFiles(List<Path> patchFiles, Iterator<Integer> startOrder) throws ValidatorException {
+        resultCache = createResultCache();
+
+        var completedResults = runOptions.jobs() == 1 ? runSequentially(patchFiles, startOrder) : runInParallel(patchFiles, startOrder);
+        // Cases that are found after the run stopped in fail-fast mode are reported as cancelled.
+        startOrder.forEachRemaining(index -> { });
+        var results = getResults(patchFiles, completedResults);
+
+        var failedCases = new ArrayList<Path>();
+        var skippedCases = 0;
+        for (var i = 0; i < patchFiles.size(); i++) {
+            ShardResult.CaseStatus status;
+            if (results.get(i) == null) {
+                skippedCases++;
+                status = ShardResult.CaseStatus.CANCELLED;
+            } else if (!results.get(i)) {
+                failedCases.add(patchFiles.get(i));
+                status = ShardResult.CaseStatus.FAILED;
+            } else {
+                status = ShardResult.CaseStatus.VERIFIED;
+            }
+            if (shardResult != null) {
+                shardResult.setCase(options.basePath().relativize(patchFiles.get(i)), status);
+            }
+        }
+
+        LOGGER.info("{} of {} fail cases verified.", patchFiles.size() - failedCases.size() - skippedCases, patchFiles.size());
+        for (var failedCase : failedCases) {
+            LOGGER.warn("Fail case {} could not be verified.", failedCase);
+        }
+        if (skippedCases > 0) {
+            LOGGER.warn("{} fail cases were cancelled after the first fail case that could not be verified.", skippedCases);
+        }
+
+        return failedCases.isEmpty() && skippedCases == 0;
+    }
+
+    // The results by the index of their patch file, cases that were cancelled in fail-fast mode have no result.
+    private Map<Integer, Boolean> runSequentially(List<Path> patchFiles, Iterator<Integer> startOrder) throws ValidatorException {
+        var results = new HashMap<Integer, Boolean>();
+        while (startOrder.hasNext()) {
+            var index = startOrder.next();
+            var verified = mergeAndValidateTransferFile(patchFiles.get(index));
+            results.put(index, verified);
+            if (!verified && runOptions.failFast()) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private Map<Integer, Boolean> runInParallel(List<Path> patchFiles, Iterator<Integer> startOrder) throws ValidatorException {
+        var ownExecutor = executor == null ? Executors.newFixedThreadPool(runOptions.jobs()) : null;
+        var futures = new ArrayList<Future<Boolean>>(patchFiles.size());
+        var futureIndexes = new HashMap<Future<Boolean>, Integer>();
         try {
-            patchFiles = options.patchDataFiles();
-        } catch (IOException e) {
+            var completionService = new ExecutorCompletionService<Boolean>(ownExecutor != null ? ownExecutor : executor);
+            var results = new HashMap<Integer, Boolean>();
+            var running = 0;
+            var stopped = false;
+            while (startOrder.hasNext()) {
+                var index = startOrder.next();
+                // At most one case per job is submitted, so the results of the completed cases are known before the next case
+                // is started and a failed case stops the run in fail-fast mode, also while the cases are still being listed.
+                var completed = running < runOptions.jobs() ? completionService.poll() : completionService.take();
+                while (completed != null && !stopped) {
+                    running--;
+                    stopped = !collectResult(completed, futureIndexes, results);
+                    completed = completionService.poll();
+                }
+                if (stopped) {
+                    break;
+                }
+
+                var patchFile = patchFiles.get(index);
+                var future = completionService.submit(() -> mergeAndValidateTransferFile(patchFile));
+                futureIndexes.put(future, index);
+                futures.add(future);
+                running++;
+            }
+
+            for (; running > 0 && !stopped; running--) {
+                stopped = !collectResult(completionService.take(), futureIndexes, results);
+            }
+            if (stopped) {
+                cancelRemainingCases(futures);
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ValidatorException validatorException) {
+                throw validatorException;
+            }
+            throw new ValidatorException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new ValidatorException(e);
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdownNow();
+            } else {
+                futures.forEach(future -> future.cancel(true));
+            }
         }
+    }
 
-        if (patchFiles.isEmpty()) {
-            LOGGER.error("No patch files found.");
-            return false;
+    // Stores the result of a completed case, returns false if the run stops because the case failed in fail-fast mode.
+    private boolean collectResult(Future<Boolean> future, Map<Future<Boolean>, Integer> futureIndexes, Map<Integer, Boolean> results) throws InterruptedException, ExecutionException {
+        var verified = future.get();
+        results.put(futureIndexes.get(future), verified);
+        return verified || !runOptions.failFast();
+    }
+
+    // The results are in the order of the patch files, null for cases that were cancelled in fail-fast mode.
+    private static List<Boolean> getResults(List<Path> patchFiles, Map<Integer, Boolean> results) {
+        return IntStream.range(0, patchFiles.size()).mapToObj(results::get).toList();
+    }
+
+    private List<Integer> getStartOrder(List<Path> patchFiles) {
+        var history = readTimingHistory();
+        return CaseOrder.longestFirst(patchFiles, history, this::getCaseName, this::getCaseFileSize);
+    }
+
+    private TimingHistory readTimingHistory() {
+        var historyFile = options.outputPath().resolve(TimingHistory.FILE_NAME);
+        try {
+            return TimingHistory.read(historyFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read the timing history {}.", historyFile, e);
+            return TimingHistory.empty();
         }
+    }
+
+    private String getCaseName(Path patchFile) {
+        return options.basePath().relativize(patchFile).toString();
+    }
 
-        var valid = true;
-        for (var patchFile : patchFiles) {
-            var patchFileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(patchFile.getFileName().toString());
-            var mergedFile = options.resolveOutputFilePath(patchFile, patchFileNameWithoutExtension + "_merged.xtf");
-            if (!xtfMerger.merge(baseFilePath, patchFile, mergedFile)) {
-                valid = false;
-                continue;
+    // Uses the merged file of a previous run if it was kept, or estimates its size from the base data and the patch file.
+    private long getCaseFileSize(Path patchFile) {
+        var patchFileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(patchFile.getFileName().toString());
+        var mergedFile = options.resolveOutputFilePath(patchFile, patchFileNameWithoutExtension + "_merged.xtf");
+        var size = getFileSize(mergedFile);
+        return size > 0 ? size : getFileSize(baseFilePath) + getFileSize(patchFile);
+    }
+
+    private void cancelRemainingCases(List<Future<Boolean>> futures) {
+        LOGGER.info("Cancelling the remaining fail cases.");
+        futures.forEach(future -> future.cancel(true));
+        validator.cancelRunningValidations();
+    }
+
+    private ResultCache createResultCache() {
+        if (runOptions.cacheMode() == CacheMode.DISABLED) {
+            return null;
+        }
+
+        try {
+            return ResultCache.create(options, baseFilePath, xtfMerger.prunesBaskets(), validator.getOptions());
+        } catch (IOException e) {
+            LOGGER.warn("Could not create the result cache, all fail cases are validated.", e);
+            return null;
+        }
+    }
+
+    private boolean mergeAndValidateTransferFile(Path patchFile) throws ValidatorException {
+        var constraintName = patchFile.getParent().getFileName().toString();
+        try (var caseTimings = timingReport.startCase(getCaseName(patchFile), constraintName)) {
+            return mergeAndValidateTransferFile(patchFile, constraintName, caseTimings);
+        }
+    }
+
+    private boolean mergeAndValidateTransferFile(Path patchFile, String constraintName, CaseTimings caseTimings) throws ValidatorException {
+        var patchFileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(patchFile.getFileName().toString());
+        var mergedFile = options.resolveOutputFilePath(patchFile, patchFileNameWithoutExtension + "_merged.xtf");
+        var logFile = mergedFile.getParent().resolve(patchFileNameWithoutExtension + ".log");
+
+        var cacheKey = getCacheKey(patchFile);
+        var cachedResult = loadCachedResult(cacheKey);
+        ValidationResult result;
+        if (cachedResult.isPresent()) {
+            LOGGER.info("Using cached validation result for {}.", patchFile);
+            caseTimings.markCached();
+            result = cachedResult.get();
+        } else {
+            Optional<ValidationResult> executedResult = Optional.empty();
+            try {
+                executedResult = caseExecutor != null
+                        ? caseExecutor.execute(baseFilePath, patchFile, mergedFile, logFile)
+                        : mergeAndValidate(patchFile, mergedFile, logFile);
+            } finally {
+                // The merged files of a case without a result are incomplete or stale, regardless of their retention.
+                if (executedResult.isEmpty()) {
+                    deleteOutputFile(mergedFile);
+                }
+            }
+            if (executedResult.isEmpty()) {
+                return false;
             }
 
-            var logFile = mergedFile.getParent().resolve(patchFileNameWithoutExtension + ".log");
-            var constraintName = patchFile.getParent().getFileName().toString();
-            if (!validateMergedFile(mergedFile, logFile, constraintName)) {
-                valid = false;
+            result = executedResult.get();
+            storeResult(cacheKey, result);
+        }
+
+        if (runOptions.logFileRetention() == OutputRetention.ALWAYS) {
+            writeLogFile(result, logFile);
+        }
+
+        // Fail cases run by a case executor are merged elsewhere, so the local merged file does not exist.
+        var validatedFile = caseExecutor != null ? patchFile + " (merged by the case executor)" : mergedFile.toString();
+        var verified = verifyValidationResult(result, validatedFile, logFile, readExpectedConstraints(patchFile, constraintName));
+        retainLogFile(result, logFile, verified);
+        retainMergedFile(mergedFile, verified);
+        return verified;
+    }
+
+    private Optional<ValidationResult> mergeAndValidate(Path patchFile, Path mergedFile, Path logFile) throws ValidatorException {
+        if (!merge(patchFile, mergedFile)) {
+            return Optional.empty();
+        }
+        return Optional.of(validateMergedFile(mergedFile, logFile));
+    }
+
+    // A merged file that may be kept compressed is compressed while it is written, as it is only known after the validation whether it is kept.
+    private boolean merge(Path patchFile, Path mergedFile) {
+        try (var measurement = PhaseTimer.start(Phase.MERGE)) {
+            if (runOptions.compressOutput() && runOptions.mergedFileRetention() != OutputRetention.NEVER) {
+                return xtfMerger.merge(baseFilePath, patchFile, mergedFile, Optional.of(getCompressedFile(mergedFile)));
             }
+            return xtfMerger.merge(baseFilePath, patchFile, mergedFile);
         }
+    }
 
-        return valid;
+    private ValidationResult validateMergedFile(Path mergedFile, Path logFile) throws ValidatorException {
+        if (runOptions.logFileRetention() == OutputRetention.ALWAYS) {
+            return new ValidationResult(validator.validate(mergedFile, logFile), ValidatorLog.ofFile(logFile));
+        }
+        return validator.validateCapturingLog(mergedFile, logFile);
+    }
+
+    private static void writeLogFile(ValidationResult result, Path logFile) throws ValidatorException {
+        try {
+            result.log().writeTo(logFile);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
     }
 
-    private boolean validateMergedFile(Path mergedFile, Path logFile, String constraintName) throws ValidatorException {
-        if (validator.validate(mergedFile, logFile)) {
+    // Captured logs are written compressed right away, log files written by ilivalidator are compressed once they are checked.
+    private void retainLogFile(ValidationResult result, Path logFile, boolean verified) throws ValidatorException {
+        if (!runOptions.logFileRetention().keeps(verified)) {
+            deleteOutputFile(logFile);
+            return;
+        }
+
+        try {
+            if (runOptions.compressOutput()) {
+                result.log().writeCompressedTo(getCompressedFile(logFile));
+                Files.deleteIfExists(logFile);
+            } else {
+                result.log().writeTo(logFile);
+                Files.deleteIfExists(getCompressedFile(logFile));
+            }
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    // ilivalidator only reads files, so the merged file is always written and only removed after the fail case was checked.
+    private void retainMergedFile(Path mergedFile, boolean verified) {
+        if (!runOptions.mergedFileRetention().keeps(verified)) {
+            deleteOutputFile(mergedFile);
+        } else if (!runOptions.compressOutput()) {
+            deleteFile(getCompressedFile(mergedFile));
+        } else if (Files.exists(getCompressedFile(mergedFile))) {
+            deleteFile(mergedFile);
+        }
+    }
+
+    private static void deleteOutputFile(Path file) {
+        deleteFile(file);
+        deleteFile(getCompressedFile(file));
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete output file {}.", file, e);
+        }
+    }
+
+    private static Path getCompressedFile(Path file) {
+        return file.resolveSibling(file.getFileName() + COMPRESSED_FILE_EXTENSION);
+    }
+
+    private String getCacheKey(Path patchFile) {
+        if (resultCache == null) {
+            return null;
+        }
+
+        try {
+            return resultCache.getKey(patchFile, getPatchFileHash(patchFile));
+        } catch (IOException e) {
+            LOGGER.warn("Could not compute the cache key for {}.", patchFile, e);
+            return null;
+        }
+    }
+
+    // A patch file with the size and modification time recorded in the manifest of the previous run is not read again.
+    private String getPatchFileHash(Path patchFile) throws IOException {
+        var attributes = Files.readAttributes(patchFile, BasicFileAttributes.class);
+        var entry = new TestbedManifest.Entry(TestbedManifest.Kind.PATCH, patchFile, attributes.size(), attributes.lastModifiedTime().toMillis());
+        var manifest = previousManifest;
+        var hash = manifest != null ? manifest.contentHash(entry) : Optional.<String>empty();
+        if (hash.isPresent()) {
+            return hash.get();
+        }
+
+        var computedHash = ResultCache.hashFile(patchFile);
+        patchFileHashes.put(entry, computedHash);
+        return computedHash;
+    }
+
+    private Optional<ValidationResult> loadCachedResult(String cacheKey) {
+        if (cacheKey == null || runOptions.cacheMode() != CacheMode.ENABLED) {
+            return Optional.empty();
+        }
+
+        try {
+            return resultCache.load(cacheKey);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read cached result {}.", cacheKey, e);
+            return Optional.empty();
+        }
+    }
+
+    private void storeResult(String cacheKey, ValidationResult result) {
+        if (cacheKey == null) {
+            return;
+        }
+
+        try {
+            resultCache.store(cacheKey, result);
+        } catch (IOException e) {
+            LOGGER.warn("Could not store result {} in the cache.", cacheKey, e);
+        }
+    }
+
+    private static List<String> readExpectedConstraints(Path patchFile, String constraintName) throws ValidatorException {
+        try {
+            return ExpectedConstraints.read(patchFile, constraintName);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    private boolean verifyValidationResult(ValidationResult result, String mergedFile, Path logFile, List<String> constraintNames) throws ValidatorException {
+        if (result.valid()) {
             LOGGER.error("Validation of {} was expected to fail but completed successfully.", mergedFile);
             return false;
         }
 
-        if (!validator.containsConstraintError(logFile, constraintName)) {
-            LOGGER.error("Could not verify constraint {} for merged file {}. Check the log file at {} for details.", constraintName, mergedFile, logFile);
+        var missingConstraints = findMissingConstraintErrors(result, logFile, constraintNames);
+        if (!missingConstraints.isEmpty()) {
+            var constraintName = String.join(", ", missingConstraints);
+            if (runOptions.logFileRetention() == OutputRetention.NEVER) {
+                LOGGER.error("Could not verify constraint {} for merged file {}.", constraintName, mergedFile);
+            } else {
+                var keptLogFile = runOptions.compressOutput() ? getCompressedFile(logFile) : logFile;
+                LOGGER.error("Could not verify constraint {} for merged file {}. Check the log file at {} for details.", constraintName, mergedFile, keptLogFile);
+            }
             return false;
         }
 
         LOGGER.info("Validation of {} failed as expected.", mergedFile);
         return true;
     }
+
+    // Most fail cases expect a single constraint, which is checked with the cached scanner of the validator.
+    private List<String> findMissingConstraintErrors(ValidationResult result, Path logFile, List<String> constraintNames) throws ValidatorException {
+        var readsLogFile = runOptions.logFileRetention() == OutputRetention.ALWAYS;
+        if (constraintNames.size() == 1) {
+            var constraintName = constraintNames.getFirst();
+            var containsConstraintError = readsLogFile
+                    ? validator.containsConstraintError(logFile, constraintName)
+                    : validator.containsConstraintError(result.log(), constraintName);
+            return containsConstraintError ? List.of() : constraintNames;
+        }
+
+        var matches = readsLogFile
+                ? validator.findConstraintErrors(logFile, constraintNames)
+                : validator.findConstraintErrors(result.log(), constraintNames);
+        return constraintNames.stream().filter(constraintName -> !matches.contains(constraintName)).toList();
+    }
+
+    /**
+     * Hands out the indexes of the patch files as they are found by the discovery, adding each patch file to the list of patch files.
+     */
+    private static final class DiscoveredCases implements Iterator<Integer> {
+        private final BlockingQueue<Optional<Path>> discoveredPatchFiles;
+        private final List<Path> patchFiles;
+        private Path next;
+        private boolean completed;
+        private boolean interrupted;
+
+        DiscoveredCases(BlockingQueue<Optional<Path>> discoveredPatchFiles, List<Path> patchFiles) {
+            this.discoveredPatchFiles = discoveredPatchFiles;
+            this.patchFiles = patchFiles;
+        }
+
+        /**
+         * Checks whether the discovery was not completed because the thread was interrupted while it waited for the next patch file.
+         */
+        boolean isInterrupted() {
+            return interrupted;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !completed) {
+                try {
+                    next = discoveredPatchFiles.take().orElse(null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                }
+                completed = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            patchFiles.add(next);
+            next = null;
+            return patchFiles.size() - 1;
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * A part of the fail cases of a testbed, to split a testbed across several machines.
+ *
+ * @param index the zero-based index of the shard.
+ * @param count the total number of shards.
+ */
+public record Shard(int index, int count) {
+    /**
+     * Creates a new instance of the Shard class.
+     *
+     * @param index the zero-based index of the shard.
+     * @param count the total number of shards.
+     */
+    public Shard {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1.");
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("The shard index must be between 0 and " + (count - 1) + ".");
+        }
+    }
+
+    /**
+     * Parses a shard in the format {@code index/count}, for example {@code 0/4} for the first of four shards.
+     *
+     * @param value the value to parse.
+     * @return the parsed shard.
+     * @throws IllegalArgumentException if the value is not a valid shard.
+     */
+    public static Shard parse(String value) {
+        var parts = value.split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("The shard must be specified as index/count.");
+        }
+
+        try {
+            return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The shard must be specified as index/count.", e);
+        }
+    }
+
+    /**
+     * Selects the patch files that belong to this shard.
+     * <p>
+     * The files are distributed so that all shards have about the same total weight: starting with the heaviest file,
+     * each file is assigned to the shard with the lowest total weight so far. Files with the same weight are ordered
+     * by path, so every machine computes the same shards for the same testbed.
+     *
+     * @param patchFiles the patch files of the testbed.
+     * @param weight     the estimated cost of a patch file.
+     * @return the patch files of this shard, in the order of the given patch files.
+     */
+    public List<Path> select(List<Path> patchFiles, ToLongFunction<Path> weight) {
+        if (count == 1) {
+            return patchFiles;
+        }
+
+        var weightedFiles = patchFiles.stream()
+                .map(file -> new WeightedFile(file, weight.applyAsLong(file)))
+                .sorted(Comparator.comparingLong(WeightedFile::weight).reversed().thenComparing(weightedFile -> weightedFile.file().toString()))
+                .toList();
+
+        var shardWeights = new long[count];
+        var selectedFiles = new HashSet<Path>();
+        for (var weightedFile : weightedFiles) {
+            var lightestShard = 0;
+            for (var i = 1; i < count; i++) {
+                if (shardWeights[i] < shardWeights[lightestShard]) {
+                    lightestShard = i;
+                }
+            }
+
+            // Every file adds at least 1, so empty files are distributed as well.
+            shardWeights[lightestShard] += Math.max(weightedFile.weight(), 1);
+            if (lightestShard == index) {
+                selectedFiles.add(weightedFile.file());
+            }
+        }
+
+        var result = new ArrayList<Path>(selectedFiles.size());
+        for (var patchFile : patchFiles) {
+            if (selectedFiles.contains(patchFile)) {
+                result.add(patchFile);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    private record WeightedFile(Path file, long weight) {
+    }
+}
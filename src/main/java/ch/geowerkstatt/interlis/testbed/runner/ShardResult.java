@@ -0,0 +1,294 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * The result of running one shard of a testbed, written to the output directory so the results of all shards
+ * can be combined with {@link #merge(Collection)}.
+ * <p>
+ * The file is a tab-separated text file with one line for the shard, one line for the base data and one line per fail case.
+ * A combined result has a line with the number of shards instead of the line for the shard.
+ */
+public final class ShardResult {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String SEPARATOR = "\t";
+    private static final String SHARD_KEY = "shard";
+    private static final String SHARD_COUNT_KEY = "shards";
+    private static final String BASE_DATA_KEY = "baseData";
+    private static final String CASE_KEY = "case";
+    private static final String PASSED_KEY = "passed";
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("shard-\\d+-of-\\d+\\.tsv");
+
+    private final Shard shard;
+    private final int shardCount;
+    private BaseDataStatus baseData = BaseDataStatus.NOT_RUN;
+    private boolean passed;
+    private final Map<String, CaseStatus> cases = new TreeMap<>();
+
+    /**
+     * Creates an empty result for the shard.
+     *
+     * @param shard the shard that was run.
+     */
+    public ShardResult(Shard shard) {
+        this(shard, shard.count());
+    }
+
+    private ShardResult(Shard shard, int shardCount) {
+        this.shard = shard;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * The result of the base data validation.
+     */
+    public enum BaseDataStatus {
+        /**
+         * The base data was valid.
+         */
+        VALID,
+
+        /**
+         * The base data was invalid or could not be validated.
+         */
+        INVALID,
+
+        /**
+         * The base data validation was skipped.
+         */
+        SKIPPED,
+
+        /**
+         * The run stopped before the base data was validated.
+         */
+        NOT_RUN
+    }
+
+    /**
+     * The result of a fail case.
+     */
+    public enum CaseStatus {
+        /**
+         * The merged file was invalid and the log contained an error for the constraint.
+         */
+        VERIFIED,
+
+        /**
+         * The fail case could not be verified.
+         */
+        FAILED,
+
+        /**
+         * The fail case was cancelled in fail-fast mode.
+         */
+        CANCELLED
+    }
+
+    /**
+     * Gets the file name of the result of the shard.
+     *
+     * @param shard the shard.
+     * @return the file name.
+     */
+    public static String fileName(Shard shard) {
+        return "shard-" + shard.index() + "-of-" + shard.count() + ".tsv";
+    }
+
+    /**
+     * Sets the result of the base data validation.
+     *
+     * @param status the result.
+     */
+    public void setBaseData(BaseDataStatus status) {
+        baseData = status;
+    }
+
+    /**
+     * Sets the result of a fail case.
+     *
+     * @param patchFile the path of the patch file, relative to the testbed.
+     * @param status    the result.
+     */
+    public void setCase(Path patchFile, CaseStatus status) {
+        cases.put(patchFile.toString().replace('\\', '/'), status);
+    }
+
+    /**
+     * Sets whether the run of the shard passed. A shard that stopped because of an error has not passed,
+     * even if all fail cases that ran were verified.
+     *
+     * @param passed {@code true} if the run passed.
+     */
+    public void setPassed(boolean passed) {
+        this.passed = passed;
+    }
+
+    /**
+     * Gets the result of the base data validation.
+     *
+     * @return the result.
+     */
+    public BaseDataStatus baseData() {
+        return baseData;
+    }
+
+    /**
+     * Gets the results of the fail cases, by the path of the patch file relative to the testbed.
+     *
+     * @return the results, sorted by path.
+     */
+    public Map<String, CaseStatus> cases() {
+        return cases;
+    }
+
+    /**
+     * Checks whether the run passed, the base data was valid or skipped and all fail cases were verified.
+     *
+     * @return {@code true} if the shard passed.
+     */
+    public boolean success() {
+        return passed
+                && (baseData == BaseDataStatus.VALID || baseData == BaseDataStatus.SKIPPED)
+                && cases.values().stream().allMatch(status -> status == CaseStatus.VERIFIED);
+    }
+
+    /**
+     * Writes the result to the file.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(Path file) throws IOException {
+        var lines = new ArrayList<String>();
+        lines.add(shard != null ? SHARD_KEY + SEPARATOR + shard : SHARD_COUNT_KEY + SEPARATOR + shardCount);
+        lines.add(PASSED_KEY + SEPARATOR + passed);
+        lines.add(BASE_DATA_KEY + SEPARATOR + baseData);
+        for (var entry : cases.entrySet()) {
+            lines.add(CASE_KEY + SEPARATOR + entry.getValue() + SEPARATOR + entry.getKey());
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the result of a shard or a combined result from the file.
+     *
+     * @param file the file written by {@link #write(Path)}.
+     * @return the result.
+     * @throws IOException if the file could not be read or has an invalid format.
+     */
+    public static ShardResult read(Path file) throws IOException {
+        ShardResult result = null;
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            var parts = line.split(SEPARATOR, 3);
+            try {
+                if (parts.length == 2 && SHARD_KEY.equals(parts[0]) && result == null) {
+                    result = new ShardResult(Shard.parse(parts[1]));
+                } else if (parts.length == 2 && SHARD_COUNT_KEY.equals(parts[0]) && result == null) {
+                    result = new ShardResult(null, Integer.parseInt(parts[1]));
+                } else if (parts.length == 2 && PASSED_KEY.equals(parts[0]) && result != null) {
+                    result.passed = Boolean.parseBoolean(parts[1]);
+                } else if (parts.length == 2 && BASE_DATA_KEY.equals(parts[0]) && result != null) {
+                    result.baseData = BaseDataStatus.valueOf(parts[1]);
+                } else if (parts.length == 3 && CASE_KEY.equals(parts[0]) && result != null) {
+                    result.cases.put(parts[2], CaseStatus.valueOf(parts[1]));
+                } else if (!line.isBlank()) {
+                    throw new IOException("Invalid line in shard result " + file + ": " + line);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid line in shard result " + file + ": " + line, e);
+            }
+        }
+
+        if (result == null) {
+            throw new IOException("The file " + file + " is not a shard result.");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the shard results in the given files and directories. Directories are searched recursively.
+     *
+     * @param paths the shard result files or directories containing them.
+     * @return the shard result files.
+     * @throws IOException if a directory could not be read.
+     */
+    public static List<Path> findFiles(Collection<Path> paths) throws IOException {
+        var files = new ArrayList<Path>();
+        for (var path : paths) {
+            if (Files.isDirectory(path)) {
+                try (var found = Files.find(path, Integer.MAX_VALUE, (file, attributes) -> attributes.isRegularFile() && FILE_NAME_PATTERN.matcher(file.getFileName().toString()).matches())) {
+                    files.addAll(found.sorted().toList());
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Combines the results of all shards of a testbed into one result.
+     * <p>
+     * The combined result is only successful if the results of all shards are present and passed, at least one shard
+     * validated the base data successfully and no shard found invalid base data or a fail case that could not be verified.
+     *
+     * @param results the results of the shards.
+     * @return the combined result.
+     */
+    public static ShardResult merge(Collection<ShardResult> results) {
+        var shardCount = results.stream().mapToInt(result -> result.shardCount).max().orElse(0);
+        var merged = new ShardResult(null, shardCount);
+        var complete = !results.isEmpty();
+        var shardIndexes = new TreeMap<Integer, ShardResult>();
+        for (var result : results) {
+            if (result.shard == null) {
+                LOGGER.error("A combined result of {} shards cannot be combined again.", result.shardCount);
+                complete = false;
+            } else if (result.shardCount != shardCount) {
+                LOGGER.error("Shard {} belongs to a run with {} shards, expected {}.", result.shard, result.shardCount, shardCount);
+                complete = false;
+            } else if (shardIndexes.put(result.shard.index(), result) != null) {
+                LOGGER.error("The result of shard {} was found more than once.", result.shard);
+                complete = false;
+            }
+        }
+        for (var i = 0; i < shardCount; i++) {
+            if (!shardIndexes.containsKey(i)) {
+                LOGGER.error("The result of shard {}/{} is missing.", i, shardCount);
+                complete = false;
+            }
+        }
+
+        var baseDataStatuses = results.stream().map(result -> result.baseData).toList();
+        if (baseDataStatuses.contains(BaseDataStatus.INVALID) || baseDataStatuses.contains(BaseDataStatus.NOT_RUN)) {
+            merged.baseData = BaseDataStatus.INVALID;
+        } else if (baseDataStatuses.contains(BaseDataStatus.VALID)) {
+            merged.baseData = BaseDataStatus.VALID;
+        } else {
+            LOGGER.error("The base data was not validated by any shard.");
+            merged.baseData = BaseDataStatus.INVALID;
+        }
+        merged.passed = complete && results.stream().allMatch(result -> result.passed);
+
+        for (var result : results) {
+            for (var entry : result.cases.entrySet()) {
+                merged.cases.merge(entry.getKey(), entry.getValue(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+        return merged;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.stream.Stream;
 
 public record TestOptions(Path basePath, Path ilivalidatorPath, Optional<Path> ilivalidatorConfigPath) {
     private static final String DATA_FILE_EXTENSION = ".xtf";
+    private static final String MODEL_FILE_EXTENSION = ".ili";
     private static final String OUTPUT_DIR_NAME = "output";
 
     /**
@@ -48,6 +49,17 @@ public record TestOptions(Path basePath, Path ilivalidatorPath, Optional<Path> i
         }
     }
 
+    /**
+     * Gets the paths to the model files in the base path of the testbed.
+     *
+     * @return the paths to the model files, sorted by name.
+     */
+    public List<Path> modelFiles() throws IOException {
+        try (var files = Files.find(basePath, 1, (path, attributes) -> attributes.isRegularFile() && hasExtension(path, MODEL_FILE_EXTENSION))) {
+            return files.sorted().toList();
+        }
+    }
+
     /**
      * Resolves the path to the output file based on the relative path of the input file.
      *
@@ -74,6 +86,10 @@ public record TestOptions(Path basePath, Path ilivalidatorPath, Optional<Path> i
     }
 
     private static boolean isDataFile(Path path, BasicFileAttributes attributes) {
-        return attributes.isRegularFile() && path.getFileName().toString().toLowerCase().endsWith(DATA_FILE_EXTENSION);
+        return attributes.isRegularFile() && hasExtension(path, DATA_FILE_EXTENSION);
+    }
+
+    private static boolean hasExtension(Path path, String extension) {
+        return path.getFileName().toString().toLowerCase().endsWith(extension);
     }
 }
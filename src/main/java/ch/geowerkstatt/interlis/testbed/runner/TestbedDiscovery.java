@@ -0,0 +1,110 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Finds the files of a testbed with a single walk of the testbed directory.
+ * <p>
+ * The top level of the testbed is listed when the discovery is started, so the base data file is known before the
+ * constraint directories are listed. The constraint directories can then be listed in the background, for example
+ * while the base data is validated, and every patch file is handed on as soon as it is found.
+ * The files are found in the same order and with the same rules as {@link TestOptions#baseDataFilePath()} and
+ * {@link TestOptions#patchDataFiles()}.
+ */
+final class TestbedDiscovery {
+    private static final String DATA_FILE_EXTENSION = ".xtf";
+    private static final String MODEL_FILE_EXTENSION = ".ili";
+
+    private final TestOptions options;
+    private final List<TestbedManifest.Entry> topLevelEntries;
+    private final Optional<Path> baseDataFile;
+
+    private TestbedDiscovery(TestOptions options, List<TestbedManifest.Entry> topLevelEntries) {
+        this.options = options;
+        this.topLevelEntries = topLevelEntries;
+        this.baseDataFile = topLevelEntries.stream()
+                .filter(entry -> entry.kind() == TestbedManifest.Kind.BASE_DATA)
+                .map(TestbedManifest.Entry::path)
+                .findFirst();
+    }
+
+    /**
+     * Starts the discovery by listing the top level of the testbed.
+     *
+     * @param options the test options.
+     * @return the started discovery.
+     * @throws IOException if the testbed directory could not be listed.
+     */
+    static TestbedDiscovery start(TestOptions options) throws IOException {
+        var entries = new ArrayList<TestbedManifest.Entry>();
+        var hasBaseDataFile = false;
+        try (var paths = Files.newDirectoryStream(options.basePath())) {
+            for (var path : paths) {
+                var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    if (!path.equals(options.outputPath())) {
+                        entries.add(new TestbedManifest.Entry(TestbedManifest.Kind.CONSTRAINT_DIRECTORY, path, 0, 0));
+                    }
+                } else if (attributes.isRegularFile() && hasExtension(path, DATA_FILE_EXTENSION) && !hasBaseDataFile) {
+                    entries.add(createFileEntry(TestbedManifest.Kind.BASE_DATA, path, attributes));
+                    hasBaseDataFile = true;
+                } else if (attributes.isRegularFile() && hasExtension(path, MODEL_FILE_EXTENSION)) {
+                    entries.add(createFileEntry(TestbedManifest.Kind.MODEL, path, attributes));
+                }
+            }
+        }
+        return new TestbedDiscovery(options, entries);
+    }
+
+    /**
+     * Gets the data file that is used as the base for all validations.
+     *
+     * @return the path to the base data file, or an empty optional if the testbed does not contain a data file.
+     */
+    Optional<Path> baseDataFile() {
+        return baseDataFile;
+    }
+
+    /**
+     * Lists the constraint directories and hands every patch file to the listener as soon as it is found.
+     *
+     * @param listener called with the path of every patch file, in the order of {@link TestOptions#patchDataFiles()}.
+     * @return the manifest of the testbed.
+     * @throws IOException if a constraint directory could not be listed.
+     */
+    TestbedManifest findPatchFiles(Consumer<Path> listener) throws IOException {
+        var entries = new ArrayList<>(topLevelEntries);
+        for (var topLevelEntry : topLevelEntries) {
+            if (topLevelEntry.kind() != TestbedManifest.Kind.CONSTRAINT_DIRECTORY) {
+                continue;
+            }
+
+            try (var paths = Files.newDirectoryStream(topLevelEntry.path())) {
+                for (var path : paths) {
+                    var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isRegularFile() && hasExtension(path, DATA_FILE_EXTENSION)) {
+                        entries.add(createFileEntry(TestbedManifest.Kind.PATCH, path, attributes));
+                        listener.accept(path);
+                    }
+                }
+            }
+        }
+        return new TestbedManifest(options.basePath(), entries);
+    }
+
+    private static TestbedManifest.Entry createFileEntry(TestbedManifest.Kind kind, Path path, BasicFileAttributes attributes) {
+        return new TestbedManifest.Entry(kind, path, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    private static boolean hasExtension(Path path, String extension) {
+        return path.getFileName().toString().toLowerCase().endsWith(extension);
+    }
+}
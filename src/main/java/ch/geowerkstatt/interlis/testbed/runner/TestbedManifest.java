@@ -0,0 +1,213 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The files of a testbed with their sizes and modification times, as found by {@link TestbedDiscovery}.
+ * <p>
+ * The manifest is kept in the output directory as a tab-separated text file, so the next run can tell which files
+ * changed without reading them. Each line contains the kind of the entry, its size, its modification time in
+ * milliseconds, the SHA-256 hash of its content if it was computed, and its path relative to the testbed.
+ * The hashes let later runs reuse the hash of a file whose size and modification time did not change.
+ */
+final class TestbedManifest {
+    /**
+     * The file name of the manifest in the output directory of the testbed.
+     */
+    static final String FILE_NAME = "testbed-manifest.tsv";
+
+    private static final String SEPARATOR = "\t";
+    private static final int COLUMN_COUNT = 5;
+
+    private final Path basePath;
+    private final List<Entry> entries;
+    private final Map<Entry, String> contentHashes;
+
+    /**
+     * The kind of a file in the testbed.
+     */
+    enum Kind {
+        BASE_DATA,
+        MODEL,
+        CONSTRAINT_DIRECTORY,
+        PATCH
+    }
+
+    /**
+     * A file or directory of the testbed.
+     *
+     * @param kind         the kind of the entry.
+     * @param path         the absolute path of the entry.
+     * @param size         the size of the file in bytes, or 0 for directories.
+     * @param lastModified the modification time in milliseconds, or 0 for directories.
+     */
+    record Entry(Kind kind, Path path, long size, long lastModified) {
+    }
+
+    /**
+     * Creates a new instance of the TestbedManifest class.
+     *
+     * @param basePath the base path of the testbed.
+     * @param entries  the entries in the order they were found.
+     */
+    TestbedManifest(Path basePath, List<Entry> entries) {
+        this(basePath, entries, Map.of());
+    }
+
+    private TestbedManifest(Path basePath, List<Entry> entries, Map<Entry, String> contentHashes) {
+        this.basePath = basePath;
+        this.entries = List.copyOf(entries);
+        this.contentHashes = Map.copyOf(contentHashes);
+    }
+
+    /**
+     * Reads the manifest of a previous run. Lines that cannot be parsed are ignored.
+     *
+     * @param file     the manifest file.
+     * @param basePath the base path of the testbed.
+     * @return the manifest, or an empty optional if the file does not exist.
+     * @throws IOException if the file could not be read.
+     */
+    static Optional<TestbedManifest> read(Path file, Path basePath) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        var entries = new ArrayList<Entry>();
+        var contentHashes = new HashMap<Entry, String>();
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            var columns = line.split(SEPARATOR, COLUMN_COUNT);
+            if (columns.length != COLUMN_COUNT) {
+                continue;
+            }
+            try {
+                var kind = Kind.valueOf(columns[0]);
+                var entry = new Entry(kind, basePath.resolve(columns[4]).normalize(), Long.parseLong(columns[1]), Long.parseLong(columns[2]));
+                entries.add(entry);
+                if (!columns[3].isEmpty()) {
+                    contentHashes.put(entry, columns[3]);
+                }
+            } catch (IllegalArgumentException e) {
+                // Ignore lines from a damaged manifest, the files are treated as changed.
+                continue;
+            }
+        }
+        return Optional.of(new TestbedManifest(basePath, entries, contentHashes));
+    }
+
+    /**
+     * Writes the manifest to the file.
+     *
+     * @param file the manifest file.
+     * @throws IOException if the file could not be written.
+     */
+    void write(Path file) throws IOException {
+        var lines = new ArrayList<String>(entries.size());
+        for (var entry : entries) {
+            var relativePath = basePath.relativize(entry.path()).toString().replace('\\', '/');
+            var contentHash = contentHashes.getOrDefault(entry, "");
+            lines.add(entry.kind() + SEPARATOR + entry.size() + SEPARATOR + entry.lastModified() + SEPARATOR + contentHash + SEPARATOR + relativePath);
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        var temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), FILE_NAME, ".tmp");
+        try {
+            Files.write(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Gets all entries in the order they were found.
+     *
+     * @return the entries.
+     */
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Gets the hash of a file recorded in the manifest.
+     *
+     * @param entry the file with its current size and modification time.
+     * @return the hash of the file, or an empty optional if no hash is recorded or the file changed.
+     */
+    Optional<String> contentHash(Entry entry) {
+        return Optional.ofNullable(contentHashes.get(entry));
+    }
+
+    /**
+     * Gets the hashes of the files recorded in the manifest.
+     *
+     * @return the hashes by the entries of the files at the time they were hashed.
+     */
+    Map<Entry, String> contentHashes() {
+        return contentHashes;
+    }
+
+    /**
+     * Creates a copy of the manifest with the hashes of its files.
+     * Hashes of files whose size or modification time differ from the entries of this manifest are ignored.
+     *
+     * @param hashes the hashes by the entries of the files at the time they were hashed.
+     * @return the manifest with the hashes.
+     */
+    TestbedManifest withContentHashes(Map<Entry, String> hashes) {
+        var matchingHashes = new HashMap<Entry, String>();
+        for (var entry : entries) {
+            var hash = hashes.get(entry);
+            if (hash != null) {
+                matchingHashes.put(entry, hash);
+            }
+        }
+        return new TestbedManifest(basePath, entries, matchingHashes);
+    }
+
+    /**
+     * Gets the patch files in the order they were found.
+     *
+     * @return the paths to the patch files.
+     */
+    List<Path> patchFiles() {
+        return entries.stream().filter(entry -> entry.kind() == Kind.PATCH).map(Entry::path).toList();
+    }
+
+    /**
+     * Gets the paths that have been created, modified or deleted since the previous manifest was written.
+     * The result can be passed to {@link TestbedWatcher#getChanges(TestOptions, java.util.Collection)}.
+     *
+     * @param previous the manifest of the previous run.
+     * @return the changed paths.
+     */
+    Set<Path> changedPaths(TestbedManifest previous) {
+        var currentEntries = byPath(entries);
+        var previousEntries = byPath(previous.entries);
+
+        var changedPaths = new HashSet<Path>();
+        Stream.concat(currentEntries.keySet().stream(), previousEntries.keySet().stream())
+                .filter(path -> !Objects.equals(currentEntries.get(path), previousEntries.get(path)))
+                .forEach(changedPaths::add);
+        return changedPaths;
+    }
+
+    private static Map<Path, Entry> byPath(List<Entry> entries) {
+        return entries.stream().collect(Collectors.toMap(Entry::path, Function.identity(), (first, second) -> first));
+    }
+}
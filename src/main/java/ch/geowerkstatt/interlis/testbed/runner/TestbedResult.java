@@ -0,0 +1,14 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The result of running a single testbed as part of a batch.
+ *
+ * @param basePath the base path of the testbed.
+ * @param success  whether the base data was valid and all fail cases were verified.
+ * @param duration the time it took to run the testbed.
+ */
+public record TestbedResult(Path basePath, boolean success, Duration duration) {
+}
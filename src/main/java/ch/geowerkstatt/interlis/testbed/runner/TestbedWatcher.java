@@ -0,0 +1,204 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the directory of a testbed and runs the affected test cases again whenever a file changes.
+ * <ul>
+ *     <li>A changed patch file or file listing further expected constraints runs its fail case again.</li>
+ *     <li>A changed constraint directory runs all fail cases in this directory again.</li>
+ *     <li>A changed base data file, model file or ilivalidator config file runs the whole testbed again.</li>
+ * </ul>
+ * Other files directly in the testbed directory are ignored. If the ilivalidator config file is outside of the testbed,
+ * its directory is watched as well, but only changes of the config file itself are considered.
+ */
+public final class TestbedWatcher {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long SETTLE_TIME_MILLIS = 200;
+    private static final String DATA_FILE_EXTENSION = ".xtf";
+    private static final String MODEL_FILE_EXTENSION = ".ili";
+
+    private final TestOptions options;
+    private final Runner runner;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * Creates a new instance of the TestbedWatcher class.
+     *
+     * @param options the test options.
+     * @param runner  the runner used to run the test cases.
+     */
+    public TestbedWatcher(TestOptions options, Runner runner) {
+        this.options = options;
+        this.runner = runner;
+    }
+
+    /**
+     * Runs the whole testbed once and then runs the affected test cases again on every change,
+     * until the current thread is interrupted.
+     *
+     * @throws IOException if the testbed directory could not be watched.
+     */
+    public void watch() throws IOException {
+        try (var watchService = options.basePath().getFileSystem().newWatchService()) {
+            registerDirectory(watchService, options.basePath());
+            var configDirectory = getConfigDirectory();
+            if (configDirectory.isPresent()) {
+                registerDirectory(watchService, configDirectory.get());
+            }
+            try (var directories = Files.list(options.basePath())) {
+                for (var directory : directories.filter(this::isConstraintDirectory).toList()) {
+                    registerDirectory(watchService, directory);
+                }
+            }
+
+            runner.run();
+            while (!Thread.currentThread().isInterrupted()) {
+                LOGGER.info("Watching {} for changes.", options.basePath());
+                var changes = getChanges(options, takeChangedPaths(watchService));
+                if (changes.allCases()) {
+                    runner.run();
+                } else if (!changes.isEmpty()) {
+                    runner.runFailCases(options.patchDataFiles().stream().filter(changes::affects).toList());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Set<Path> takeChangedPaths(WatchService watchService) throws IOException, InterruptedException {
+        var changedPaths = new HashSet<Path>();
+        var key = watchService.take();
+        while (key != null) {
+            collectChangedPaths(watchService, key, changedPaths);
+            // Editors often write a file in several steps, wait until the changes have settled.
+            key = watchService.poll(SETTLE_TIME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return changedPaths;
+    }
+
+    private void collectChangedPaths(WatchService watchService, WatchKey key, Set<Path> changedPaths) throws IOException {
+        var directory = watchedDirectories.get(key);
+        for (var event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changedPaths.add(options.basePath());
+                continue;
+            }
+
+            var path = directory.resolve((Path) event.context());
+            if (!isTestbedDirectory(directory) && !isConfigFile(path)) {
+                continue;
+            }
+            changedPaths.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && directory.equals(options.basePath()) && isConstraintDirectory(path)) {
+                registerDirectory(watchService, path);
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void registerDirectory(WatchService watchService, Path directory) throws IOException {
+        var key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirectories.put(key, directory);
+    }
+
+    private boolean isConstraintDirectory(Path path) {
+        return Files.isDirectory(path) && !path.equals(options.outputPath());
+    }
+
+    private boolean isTestbedDirectory(Path directory) {
+        return directory.equals(options.basePath()) || options.basePath().equals(directory.getParent());
+    }
+
+    private boolean isConfigFile(Path path) {
+        return options.ilivalidatorConfigPath().filter(path::equals).isPresent();
+    }
+
+    // The directory of a config file outside of the testbed, which is not watched yet.
+    private Optional<Path> getConfigDirectory() {
+        return options.ilivalidatorConfigPath()
+                .map(Path::getParent)
+                .filter(directory -> !isTestbedDirectory(directory) && Files.isDirectory(directory));
+    }
+
+    /**
+     * Determines which test cases are affected by the changed paths.
+     *
+     * @param options      the test options.
+     * @param changedPaths the paths that have been created, modified or deleted.
+     * @return the affected test cases.
+     */
+    static Changes getChanges(TestOptions options, Collection<Path> changedPaths) {
+        var basePath = options.basePath();
+        var patchFiles = new HashSet<Path>();
+        var constraintDirectories = new HashSet<Path>();
+        for (var path : changedPaths) {
+            if (path.startsWith(options.outputPath())) {
+                continue;
+            }
+
+            if (path.equals(basePath) || options.ilivalidatorConfigPath().filter(path::equals).isPresent()) {
+                return new Changes(true, Set.of(), Set.of());
+            }
+
+            var parent = path.getParent();
+            if (basePath.equals(parent)) {
+                if (hasExtension(path, DATA_FILE_EXTENSION) || hasExtension(path, MODEL_FILE_EXTENSION)) {
+                    return new Changes(true, Set.of(), Set.of());
+                }
+                // Other files next to the base data are not part of a fail case.
+                if (Files.isDirectory(path)) {
+                    constraintDirectories.add(path);
+                }
+            } else if (parent != null && basePath.equals(parent.getParent())) {
+                if (hasExtension(path, DATA_FILE_EXTENSION)) {
+                    patchFiles.add(path);
+                } else if (hasExtension(path, ExpectedConstraints.FILE_EXTENSION)) {
+                    var fileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(path.getFileName().toString());
+                    patchFiles.add(path.resolveSibling(fileNameWithoutExtension + DATA_FILE_EXTENSION));
+                }
+            }
+        }
+        return new Changes(false, patchFiles, constraintDirectories);
+    }
+
+    private static boolean hasExtension(Path path, String extension) {
+        return path.getFileName().toString().toLowerCase().endsWith(extension);
+    }
+
+    /**
+     * The test cases affected by changes in the testbed directory.
+     *
+     * @param allCases              whether the whole testbed has to run again.
+     * @param patchFiles            the changed patch files.
+     * @param constraintDirectories the changed constraint directories.
+     */
+    record Changes(boolean allCases, Set<Path> patchFiles, Set<Path> constraintDirectories) {
+        boolean isEmpty() {
+            return !allCases && patchFiles.isEmpty() && constraintDirectories.isEmpty();
+        }
+
+        boolean affects(Path patchFile) {
+            return allCases || patchFiles.contains(patchFile) || constraintDirectories.contains(patchFile.getParent());
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import ch.geowerkstatt.interlis.testbed.runner.CaseExecutor;
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidationResult;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hands out the fail cases of a testbed to {@link CaseWorker} processes over TCP.
+ * <p>
+ * Every connection of a worker runs one fail case at a time. The runner threads wait in {@link #execute} until a
+ * worker sent back the result and the log of their fail case, so the number of jobs of the runner limits how many
+ * fail cases are handed out at once. If a worker disconnects while it runs a fail case, or stops sending heartbeats,
+ * the fail case is handed out again to the next free connection. A fail case is given to at most {@value #MAX_ATTEMPTS}
+ * workers before it fails. If no worker is connected for too long, the waiting fail cases fail instead of waiting forever.
+ * <p>
+ * Only workers that send the token of the coordinator are accepted. The hashes of the files sent with every fail case
+ * let a worker with another version of the testbed refuse the fail case instead of validating different data.
+ */
+public final class CaseCoordinator implements CaseExecutor, AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_READ_TIMEOUT = RemoteProtocol.HEARTBEAT_INTERVAL.multipliedBy(6);
+    private static final Duration DEFAULT_WORKER_TIMEOUT = Duration.ofMinutes(10);
+    private static final long WAIT_INTERVAL_MILLIS = 1000;
+
+    private final Path basePath;
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final Duration readTimeout;
+    private final Duration workerTimeout;
+    private final LinkedBlockingDeque<RemoteCase> pendingCases = new LinkedBlockingDeque<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> connectionThreads = ConcurrentHashMap.newKeySet();
+    private final FileHashes fileHashes = new FileHashes();
+    private volatile boolean closed;
+    private volatile long lastWorkerNanos = System.nanoTime();
+
+    private CaseCoordinator(Path basePath, ServerSocket serverSocket, String token, Duration readTimeout, Duration workerTimeout) {
+        this.basePath = basePath;
+        this.serverSocket = serverSocket;
+        this.token = token;
+        this.readTimeout = readTimeout;
+        this.workerTimeout = workerTimeout;
+    }
+
+    /**
+     * Starts to accept worker connections on the given address.
+     *
+     * @param options the test options of the testbed.
+     * @param address the local address and TCP port, port {@code 0} uses any free port.
+     * @param token   the token the workers have to send to be accepted.
+     * @return the started coordinator.
+     * @throws IOException if the port could not be opened.
+     */
+    public static CaseCoordinator start(TestOptions options, InetSocketAddress address, String token) throws IOException {
+        return start(options, address, token, DEFAULT_READ_TIMEOUT, DEFAULT_WORKER_TIMEOUT);
+    }
+
+    /**
+     * Starts to accept worker connections on the given address.
+     *
+     * @param options       the test options of the testbed.
+     * @param address       the local address and TCP port, port {@code 0} uses any free port.
+     * @param token         the token the workers have to send to be accepted.
+     * @param readTimeout   the time after which a worker that does not answer is considered lost.
+     * @param workerTimeout the time after which the waiting fail cases fail if no worker is connected.
+     * @return the started coordinator.
+     * @throws IOException if the port could not be opened.
+     */
+    static CaseCoordinator start(TestOptions options, InetSocketAddress address, String token, Duration readTimeout, Duration workerTimeout) throws IOException {
+        var serverSocket = new ServerSocket();
+        try {
+            serverSocket.bind(address);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        var coordinator = new CaseCoordinator(options.basePath(), serverSocket, token, readTimeout, workerTimeout);
+        Thread.ofPlatform().daemon().name("case-coordinator").start(coordinator::acceptConnections);
+        LOGGER.info("Waiting for workers on {}:{}.", address.getAddress().getHostAddress(), coordinator.port());
+        return coordinator;
+    }
+
+    /**
+     * Gets the TCP port the coordinator accepts worker connections on.
+     *
+     * @return the port.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The fail case is run by the next free worker connection. Logs that are too large to be kept in memory are
+     * written to the log file. The fail case fails if no worker is connected for longer than the worker timeout.
+     */
+    @Override
+    public Optional<ValidationResult> execute(Path baseFile, Path patchFile, Path mergedFile, Path logFile) throws ValidatorException {
+        RemoteCase remoteCase;
+        try {
+            remoteCase = new RemoteCase(
+                    RemoteProtocol.toRelativePath(basePath, baseFile),
+                    fileHashes.get(baseFile),
+                    RemoteProtocol.toRelativePath(basePath, patchFile),
+                    fileHashes.get(patchFile),
+                    logFile);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+        pendingCases.add(remoteCase);
+        try (var measurement = PhaseTimer.start(Phase.VALIDATION)) {
+            return awaitResult(remoteCase);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ValidatorException validatorException) {
+                throw validatorException;
+            }
+            throw new ValidatorException(e.getCause());
+        } catch (InterruptedException e) {
+            remoteCase.result.cancel(true);
+            pendingCases.remove(remoteCase);
+            Thread.currentThread().interrupt();
+            throw new ValidatorException(e);
+        }
+    }
+
+    private Optional<ValidationResult> awaitResult(RemoteCase remoteCase) throws InterruptedException, ExecutionException {
+        var waitMillis = Math.min(WAIT_INTERVAL_MILLIS, workerTimeout.toMillis());
+        while (true) {
+            try {
+                return remoteCase.result.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (connections.isEmpty() && System.nanoTime() - lastWorkerNanos > workerTimeout.toNanos()) {
+                    pendingCases.remove(remoteCase);
+                    remoteCase.result.completeExceptionally(new ValidatorException("No worker connected to port " + port() + " within " + workerTimeout.toSeconds() + " seconds."));
+                }
+            }
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = serverSocket.accept();
+                connections.add(socket);
+                Thread.ofVirtual().name("case-coordinator-connection").start(() -> handleConnection(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.warn("Could not accept a worker connection.", e);
+                }
+            }
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        connectionThreads.add(Thread.currentThread());
+        var worker = socket.getRemoteSocketAddress();
+        RemoteCase remoteCase = null;
+        try (socket) {
+            // Workers send heartbeats while they run a fail case, so a worker that stays silent is lost or hangs.
+            socket.setSoTimeout((int) readTimeout.toMillis());
+            var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            var rejection = readHello(input);
+            if (rejection.isPresent()) {
+                LOGGER.warn("Rejected worker {}: {}", worker, rejection.get());
+                output.writeUTF(RemoteProtocol.ERROR_MESSAGE);
+                RemoteProtocol.writeMessage(output, rejection.get());
+                output.flush();
+                return;
+            }
+            lastWorkerNanos = System.nanoTime();
+            LOGGER.info("Worker {} connected.", worker);
+
+            while (!closed) {
+                remoteCase = pendingCases.take();
+                if (remoteCase.result.isDone()) {
+                    remoteCase = null;
+                    continue;
+                }
+
+                output.writeUTF(RemoteProtocol.CASE_MESSAGE);
+                output.writeUTF(remoteCase.baseFile);
+                output.writeUTF(remoteCase.baseFileHash);
+                output.writeUTF(remoteCase.patchFile);
+                output.writeUTF(remoteCase.patchFileHash);
+                output.flush();
+                completeCase(remoteCase, worker, input);
+                remoteCase = null;
+            }
+        } catch (IOException e) {
+            // A lost fail case is logged when it is handed out again.
+            if (!closed && remoteCase == null) {
+                LOGGER.warn("Lost the connection to worker {}.", worker, e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.remove(socket);
+            connectionThreads.remove(Thread.currentThread());
+            lastWorkerNanos = System.nanoTime();
+            if (remoteCase != null) {
+                handOutAgain(remoteCase, worker);
+            }
+        }
+    }
+
+    // Gets the reason why the worker is rejected, the token is compared in constant time.
+    private Optional<String> readHello(DataInputStream input) throws IOException {
+        var message = input.readUTF();
+        var version = input.readInt();
+        if (!RemoteProtocol.HELLO_MESSAGE.equals(message) || version != RemoteProtocol.VERSION) {
+            return Optional.of("Unsupported worker protocol " + message + " " + version + ", the coordinator uses version " + RemoteProtocol.VERSION + ".");
+        }
+        var workerToken = input.readUTF();
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), workerToken.getBytes(StandardCharsets.UTF_8))) {
+            return Optional.of("The worker sent an invalid token.");
+        }
+        return Optional.empty();
+    }
+
+    private static void completeCase(RemoteCase remoteCase, SocketAddress worker, DataInputStream input) throws IOException {
+        var response = input.readUTF();
+        while (RemoteProtocol.HEARTBEAT_MESSAGE.equals(response)) {
+            response = input.readUTF();
+        }
+        switch (response) {
+            case RemoteProtocol.RESULT_MESSAGE -> {
+                var valid = input.readBoolean();
+                var log = RemoteProtocol.readLog(input, remoteCase.logFile);
+                remoteCase.result.complete(Optional.of(new ValidationResult(valid, log)));
+            }
+            case RemoteProtocol.MERGE_FAILED_MESSAGE -> {
+                LOGGER.error("Worker {} could not merge {}.", worker, remoteCase.patchFile);
+                remoteCase.result.complete(Optional.empty());
+            }
+            case RemoteProtocol.ERROR_MESSAGE -> {
+                var message = input.readUTF();
+                remoteCase.result.completeExceptionally(new ValidatorException("Worker " + worker + " could not run " + remoteCase.patchFile + ": " + message));
+            }
+            default -> throw new IOException("Unexpected response from worker: " + response);
+        }
+    }
+
+    private void handOutAgain(RemoteCase remoteCase, SocketAddress worker) {
+        if (remoteCase.result.isDone()) {
+            return;
+        }
+
+        remoteCase.attempts++;
+        if (remoteCase.attempts >= MAX_ATTEMPTS) {
+            remoteCase.result.completeExceptionally(new ValidatorException("Fail case " + remoteCase.patchFile + " was lost by " + MAX_ATTEMPTS + " workers."));
+            return;
+        }
+        LOGGER.warn("Lost worker {} while it was running {}, handing it out again.", worker, remoteCase.patchFile);
+        pendingCases.addFirst(remoteCase);
+    }
+
+    /**
+     * Stops accepting workers and closes the connections, which ends the worker processes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close the coordinator port.", e);
+        }
+        for (var socket : List.copyOf(connections)) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the connection to worker {}.", socket.getRemoteSocketAddress(), e);
+            }
+        }
+        connectionThreads.forEach(Thread::interrupt);
+        pendingCases.forEach(remoteCase -> remoteCase.result.completeExceptionally(new ValidatorException("The coordinator was closed.")));
+    }
+
+    private static final class RemoteCase {
+        private final String baseFile;
+        private final String baseFileHash;
+        private final String patchFile;
+        private final String patchFileHash;
+        private final Path logFile;
+        private final CompletableFuture<Optional<ValidationResult>> result = new CompletableFuture<>();
+        private int attempts;
+
+        RemoteCase(String baseFile, String baseFileHash, String patchFile, String patchFileHash, Path logFile) {
+            this.baseFile = baseFile;
+            this.baseFileHash = baseFileHash;
+            this.patchFile = patchFile;
+            this.patchFileHash = patchFileHash;
+            this.logFile = logFile;
+        }
+    }
+}
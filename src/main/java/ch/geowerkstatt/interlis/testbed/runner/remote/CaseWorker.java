@@ -0,0 +1,261 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import ch.geowerkstatt.interlis.testbed.runner.StringUtils;
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the fail cases handed out by a {@link CaseCoordinator}.
+ * <p>
+ * The worker needs its own copy of the testbed, the coordinator only sends the paths of the files relative to the
+ * testbed and their hashes. A fail case whose files differ from the files of the coordinator is answered with an error
+ * instead of validating different data. Every job opens its own connection to the coordinator and merges and validates one fail case at a time.
+ * The merged files and log files are written to a separate directory in the output directory of the testbed, so a worker
+ * can share the testbed with the coordinator, and are deleted after the result and the log were sent back.
+ * The worker ends when the coordinator closes the connections.
+ */
+public final class CaseWorker {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int CONNECT_ATTEMPTS = 60;
+    private static final long CONNECT_RETRY_MILLIS = 1000;
+    private static final String WORK_DIRECTORY_PREFIX = "worker-";
+
+    private final TestOptions options;
+    private final Validator validator;
+    private final XtfMerger xtfMerger;
+    private final int jobs;
+    private final String token;
+    private final FileHashes fileHashes = new FileHashes();
+
+    /**
+     * Creates a new instance of the CaseWorker class.
+     *
+     * @param options   the test options of the local copy of the testbed.
+     * @param validator the validator to use.
+     * @param xtfMerger the XTF merger to use.
+     * @param jobs      the number of fail cases that are run at the same time.
+     * @param token     the token of the coordinator.
+     */
+    public CaseWorker(TestOptions options, Validator validator, XtfMerger xtfMerger, int jobs, String token) {
+        this.options = options;
+        this.validator = validator;
+        this.xtfMerger = xtfMerger;
+        this.jobs = jobs;
+        this.token = token;
+    }
+
+    /**
+     * Connects to the coordinator and runs fail cases until the coordinator closes the connections.
+     * The coordinator may be started after the worker, the connection is retried for about a minute.
+     *
+     * @param host the host name of the coordinator.
+     * @param port the TCP port of the coordinator.
+     * @return {@code true} if all connections were closed by the coordinator, {@code false} if a connection failed or was rejected.
+     */
+    public boolean run(String host, int port) {
+        LOGGER.info("Running fail cases of {} for coordinator {}:{} with {} jobs.", options.basePath(), host, port, jobs);
+        Path workDirectory;
+        try {
+            Files.createDirectories(options.outputPath());
+            workDirectory = Files.createTempDirectory(options.outputPath(), WORK_DIRECTORY_PREFIX);
+        } catch (IOException e) {
+            LOGGER.error("Could not create the work directory in {}.", options.outputPath(), e);
+            return false;
+        }
+
+        try (var executor = Executors.newFixedThreadPool(jobs)) {
+            var connections = new ArrayList<Future<Boolean>>(jobs);
+            for (var i = 0; i < jobs; i++) {
+                connections.add(executor.submit(() -> runConnection(host, port, workDirectory)));
+            }
+
+            var success = true;
+            for (var connection : connections) {
+                success &= connection.get();
+            }
+            return success;
+        } catch (ExecutionException e) {
+            LOGGER.error("Worker connection failed.", e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            deleteWorkDirectory(workDirectory);
+        }
+    }
+
+    private boolean runConnection(String host, int port, Path workDirectory) throws InterruptedException {
+        try (var socket = connect(host, port)) {
+            var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeUTF(RemoteProtocol.HELLO_MESSAGE);
+            output.writeInt(RemoteProtocol.VERSION);
+            output.writeUTF(token);
+            output.flush();
+
+            while (true) {
+                String request;
+                try {
+                    request = input.readUTF();
+                } catch (EOFException e) {
+                    return true;
+                }
+                if (RemoteProtocol.ERROR_MESSAGE.equals(request)) {
+                    LOGGER.error("Coordinator {}:{} rejected the worker: {}", host, port, input.readUTF());
+                    return false;
+                }
+                if (!RemoteProtocol.CASE_MESSAGE.equals(request)) {
+                    throw new IOException("Unexpected request from coordinator: " + request);
+                }
+
+                var baseFile = RemoteProtocol.resolve(options.basePath(), input.readUTF());
+                var baseFileHash = input.readUTF();
+                var patchFile = RemoteProtocol.resolve(options.basePath(), input.readUTF());
+                var patchFileHash = input.readUTF();
+                runCase(baseFile, baseFileHash, patchFile, patchFileHash, workDirectory, output);
+                output.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Connection to coordinator {}:{} failed.", host, port, e);
+            return false;
+        }
+    }
+
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        for (var attempt = 1; ; attempt++) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (attempt >= CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private void runCase(Path baseFile, String baseFileHash, Path patchFile, String patchFileHash, Path workDirectory, DataOutputStream output) throws IOException {
+        var patchFileNameWithoutExtension = StringUtils.getFilenameWithoutExtension(patchFile.getFileName().toString());
+        var caseDirectory = Files.createDirectories(workDirectory.resolve(options.basePath().relativize(patchFile.getParent())));
+        var mergedFile = caseDirectory.resolve(patchFileNameWithoutExtension + "_merged.xtf");
+        var logFile = caseDirectory.resolve(patchFileNameWithoutExtension + ".log");
+
+        LOGGER.info("Running fail case {}.", patchFile);
+        try {
+            if (!Files.isRegularFile(baseFile) || !Files.isRegularFile(patchFile)) {
+                output.writeUTF(RemoteProtocol.ERROR_MESSAGE);
+                RemoteProtocol.writeMessage(output, "The testbed of the worker does not contain " + (Files.isRegularFile(baseFile) ? patchFile : baseFile) + ".");
+                return;
+            }
+            if (!matchesCoordinator(baseFile, baseFileHash, output) || !matchesCoordinator(patchFile, patchFileHash, output)) {
+                return;
+            }
+
+            Optional<Boolean> valid;
+            try (var heartbeat = new Heartbeat(output)) {
+                valid = xtfMerger.merge(baseFile, patchFile, mergedFile) ? Optional.of(validator.validate(mergedFile, logFile)) : Optional.empty();
+            }
+            if (valid.isEmpty()) {
+                output.writeUTF(RemoteProtocol.MERGE_FAILED_MESSAGE);
+                return;
+            }
+
+            output.writeUTF(RemoteProtocol.RESULT_MESSAGE);
+            output.writeBoolean(valid.get());
+            RemoteProtocol.writeLog(output, logFile);
+        } catch (ValidatorException e) {
+            LOGGER.error("Fail case {} could not be validated.", patchFile, e);
+            output.writeUTF(RemoteProtocol.ERROR_MESSAGE);
+            RemoteProtocol.writeMessage(output, String.valueOf(e.getMessage()));
+        } finally {
+            Files.deleteIfExists(mergedFile);
+            Files.deleteIfExists(logFile);
+        }
+    }
+
+    // Answers the fail case with an error if the file of the worker differs from the file of the coordinator.
+    private boolean matchesCoordinator(Path file, String hash, DataOutputStream output) throws IOException {
+        if (fileHashes.get(file).equals(hash)) {
+            return true;
+        }
+
+        LOGGER.error("The testbed of the worker contains another version of {}.", file);
+        output.writeUTF(RemoteProtocol.ERROR_MESSAGE);
+        RemoteProtocol.writeMessage(output, "The testbed of the worker contains another version of " + file + ".");
+        return false;
+    }
+
+    /**
+     * Sends heartbeats to the coordinator while a fail case runs, until it is closed before the response is written.
+     */
+    private static final class Heartbeat implements AutoCloseable {
+        private final DataOutputStream output;
+        private final Thread thread;
+        private boolean stopped;
+
+        Heartbeat(DataOutputStream output) {
+            this.output = output;
+            this.thread = Thread.ofVirtual().name("case-worker-heartbeat").start(this::sendHeartbeats);
+        }
+
+        private void sendHeartbeats() {
+            try {
+                while (true) {
+                    Thread.sleep(RemoteProtocol.HEARTBEAT_INTERVAL);
+                    synchronized (output) {
+                        if (stopped) {
+                            return;
+                        }
+                        output.writeUTF(RemoteProtocol.HEARTBEAT_MESSAGE);
+                        output.flush();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // The lost connection is reported when the response is written.
+                LOGGER.debug("Could not send a heartbeat to the coordinator.", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (output) {
+                stopped = true;
+            }
+            thread.interrupt();
+        }
+    }
+
+    private static void deleteWorkDirectory(Path workDirectory) {
+        try (var paths = Files.walk(workDirectory)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the work directory {}.", workDirectory, e);
+        }
+    }
+}
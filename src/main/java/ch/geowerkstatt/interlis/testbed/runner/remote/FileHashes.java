@@ -0,0 +1,66 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes the hashes of the files sent with a fail case, so the coordinator and the worker can tell whether they use
+ * the same version of a file.
+ * <p>
+ * The hashes are kept as long as the size and modification time of a file do not change, so the base data file,
+ * which is shared by all fail cases, is only read once.
+ */
+final class FileHashes {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Path, HashedFile> hashedFiles = new ConcurrentHashMap<>();
+
+    private record HashedFile(long size, long lastModified, String hash) {
+    }
+
+    /**
+     * Gets the hash of the content of a file.
+     *
+     * @param file the path to the file.
+     * @return the hexadecimal SHA-256 hash of the file.
+     * @throws IOException if the file could not be read.
+     */
+    String get(Path file) throws IOException {
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        var hashedFile = hashedFiles.get(file);
+        if (hashedFile != null && hashedFile.size() == attributes.size() && hashedFile.lastModified() == attributes.lastModifiedTime().toMillis()) {
+            return hashedFile.hash();
+        }
+
+        var hash = hashFile(file);
+        hashedFiles.put(file, new HashedFile(attributes.size(), attributes.lastModifiedTime().toMillis(), hash));
+        return hash;
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        var buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,144 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Messages exchanged between the {@link CaseCoordinator} and the {@link CaseWorker} connections.
+ * <p>
+ * A worker opens a connection for every job and sends {@link #HELLO_MESSAGE} with the {@link #VERSION} of the protocol
+ * and the token shared with the coordinator. The coordinator answers a rejected worker with {@link #ERROR_MESSAGE}
+ * followed by an error message and closes the connection. Otherwise, it sends {@link #CASE_MESSAGE} with the paths of
+ * the base data file and the patch file relative to the testbed, each followed by the SHA-256 hash of the file, and the
+ * worker answers every case with {@link #RESULT_MESSAGE} followed by the validation result and the log,
+ * {@link #MERGE_FAILED_MESSAGE} or {@link #ERROR_MESSAGE} followed by an error message. The worker answers with
+ * {@link #ERROR_MESSAGE} if its copy of a file has another hash.
+ * While a case runs, the worker sends {@link #HEARTBEAT_MESSAGE} every {@link #HEARTBEAT_INTERVAL}, so the coordinator
+ * can tell a busy worker from a lost one. The coordinator ends the work by closing the connection.
+ */
+final class RemoteProtocol {
+    /**
+     * The version of the protocol, workers of another version are rejected.
+     */
+    static final int VERSION = 3;
+    static final String HELLO_MESSAGE = "HELLO";
+    static final String CASE_MESSAGE = "CASE";
+    static final String RESULT_MESSAGE = "RESULT";
+    static final String MERGE_FAILED_MESSAGE = "MERGE_FAILED";
+    static final String ERROR_MESSAGE = "ERROR";
+    static final String HEARTBEAT_MESSAGE = "HEARTBEAT";
+
+    /**
+     * The interval in which a worker sends heartbeats while it runs a fail case.
+     */
+    static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(10);
+
+    // Logs up to this size are kept in memory by the coordinator, larger logs are written to the log file.
+    private static final int LOG_BUFFER_SIZE = 1024 * 1024;
+    // Larger logs are rejected, so a broken worker cannot fill the disk of the coordinator.
+    private static final long MAX_LOG_LENGTH = 4L * 1024 * 1024 * 1024;
+    private static final int MAX_MESSAGE_LENGTH = 16 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private RemoteProtocol() {
+    }
+
+    /**
+     * Gets the path of a file relative to the testbed, with forward slashes on all platforms.
+     *
+     * @param basePath the base path of the testbed.
+     * @param file     the path to the file.
+     * @return the relative path.
+     */
+    static String toRelativePath(Path basePath, Path file) {
+        return basePath.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * Resolves a path received from the other side against the testbed.
+     *
+     * @param basePath     the base path of the testbed.
+     * @param relativePath the path relative to the testbed.
+     * @return the resolved path.
+     * @throws IOException if the path points outside of the testbed.
+     */
+    static Path resolve(Path basePath, String relativePath) throws IOException {
+        var path = basePath.resolve(relativePath).normalize();
+        if (!path.startsWith(basePath.normalize())) {
+            throw new IOException("Path " + relativePath + " is outside of the testbed.");
+        }
+        return path;
+    }
+
+    /**
+     * Writes a message text, shortened to a length that can be sent in one string.
+     *
+     * @param output  the stream to write to.
+     * @param message the message text.
+     * @throws IOException if the message could not be written.
+     */
+    static void writeMessage(DataOutputStream output, String message) throws IOException {
+        output.writeUTF(message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+    }
+
+    /**
+     * Writes the content of a log file, preceded by its length.
+     *
+     * @param output  the stream to write to.
+     * @param logFile the log file, which is sent as an empty log if it does not exist.
+     * @throws IOException if the log file could not be read or the stream could not be written.
+     */
+    static void writeLog(DataOutputStream output, Path logFile) throws IOException {
+        if (!Files.exists(logFile)) {
+            output.writeLong(0);
+            return;
+        }
+
+        output.writeLong(Files.size(logFile));
+        try (var input = Files.newInputStream(logFile)) {
+            input.transferTo(output);
+        }
+    }
+
+    /**
+     * Reads a log written by {@link #writeLog(DataOutputStream, Path)}.
+     *
+     * @param input   the stream to read from.
+     * @param logFile the log file that is written if the log is too large to be kept in memory.
+     * @return the log.
+     * @throws IOException if the stream could not be read, the length of the log is invalid or the log file could not be written.
+     */
+    static ValidatorLog readLog(DataInputStream input, Path logFile) throws IOException {
+        var length = input.readLong();
+        if (length < 0 || length > MAX_LOG_LENGTH) {
+            throw new IOException("Invalid log length " + length + ".");
+        }
+        if (length <= LOG_BUFFER_SIZE) {
+            var content = new byte[(int) length];
+            input.readFully(content);
+            return ValidatorLog.ofLines(new String(content, StandardCharsets.UTF_8).lines().toList());
+        }
+
+        Files.createDirectories(logFile.getParent());
+        try (var output = Files.newOutputStream(logFile)) {
+            var buffer = new byte[COPY_BUFFER_SIZE];
+            var remaining = length;
+            while (remaining > 0) {
+                var read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("The connection was closed while the log was received.");
+                }
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        return ValidatorLog.ofFile(logFile);
+    }
+}
@@ -0,0 +1,105 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The timings of a single case, or of the work of a run that does not belong to a case.
+ * <p>
+ * The timings are recorded by the thread that runs the case, from {@link TimingReport#startCase} until they are closed.
+ */
+public final class CaseTimings implements AutoCloseable {
+    private final TimingReport report;
+    private final String name;
+    private final String constraintName;
+    private final CaseTimings previousCase;
+    private final long startWallTime;
+    private final long startCpuTime;
+    private final Map<Phase, PhaseTime> phases = new EnumMap<>(Phase.class);
+    private long wallTime;
+    private long cpuTime;
+    private boolean cached;
+
+    CaseTimings(TimingReport report, String name, String constraintName) {
+        this.report = report;
+        this.name = name;
+        this.constraintName = constraintName;
+        this.previousCase = PhaseTimer.currentCase();
+        this.startWallTime = System.nanoTime();
+        this.startCpuTime = PhaseTimer.currentThreadCpuTime();
+        PhaseTimer.setCurrentCase(this);
+    }
+
+    /**
+     * Marks the case as answered from the result cache.
+     */
+    public void markCached() {
+        cached = true;
+    }
+
+    void add(Phase phase, long phaseWallTime, long phaseCpuTime) {
+        phases.computeIfAbsent(phase, p -> new PhaseTime()).add(phaseWallTime, phaseCpuTime);
+    }
+
+    /**
+     * Ends the timing of the case.
+     */
+    @Override
+    public void close() {
+        wallTime = System.nanoTime() - startWallTime;
+        cpuTime = PhaseTimer.currentThreadCpuTime() - startCpuTime;
+        PhaseTimer.setCurrentCase(previousCase);
+        report.finishCase(this);
+    }
+
+    String name() {
+        return name;
+    }
+
+    String constraintName() {
+        return constraintName;
+    }
+
+    boolean cached() {
+        return cached;
+    }
+
+    long wallTime() {
+        return wallTime;
+    }
+
+    long cpuTime() {
+        return cpuTime;
+    }
+
+    Map<Phase, PhaseTime> phases() {
+        return phases;
+    }
+
+    /**
+     * The accumulated time of a phase within a case.
+     */
+    static final class PhaseTime {
+        private int count;
+        private long wallTime;
+        private long cpuTime;
+
+        void add(long phaseWallTime, long phaseCpuTime) {
+            count++;
+            wallTime += phaseWallTime;
+            cpuTime += phaseCpuTime;
+        }
+
+        int count() {
+            return count;
+        }
+
+        long wallTime() {
+            return wallTime;
+        }
+
+        long cpuTime() {
+            return cpuTime;
+        }
+    }
+}
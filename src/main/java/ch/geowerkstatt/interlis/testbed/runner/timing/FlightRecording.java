@@ -0,0 +1,75 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * Java Flight Recorder recording of a runner invocation, including the events of the runner.
+ * The recording is written to a file when it is closed and can be opened with JDK Mission Control.
+ */
+public final class FlightRecording implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String CONFIGURATION_NAME = "profile";
+    private static final List<Class<? extends jdk.jfr.Event>> EVENT_TYPES = List.of(MergeEvent.class, ValidationEvent.class, LogScanEvent.class);
+
+    private final Recording recording;
+    private final Path destination;
+
+    private FlightRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /**
+     * Starts a recording with the settings of the JDK profiling configuration.
+     *
+     * @param destination the file the recording is written to.
+     * @return the started recording.
+     * @throws IOException if the recording could not be started.
+     */
+    public static FlightRecording start(Path destination) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration(CONFIGURATION_NAME));
+        } catch (ParseException e) {
+            throw new IOException("The flight recorder configuration " + CONFIGURATION_NAME + " could not be read.", e);
+        }
+
+        try {
+            for (var eventType : EVENT_TYPES) {
+                recording.enable(eventType);
+            }
+            recording.setName("interlis-testbed-runner");
+            var parent = destination.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            recording.setDestination(destination);
+            recording.start();
+        } catch (IOException e) {
+            recording.close();
+            throw e;
+        }
+
+        LOGGER.info("Started flight recording to {}", destination);
+        return new FlightRecording(recording, destination);
+    }
+
+    /**
+     * Stops the recording and writes it to the destination file.
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+        LOGGER.info("Flight recording written to {}", destination);
+    }
+}
@@ -0,0 +1,133 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON writer for the timing report.
+ */
+final class JsonWriter {
+    private static final String INDENT = "  ";
+
+    private final Writer writer;
+    private int depth;
+    private boolean firstInScope = true;
+    private boolean afterName;
+
+    JsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        writer.write(": ");
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(double value) throws IOException {
+        beforeValue();
+        writer.write(Double.toString(value));
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(Boolean.toString(value));
+        return this;
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        beforeValue();
+        writer.write(bracket);
+        depth++;
+        firstInScope = true;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        if (!firstInScope) {
+            newLine();
+        }
+        writer.write(bracket);
+        firstInScope = false;
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (!firstInScope) {
+                writer.write(',');
+            }
+            newLine();
+        }
+        firstInScope = false;
+    }
+
+    private void newLine() throws IOException {
+        writer.write('\n');
+        for (var i = 0; i < depth; i++) {
+            writer.write(INDENT);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,47 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for searching an expected constraint error in a validator log.
+ */
+@Name("ch.geowerkstatt.interlis.testbed.runner.LogScan")
+@Label("Scan Validator Log")
+@Description("Searches the validator log for an error of the expected constraint")
+@Category({"INTERLIS Testbed Runner"})
+@StackTrace(false)
+public final class LogScanEvent extends Event {
+    @Label("Constraint")
+    private String constraintName;
+
+    @Label("Scanned Lines")
+    private long lineCount;
+
+    @Label("Found")
+    private boolean found;
+
+    /**
+     * Sets the constraint that was searched.
+     *
+     * @param constraintName the fully qualified name of the constraint.
+     */
+    public void setConstraintName(String constraintName) {
+        this.constraintName = constraintName;
+    }
+
+    /**
+     * Sets the result of the scan.
+     *
+     * @param lines the number of lines read until the error was found or the log ended.
+     * @param found {@code true} if an error for the constraint was found.
+     */
+    public void setResult(long lines, boolean found) {
+        this.lineCount = lines;
+        this.found = found;
+    }
+}
@@ -0,0 +1,91 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.file.Path;
+
+/**
+ * Flight recorder event for merging a patch file with the base data.
+ */
+@Name("ch.geowerkstatt.interlis.testbed.runner.Merge")
+@Label("Merge Fail Case")
+@Description("Merges the patch file of a fail case with the base data")
+@Category({"INTERLIS Testbed Runner"})
+@StackTrace(false)
+public final class MergeEvent extends Event {
+    @Label("Patch File")
+    private String patchFile;
+
+    @Label("Constraint")
+    private String constraintName;
+
+    @Label("Base File Size")
+    @DataAmount
+    private long baseFileSize;
+
+    @Label("Patch File Size")
+    @DataAmount
+    private long patchFileSize;
+
+    @Label("Output File Size")
+    @DataAmount
+    private long outputFileSize;
+
+    @Label("Patch Baskets")
+    private int patchBasketCount;
+
+    @Label("Patch Objects")
+    private int patchObjectCount;
+
+    @Label("Success")
+    private boolean success;
+
+    /**
+     * Sets the patch file and the constraint name of the fail case that is running on the current thread.
+     *
+     * @param file the patch file.
+     */
+    public void setPatchFile(Path file) {
+        patchFile = file.toString();
+        constraintName = PhaseTimer.currentConstraintName();
+    }
+
+    /**
+     * Sets the sizes of the merged files.
+     *
+     * @param baseSize   the size of the base data file in bytes.
+     * @param patchSize  the size of the patch file in bytes.
+     * @param outputSize the size of the merged file in bytes.
+     */
+    public void setFileSizes(long baseSize, long patchSize, long outputSize) {
+        baseFileSize = baseSize;
+        patchFileSize = patchSize;
+        outputFileSize = outputSize;
+    }
+
+    /**
+     * Sets the number of baskets and objects in the patch file.
+     *
+     * @param basketCount the number of baskets.
+     * @param objectCount the number of objects.
+     */
+    public void setPatchCounts(int basketCount, int objectCount) {
+        patchBasketCount = basketCount;
+        patchObjectCount = objectCount;
+    }
+
+    /**
+     * Sets whether the files were merged successfully.
+     *
+     * @param success {@code true} if the merged file was written.
+     */
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
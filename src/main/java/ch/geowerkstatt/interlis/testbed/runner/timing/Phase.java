@@ -0,0 +1,51 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+/**
+ * The phases of a testbed run that are timed separately.
+ */
+public enum Phase {
+    /**
+     * Finding the patch files of the testbed.
+     */
+    DISCOVERY("discovery"),
+
+    /**
+     * Merging a patch file with the base data, including {@link #BASE_PARSE}.
+     */
+    MERGE("merge"),
+
+    /**
+     * Parsing the base data file. Only happens when the parsed base data is not cached yet.
+     */
+    BASE_PARSE("baseParse"),
+
+    /**
+     * Starting a long-lived validator worker process. For a new process per file, the startup is part of {@link #VALIDATION}.
+     */
+    JVM_STARTUP("jvmStartup"),
+
+    /**
+     * Validating a file with ilivalidator.
+     */
+    VALIDATION("validation"),
+
+    /**
+     * Searching the expected constraint error in the validator log.
+     */
+    LOG_SCAN("logScan");
+
+    private final String key;
+
+    Phase(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Gets the name of the phase used in the timing report.
+     *
+     * @return the name of the phase.
+     */
+    public String key() {
+        return key;
+    }
+}
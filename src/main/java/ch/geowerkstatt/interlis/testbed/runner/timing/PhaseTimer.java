@@ -0,0 +1,82 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the wall time and CPU time of phases on the current thread.
+ * <p>
+ * The measurements are added to the timings of the case that is currently run by the thread, see {@link TimingReport#startCase}.
+ * Without a running case, measurements are discarded.
+ */
+public final class PhaseTimer {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+    private static final ThreadLocal<CaseTimings> CURRENT_CASE = new ThreadLocal<>();
+    private static final Measurement NO_MEASUREMENT = new Measurement(null, null, 0, 0);
+
+    private PhaseTimer() {
+    }
+
+    /**
+     * Starts measuring a phase. The measurement ends when the returned measurement is closed.
+     *
+     * @param phase the phase to measure.
+     * @return the running measurement.
+     */
+    public static Measurement start(Phase phase) {
+        var caseTimings = CURRENT_CASE.get();
+        if (caseTimings == null) {
+            return NO_MEASUREMENT;
+        }
+        return new Measurement(caseTimings, phase, System.nanoTime(), currentThreadCpuTime());
+    }
+
+    static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    static CaseTimings currentCase() {
+        return CURRENT_CASE.get();
+    }
+
+    static String currentConstraintName() {
+        var caseTimings = CURRENT_CASE.get();
+        return caseTimings != null ? caseTimings.constraintName() : null;
+    }
+
+    static void setCurrentCase(CaseTimings caseTimings) {
+        if (caseTimings == null) {
+            CURRENT_CASE.remove();
+        } else {
+            CURRENT_CASE.set(caseTimings);
+        }
+    }
+
+    /**
+     * A running measurement of a phase.
+     */
+    public static final class Measurement implements AutoCloseable {
+        private final CaseTimings caseTimings;
+        private final Phase phase;
+        private final long startWallTime;
+        private final long startCpuTime;
+
+        private Measurement(CaseTimings caseTimings, Phase phase, long startWallTime, long startCpuTime) {
+            this.caseTimings = caseTimings;
+            this.phase = phase;
+            this.startWallTime = startWallTime;
+            this.startCpuTime = startCpuTime;
+        }
+
+        /**
+         * Ends the measurement and adds it to the timings of the case.
+         */
+        @Override
+        public void close() {
+            if (caseTimings != null) {
+                caseTimings.add(phase, System.nanoTime() - startWallTime, currentThreadCpuTime() - startCpuTime);
+            }
+        }
+    }
+}
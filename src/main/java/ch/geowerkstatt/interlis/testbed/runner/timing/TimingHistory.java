@@ -0,0 +1,126 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The durations of the fail cases in previous runs of a testbed, used to start the slowest fail cases first.
+ * <p>
+ * The history is a tab-separated text file with the name of a fail case and its duration in milliseconds per line.
+ * Durations of new runs are averaged with the recorded duration, so a single slow run does not reorder the fail cases.
+ */
+public final class TimingHistory {
+    /**
+     * The file name of the timing history in the output directory of the testbed.
+     */
+    public static final String FILE_NAME = "timing-history.tsv";
+
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, Long> durations;
+
+    private TimingHistory(Map<String, Long> durations) {
+        this.durations = durations;
+    }
+
+    /**
+     * Creates an empty timing history.
+     *
+     * @return the empty history.
+     */
+    public static TimingHistory empty() {
+        return new TimingHistory(new TreeMap<>());
+    }
+
+    /**
+     * Reads the timing history from the file. Lines that cannot be parsed are ignored.
+     *
+     * @param file the history file.
+     * @return the history, or an empty history if the file does not exist.
+     * @throws IOException if the file could not be read.
+     */
+    public static TimingHistory read(Path file) throws IOException {
+        var durations = new TreeMap<String, Long>();
+        if (!Files.exists(file)) {
+            return new TimingHistory(durations);
+        }
+
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            var separatorIndex = line.lastIndexOf(SEPARATOR);
+            if (separatorIndex <= 0) {
+                continue;
+            }
+            try {
+                durations.put(line.substring(0, separatorIndex), Long.parseLong(line.substring(separatorIndex + 1)));
+            } catch (NumberFormatException e) {
+                // Ignore lines from a damaged history, the fail case is treated as unknown.
+                continue;
+            }
+        }
+        return new TimingHistory(durations);
+    }
+
+    /**
+     * Gets the recorded duration of a fail case.
+     *
+     * @param caseName the name of the fail case, the path of the patch file relative to the testbed.
+     * @return the duration in milliseconds, or empty if the fail case has not run before.
+     */
+    public OptionalLong durationMillis(String caseName) {
+        var duration = durations.get(caseName);
+        return duration != null ? OptionalLong.of(duration) : OptionalLong.empty();
+    }
+
+    /**
+     * Checks whether the history contains no durations.
+     *
+     * @return {@code true} if no fail case has been recorded.
+     */
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    /**
+     * Adds the durations of the fail cases of a run to the history. Fail cases answered from the result cache are ignored.
+     *
+     * @param report the timings of the run.
+     */
+    public void update(TimingReport report) {
+        for (var caseTimings : report.cases()) {
+            if (caseTimings.cached()) {
+                continue;
+            }
+
+            var millis = TimeUnit.NANOSECONDS.toMillis(caseTimings.wallTime());
+            durations.merge(caseTimings.name(), millis, (previous, current) -> (previous + current) / 2);
+        }
+    }
+
+    /**
+     * Writes the history to the file.
+     *
+     * @param file the history file.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(Path file) throws IOException {
+        var lines = new ArrayList<String>(durations.size());
+        durations.forEach((caseName, millis) -> lines.add(caseName + SEPARATOR + millis));
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        var temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), FILE_NAME, ".tmp");
+        try {
+            Files.write(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
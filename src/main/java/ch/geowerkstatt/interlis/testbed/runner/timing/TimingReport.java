@@ -0,0 +1,203 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collects the phase timings of a testbed run and writes them as a JSON report.
+ * <p>
+ * The report contains the totals and percentiles of every phase over all cases, the timings of each case
+ * and the total time spent per constraint. CPU times are measured for the runner threads only,
+ * the CPU time of validator child processes is not included.
+ */
+public final class TimingReport {
+    /**
+     * The file name of the timing report in the output directory of the testbed.
+     */
+    public static final String FILE_NAME = "timing-report.json";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int[] PERCENTILES = {50, 90, 99};
+
+    private final Path basePath;
+    private final List<CaseTimings> cases = new ArrayList<>();
+    private CaseTimings runTimings;
+
+    /**
+     * Creates a new instance of the TimingReport class.
+     *
+     * @param basePath the path of the testbed.
+     */
+    public TimingReport(Path basePath) {
+        this.basePath = basePath;
+    }
+
+    /**
+     * Starts timing the work of the run that does not belong to a case on the current thread,
+     * like the discovery of the patch files and the validation of the base data.
+     *
+     * @return the timings of the run, to be closed when the run has finished.
+     */
+    public CaseTimings startRun() {
+        return new CaseTimings(this, null, null);
+    }
+
+    /**
+     * Starts timing a case on the current thread.
+     *
+     * @param name           the name of the case.
+     * @param constraintName the name of the constraint that is tested by the case.
+     * @return the timings of the case, to be closed when the case has finished.
+     */
+    public CaseTimings startCase(String name, String constraintName) {
+        return new CaseTimings(this, name, constraintName);
+    }
+
+    synchronized void finishCase(CaseTimings caseTimings) {
+        if (caseTimings.name() == null) {
+            runTimings = caseTimings;
+        } else {
+            cases.add(caseTimings);
+        }
+    }
+
+    synchronized List<CaseTimings> cases() {
+        return List.copyOf(cases);
+    }
+
+    /**
+     * Writes the report as JSON to the specified file.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    public synchronized void write(Path file) throws IOException {
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    synchronized void write(Writer writer) throws IOException {
+        var sortedCases = cases.stream().sorted(Comparator.comparing(CaseTimings::name)).toList();
+        var json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("testbed").value(basePath.toString());
+        json.name("caseCount").value(cases.size());
+        if (runTimings != null) {
+            json.name("run");
+            writeTimings(json, runTimings);
+        }
+
+        json.name("phases").beginObject();
+        for (var phase : Phase.values()) {
+            writePhaseStatistics(json, phase);
+        }
+        json.endObject();
+
+        json.name("constraints").beginArray();
+        for (var constraint : getConstraintTotals().entrySet()) {
+            json.beginObject();
+            json.name("constraint").value(constraint.getKey());
+            json.name("wallMillis").value(toMillis(constraint.getValue()[0]));
+            json.name("cpuMillis").value(toMillis(constraint.getValue()[1]));
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("cases").beginArray();
+        for (var caseTimings : sortedCases) {
+            writeTimings(json, caseTimings);
+        }
+        json.endArray();
+        json.endObject();
+        writer.write(System.lineSeparator());
+    }
+
+    private void writePhaseStatistics(JsonWriter json, Phase phase) throws IOException {
+        var wallTimes = cases.stream().map(c -> c.phases().get(phase)).filter(Objects::nonNull).mapToLong(CaseTimings.PhaseTime::wallTime).sorted().toArray();
+        var cpuTimes = cases.stream().map(c -> c.phases().get(phase)).filter(Objects::nonNull).mapToLong(CaseTimings.PhaseTime::cpuTime).sorted().toArray();
+        if (wallTimes.length == 0) {
+            return;
+        }
+
+        json.name(phase.key()).beginObject();
+        json.name("cases").value(wallTimes.length);
+        json.name("wall");
+        writeStatistics(json, wallTimes);
+        json.name("cpu");
+        writeStatistics(json, cpuTimes);
+        json.endObject();
+    }
+
+    private static void writeStatistics(JsonWriter json, long[] sortedValues) throws IOException {
+        json.beginObject();
+        json.name("totalMillis").value(toMillis(Arrays.stream(sortedValues).sum()));
+        for (var percentile : PERCENTILES) {
+            json.name("p" + percentile + "Millis").value(toMillis(percentile(sortedValues, percentile)));
+        }
+        json.name("maxMillis").value(toMillis(sortedValues[sortedValues.length - 1]));
+        json.endObject();
+    }
+
+    private static void writeTimings(JsonWriter json, CaseTimings timings) throws IOException {
+        json.beginObject();
+        if (timings.name() != null) {
+            json.name("case").value(timings.name());
+            json.name("constraint").value(timings.constraintName());
+            json.name("cached").value(timings.cached());
+        }
+        json.name("wallMillis").value(toMillis(timings.wallTime()));
+        json.name("cpuMillis").value(toMillis(timings.cpuTime()));
+        json.name("phases").beginObject();
+        for (var phase : timings.phases().entrySet()) {
+            json.name(phase.getKey().key()).beginObject();
+            json.name("count").value(phase.getValue().count());
+            json.name("wallMillis").value(toMillis(phase.getValue().wallTime()));
+            json.name("cpuMillis").value(toMillis(phase.getValue().cpuTime()));
+            json.endObject();
+        }
+        json.endObject();
+        json.endObject();
+    }
+
+    private Map<String, long[]> getConstraintTotals() {
+        var totals = new LinkedHashMap<String, long[]>();
+        for (var caseTimings : cases) {
+            var total = totals.computeIfAbsent(caseTimings.constraintName(), c -> new long[2]);
+            total[0] += caseTimings.wallTime();
+            total[1] += caseTimings.cpuTime();
+        }
+
+        var sorted = new LinkedHashMap<String, long[]>();
+        totals.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed().thenComparing(Map.Entry::getKey))
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Gets the percentile of the sorted values using the nearest-rank method.
+     *
+     * @param sortedValues the values in ascending order, must not be empty.
+     * @param percentile   the percentile between 1 and 100.
+     * @return the value at the percentile.
+     */
+    static long percentile(long[] sortedValues, int percentile) {
+        var rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / NANOS_PER_MILLI * 1000) / 1000.0;
+    }
+}
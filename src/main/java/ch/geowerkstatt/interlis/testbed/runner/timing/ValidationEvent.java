@@ -0,0 +1,100 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.nio.file.Path;
+
+/**
+ * Flight recorder event for validating a file with ilivalidator.
+ */
+@Name("ch.geowerkstatt.interlis.testbed.runner.Validation")
+@Label("Validate File")
+@Description("Validates a transfer file with ilivalidator")
+@Category({"INTERLIS Testbed Runner"})
+@StackTrace(false)
+public final class ValidationEvent extends Event {
+    /**
+     * The exit code reported when ilivalidator did not run in a process of its own.
+     */
+    public static final int NO_EXIT_CODE = -1;
+
+    @Label("File")
+    private String file;
+
+    @Label("Constraint")
+    private String constraintName;
+
+    @Label("File Size")
+    @DataAmount
+    private long fileSize;
+
+    @Label("Engine")
+    @Description("How ilivalidator was run: process, worker or in-process")
+    private String engine;
+
+    @Label("Process Duration")
+    @Description("Time from starting the ilivalidator process until it exited")
+    @Timespan(Timespan.NANOSECONDS)
+    private long processDuration;
+
+    @Label("Exit Code")
+    private int exitCode = NO_EXIT_CODE;
+
+    @Label("Valid")
+    private boolean valid;
+
+    /**
+     * Sets the validated file and the constraint name of the fail case that is running on the current thread.
+     *
+     * @param validatedFile the validated file.
+     */
+    public void setFile(Path validatedFile) {
+        file = validatedFile.toString();
+        constraintName = PhaseTimer.currentConstraintName();
+    }
+
+    /**
+     * Sets the size of the validated file.
+     *
+     * @param size the size in bytes.
+     */
+    public void setFileSize(long size) {
+        fileSize = size;
+    }
+
+    /**
+     * Sets how ilivalidator was run.
+     *
+     * @param engine the name of the engine.
+     */
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Sets the result of the ilivalidator process.
+     *
+     * @param duration the time in nanoseconds from starting the process until it exited.
+     * @param code     the exit code of the process.
+     */
+    public void setProcessResult(long duration, int code) {
+        processDuration = duration;
+        exitCode = code;
+    }
+
+    /**
+     * Sets whether the file is valid.
+     *
+     * @param valid {@code true} if the validation was successful.
+     */
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+}
@@ -0,0 +1,166 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Class Data Sharing archive of the classes that ilivalidator loads, shared by all ilivalidator processes.
+ * <p>
+ * The archive is stored in a cache directory under a name that contains a hash of the ilivalidator jar and the JVM
+ * arguments and the version of the JDK, which is the JDK of the runner as the ilivalidator processes are started with
+ * its java launcher. If no archive exists for the current key, the next validation creates it
+ * with {@code -XX:ArchiveClassesAtExit} while the other processes run without it. The process writes the archive to a
+ * temporary file of its own, so runners sharing the cache directory do not overwrite each other's archive while it is
+ * written. The archive is only kept if that process exited with code 0, so a killed process cannot leave an incomplete archive. Once the archive exists,
+ * every process maps it with {@code -XX:SharedArchiveFile} instead of loading and verifying the classes again.
+ * A JVM that cannot use the archive ignores it and loads the classes from the jar.
+ */
+final class ClassDataSharingArchive {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String ARCHIVE_FILE_PREFIX = "ilivalidator-";
+    private static final String ARCHIVE_FILE_EXTENSION = ".jsa";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_LENGTH = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path archiveFile;
+    private Path temporaryArchiveFile;
+    private boolean creationFailed;
+
+    private ClassDataSharingArchive(Path archiveFile) {
+        this.archiveFile = archiveFile;
+    }
+
+    /**
+     * Gets the archive for the ilivalidator jar in the cache directory.
+     *
+     * @param ilivalidatorPath the path to the ilivalidator jar.
+     * @param jvmArguments     the additional arguments for the ilivalidator processes.
+     * @param directory        the cache directory of the archives.
+     * @return the archive, which is created by the next validation if it does not exist yet.
+     * @throws ValidatorException if the ilivalidator jar could not be read or the cache directory could not be created.
+     */
+    static ClassDataSharingArchive create(Path ilivalidatorPath, List<String> jvmArguments, Path directory) throws ValidatorException {
+        try {
+            var digest = createDigest();
+            try (InputStream input = Files.newInputStream(ilivalidatorPath)) {
+                var buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            for (var argument : jvmArguments) {
+                digest.update((byte) 0);
+                digest.update(argument.getBytes(StandardCharsets.UTF_8));
+            }
+
+            var hash = HexFormat.of().formatHex(digest.digest()).substring(0, HASH_LENGTH);
+            var jdkVersion = Runtime.version().toString().replaceAll("[^A-Za-z0-9.]", "_");
+            Files.createDirectories(directory);
+            var archive = new ClassDataSharingArchive(directory.resolve(ARCHIVE_FILE_PREFIX + hash + "-jdk" + jdkVersion + ARCHIVE_FILE_EXTENSION));
+            if (Files.exists(archive.archiveFile)) {
+                LOGGER.info("Using class data sharing archive {}.", archive.archiveFile);
+            } else {
+                LOGGER.info("Class data sharing archive {} is created by the first validation.", archive.archiveFile);
+            }
+            return archive;
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    /**
+     * Gets the path to the archive file.
+     *
+     * @return the path to the archive file, which may not exist yet.
+     */
+    Path archiveFile() {
+        return archiveFile;
+    }
+
+    /**
+     * Gets the JVM arguments for a new ilivalidator process.
+     * The first process that is started while the archive does not exist creates it.
+     *
+     * @return the arguments to use or create the archive, or an empty list while another process creates it.
+     */
+    synchronized List<String> getJvmArguments() {
+        if (Files.exists(archiveFile)) {
+            return List.of("-XX:SharedArchiveFile=" + archiveFile);
+        }
+        if (temporaryArchiveFile != null || creationFailed) {
+            return List.of();
+        }
+
+        try {
+            temporaryArchiveFile = Files.createTempFile(archiveFile.getParent(), archiveFile.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            LOGGER.warn("Could not create a temporary file for the class data sharing archive {}, ilivalidator is run without it.", archiveFile, e);
+            creationFailed = true;
+            return List.of();
+        }
+        return List.of("-XX:ArchiveClassesAtExit=" + temporaryArchiveFile);
+    }
+
+    /**
+     * Completes the creation of the archive after a process that was started with the given arguments exited.
+     * The archive written by a process that did not exit with code 0 is discarded.
+     *
+     * @param jvmArguments the arguments returned by {@link #getJvmArguments()} for the process.
+     * @param exitCode     the exit code of the process, or a negative value if the process was aborted.
+     */
+    synchronized void processExited(List<String> jvmArguments, int exitCode) {
+        if (temporaryArchiveFile == null || !jvmArguments.contains("-XX:ArchiveClassesAtExit=" + temporaryArchiveFile)) {
+            return;
+        }
+
+        var writtenArchiveFile = temporaryArchiveFile;
+        temporaryArchiveFile = null;
+        try {
+            if (exitCode != 0) {
+                LOGGER.warn("The class data sharing archive {} was not created because ilivalidator exited with code {}, ilivalidator is run without it.", archiveFile, exitCode);
+                creationFailed = true;
+                return;
+            }
+            if (Files.exists(writtenArchiveFile) && Files.size(writtenArchiveFile) > 0) {
+                Files.move(writtenArchiveFile, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("Created class data sharing archive {}.", archiveFile);
+                return;
+            }
+            LOGGER.warn("The class data sharing archive {} was not created, ilivalidator is run without it.", archiveFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not store the class data sharing archive {}, ilivalidator is run without it.", archiveFile, e);
+        } finally {
+            deleteTemporaryArchiveFile(writtenArchiveFile);
+        }
+        creationFailed = true;
+    }
+
+    private static void deleteTemporaryArchiveFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the incomplete class data sharing archive {}.", file, e);
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
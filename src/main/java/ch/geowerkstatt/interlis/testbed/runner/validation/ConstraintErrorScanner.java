@@ -0,0 +1,295 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.timing.LogScanEvent;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Searches a validator log for errors of several constraints in a single pass.
+ * <p>
+ * The log is scanned as bytes without decoding it into strings. Only lines starting with {@code Error: } are searched,
+ * and a constraint name only matches as a whole word, like {@code ^Error: .*\bName\b}. All constraint names are matched
+ * at once with an Aho-Corasick automaton, and scanning stops as soon as an error has been found for every constraint.
+ * Log files compressed with gzip are detected by their content and decompressed while they are scanned.
+ * <p>
+ * Instances are immutable and safe to use from multiple threads.
+ */
+public final class ConstraintErrorScanner {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final byte[] ERROR_PREFIX = "Error: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int ALPHABET_SIZE = 256;
+
+    private final List<String> constraintNames;
+    private final byte[][] patterns;
+    private final int[][] transitions;
+    private final int[][] outputs;
+    private final int bufferSize;
+
+    /**
+     * Creates a scanner for the errors of the given constraints.
+     *
+     * @param constraintNames the fully qualified names of the constraints.
+     */
+    public ConstraintErrorScanner(Collection<String> constraintNames) {
+        this(constraintNames, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a scanner for the errors of the given constraints.
+     *
+     * @param constraintNames the fully qualified names of the constraints.
+     * @param bufferSize      the maximum initial size of the read buffer, which grows for lines that do not fit.
+     */
+    ConstraintErrorScanner(Collection<String> constraintNames, int bufferSize) {
+        this.constraintNames = List.copyOf(new LinkedHashSet<>(constraintNames));
+        if (this.constraintNames.isEmpty() || this.constraintNames.stream().anyMatch(String::isEmpty)) {
+            throw new IllegalArgumentException("At least one non-empty constraint name is required.");
+        }
+
+        this.bufferSize = bufferSize;
+        this.patterns = this.constraintNames.stream().map(name -> name.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+
+        var gotoTable = new ArrayList<int[]>();
+        var outputLists = new ArrayList<List<Integer>>();
+        addState(gotoTable, outputLists);
+        for (var patternIndex = 0; patternIndex < patterns.length; patternIndex++) {
+            var state = 0;
+            for (var b : patterns[patternIndex]) {
+                var symbol = b & 0xff;
+                if (gotoTable.get(state)[symbol] < 0) {
+                    gotoTable.get(state)[symbol] = addState(gotoTable, outputLists);
+                }
+                state = gotoTable.get(state)[symbol];
+            }
+            outputLists.get(state).add(patternIndex);
+        }
+
+        // Resolve the failure links breadth-first, turning the trie into a deterministic automaton.
+        var failure = new int[gotoTable.size()];
+        var queue = new ArrayDeque<Integer>();
+        for (var symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            var next = gotoTable.getFirst()[symbol];
+            if (next < 0) {
+                gotoTable.getFirst()[symbol] = 0;
+            } else {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (var symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                var next = gotoTable.get(state)[symbol];
+                var fallback = gotoTable.get(failure[state])[symbol];
+                if (next < 0) {
+                    gotoTable.get(state)[symbol] = fallback;
+                } else {
+                    failure[next] = fallback;
+                    outputLists.get(next).addAll(outputLists.get(fallback));
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = gotoTable.toArray(int[][]::new);
+        this.outputs = outputLists.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+    }
+
+    private static int addState(List<int[]> gotoTable, List<List<Integer>> outputLists) {
+        var transitionsOfState = new int[ALPHABET_SIZE];
+        Arrays.fill(transitionsOfState, -1);
+        gotoTable.add(transitionsOfState);
+        outputLists.add(new ArrayList<>());
+        return gotoTable.size() - 1;
+    }
+
+    /**
+     * Gets the constraints searched by this scanner.
+     *
+     * @return the fully qualified names of the constraints.
+     */
+    public List<String> constraintNames() {
+        return constraintNames;
+    }
+
+    /**
+     * Scans a log file for errors of the constraints.
+     *
+     * @param logFile the path to the log file, optionally compressed with gzip.
+     * @return the constraints with errors and the lines of the errors found until every constraint has been found.
+     * @throws IOException if the log file could not be read.
+     */
+    public ConstraintMatches scan(Path logFile) throws IOException {
+        var event = new LogScanEvent();
+        event.begin();
+        var collector = new MatchCollector();
+        try (var measurement = PhaseTimer.start(Phase.LOG_SCAN); var channel = FileChannel.open(logFile)) {
+            // Small log files are read with a buffer of their size instead of the full buffer, decompressed logs in chunks.
+            if (isCompressed(channel)) {
+                try (var input = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), GZIP_BUFFER_SIZE))) {
+                    scanChannel(input, Math.min(bufferSize, GZIP_BUFFER_SIZE), collector);
+                }
+            } else {
+                scanChannel(channel, (int) Math.min(channel.size() + 1, bufferSize), collector);
+            }
+        }
+        return finish(event, collector);
+    }
+
+    /**
+     * Scans the lines of a log kept in memory for errors of the constraints.
+     *
+     * @param lines the lines of the log.
+     * @return the constraints with errors and the lines of the errors found until every constraint has been found.
+     */
+    public ConstraintMatches scan(List<String> lines) {
+        var event = new LogScanEvent();
+        event.begin();
+        var collector = new MatchCollector();
+        try (var measurement = PhaseTimer.start(Phase.LOG_SCAN)) {
+            for (var line : lines) {
+                var bytes = line.getBytes(StandardCharsets.UTF_8);
+                if (scanLine(bytes, 0, bytes.length, collector)) {
+                    break;
+                }
+            }
+        }
+        return finish(event, collector);
+    }
+
+    private ConstraintMatches finish(LogScanEvent event, MatchCollector collector) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setConstraintName(String.join(", ", constraintNames));
+            event.setResult(collector.lineCount, collector.foundAll());
+            event.commit();
+        }
+        return new ConstraintMatches(collector.lineNumbers);
+    }
+
+    private static boolean isCompressed(FileChannel channel) throws IOException {
+        var header = ByteBuffer.allocate(GZIP_MAGIC.length);
+        var read = 0;
+        while (header.hasRemaining() && read >= 0) {
+            read = channel.read(header, header.position());
+        }
+        return !header.hasRemaining() && Arrays.equals(header.array(), GZIP_MAGIC);
+    }
+
+    private void scanChannel(ReadableByteChannel channel, int initialBufferSize, MatchCollector collector) throws IOException {
+        var buffer = ByteBuffer.allocate(initialBufferSize);
+        var endOfStream = false;
+        var foundAll = false;
+        while (!endOfStream && !foundAll) {
+            endOfStream = channel.read(buffer) < 0;
+            var array = buffer.array();
+            var end = buffer.position();
+            var lineStart = 0;
+            var lineEnd = indexOfNewline(array, lineStart, end);
+            while (lineEnd >= 0 && !foundAll) {
+                foundAll = scanLine(array, lineStart, lineEnd, collector);
+                lineStart = lineEnd + 1;
+                lineEnd = indexOfNewline(array, lineStart, end);
+            }
+
+            if (endOfStream || foundAll) {
+                if (lineStart < end && !foundAll) {
+                    scanLine(array, lineStart, end, collector);
+                }
+            } else if (lineStart == 0 && end == array.length) {
+                // The line does not fit into the buffer.
+                buffer = ByteBuffer.wrap(Arrays.copyOf(array, array.length * 2));
+                buffer.position(end);
+            } else {
+                System.arraycopy(array, lineStart, array, 0, end - lineStart);
+                buffer.position(end - lineStart);
+            }
+        }
+    }
+
+    private static int indexOfNewline(byte[] array, int start, int end) {
+        for (var i = start; i < end; i++) {
+            if (array[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scans a single line without its line break.
+     *
+     * @return {@code true} if errors have been found for all constraints.
+     */
+    private boolean scanLine(byte[] line, int start, int end, MatchCollector collector) {
+        collector.lineCount++;
+        if (end - start < ERROR_PREFIX.length || line[start] != ERROR_PREFIX[0] || !Arrays.equals(line, start, start + ERROR_PREFIX.length, ERROR_PREFIX, 0, ERROR_PREFIX.length)) {
+            return false;
+        }
+
+        var state = 0;
+        for (var i = start + ERROR_PREFIX.length; i < end; i++) {
+            state = transitions[state][line[i] & 0xff];
+            for (var patternIndex : outputs[state]) {
+                var matchStart = i - patterns[patternIndex].length + 1;
+                if (isWordBoundary(line, start, end, matchStart) && isWordBoundary(line, start, end, i + 1)) {
+                    collector.add(patternIndex, line, start, end);
+                }
+            }
+        }
+        return collector.foundAll();
+    }
+
+    private static boolean isWordBoundary(byte[] line, int start, int end, int position) {
+        var wordBefore = position > start && isWordByte(line[position - 1]);
+        var wordAfter = position < end && isWordByte(line[position]);
+        return wordBefore != wordAfter;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_';
+    }
+
+    private final class MatchCollector {
+        private final Map<String, List<Long>> lineNumbers = new LinkedHashMap<>();
+        private long lineCount;
+
+        void add(int patternIndex, byte[] line, int start, int end) {
+            var constraintName = constraintNames.get(patternIndex);
+            var lines = lineNumbers.get(constraintName);
+            if (lines == null) {
+                lines = new ArrayList<>();
+                lineNumbers.put(constraintName, lines);
+                LOGGER.info("Found expected error for constraint {} in log file: {}", constraintName, new String(line, start, end - start, StandardCharsets.UTF_8).stripTrailing());
+            }
+            if (lines.isEmpty() || lines.getLast() != lineCount) {
+                lines.add(lineCount);
+            }
+        }
+
+        boolean foundAll() {
+            return lineNumbers.size() == constraintNames.size();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The constraints for which errors were found in a validator log.
+ *
+ * @param lineNumbers the 1-based numbers of the log lines with an error, by constraint name. Constraints without errors are not included.
+ */
+public record ConstraintMatches(Map<String, List<Long>> lineNumbers) {
+    /**
+     * Creates a new instance of the ConstraintMatches class.
+     *
+     * @param lineNumbers the 1-based numbers of the log lines with an error, by constraint name. Constraints without errors are not included.
+     */
+    public ConstraintMatches {
+        var copy = new LinkedHashMap<String, List<Long>>();
+        lineNumbers.forEach((constraintName, lines) -> copy.put(constraintName, List.copyOf(lines)));
+        lineNumbers = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Checks if an error was found for the constraint.
+     *
+     * @param constraintName the fully qualified name of the constraint.
+     * @return {@code true} if the log contains an error for the constraint, {@code false} otherwise.
+     */
+    public boolean contains(String constraintName) {
+        return lineNumbers.containsKey(constraintName);
+    }
+
+    /**
+     * Checks if errors were found for all constraints.
+     *
+     * @param constraintNames the fully qualified names of the constraints.
+     * @return {@code true} if the log contains an error for every constraint, {@code false} otherwise.
+     */
+    public boolean containsAll(Collection<String> constraintNames) {
+        return lineNumbers.keySet().containsAll(constraintNames);
+    }
+}
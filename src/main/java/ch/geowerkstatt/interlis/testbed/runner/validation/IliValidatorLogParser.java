@@ -1,24 +1,32 @@
 package ch.geowerkstatt.interlis.testbed.runner.validation;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.regex.Pattern;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Provides static methods that can be used to get information from ilivalidator log files.
  */
 public final class IliValidatorLogParser {
-    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAX_CACHED_SCANNERS = 64;
+    // The scanners of the most recently checked constraints are kept, as the fail cases of a constraint usually run one after another.
+    private static final Map<String, ConstraintErrorScanner> SCANNERS = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ConstraintErrorScanner> eldest) {
+            return size() > MAX_CACHED_SCANNERS;
+        }
+    });
 
     private IliValidatorLogParser() {
     }
 
     /**
      * Checks if the log file contains at least one error for the provided constraint.
+     * Log files compressed with gzip are decompressed while they are read.
      *
      * @param logFile        the path to the log file.
      * @param constraintName the fully qualified name of the constraint to check.
@@ -26,18 +34,42 @@ public final class IliValidatorLogParser {
      * @throws ValidatorException if an unexpected error such as an {@link IOException} occurred.
      */
     public static boolean containsConstraintError(Path logFile, String constraintName) throws ValidatorException {
-        var constraintPattern = Pattern.compile("^Error: .*\\b" + Pattern.quote(constraintName) + "\\b");
-
-        try (var lines = Files.lines(logFile)) {
-            return lines.anyMatch(line -> {
-                if (constraintPattern.matcher(line).find()) {
-                    LOGGER.info("Found expected error for constraint {} in log file: {}", constraintName, line);
-                    return true;
-                }
-                return false;
-            });
+        return findConstraintErrors(logFile, getScanner(constraintName)).contains(constraintName);
+    }
+
+    /**
+     * Searches the log file for errors of several constraints in a single pass.
+     * Log files compressed with gzip are decompressed while they are read.
+     *
+     * @param logFile         the path to the log file.
+     * @param constraintNames the fully qualified names of the constraints to check.
+     * @return the constraints with errors and the lines of the errors.
+     * @throws ValidatorException if an unexpected error such as an {@link IOException} occurred.
+     */
+    public static ConstraintMatches findConstraintErrors(Path logFile, Collection<String> constraintNames) throws ValidatorException {
+        return findConstraintErrors(logFile, new ConstraintErrorScanner(constraintNames));
+    }
+
+    private static ConstraintMatches findConstraintErrors(Path logFile, ConstraintErrorScanner scanner) throws ValidatorException {
+        try {
+            return scanner.scan(logFile);
         } catch (IOException e) {
             throw new ValidatorException(e);
         }
     }
+
+    /**
+     * Checks if the log lines contain at least one error for the provided constraint.
+     *
+     * @param lines          the lines of the log.
+     * @param constraintName the fully qualified name of the constraint to check.
+     * @return {@code true} if the log contains an error for the constraint, {@code false} otherwise.
+     */
+    static boolean containsConstraintError(List<String> lines, String constraintName) {
+        return getScanner(constraintName).scan(lines).contains(constraintName);
+    }
+
+    private static ConstraintErrorScanner getScanner(String constraintName) {
+        return SCANNERS.computeIfAbsent(constraintName, name -> new ConstraintErrorScanner(List.of(name)));
+    }
 }
@@ -0,0 +1,271 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import ch.geowerkstatt.interlis.testbed.runner.timing.ValidationEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Validates transfer files by calling ilivalidator inside the runner process.
+ * <p>
+ * The ilivalidator jar is loaded once through an isolated class loader, so the JVM startup and class loading
+ * is only paid once per run. Because ilivalidator writes its log through a process-wide logger, validations are
+ * serialized. The log files are written by ilivalidator itself and have the same format as with {@link InterlisValidator}.
+ */
+public final class InProcessValidator implements Validator {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String VALIDATOR_CLASS = "org.interlis2.validator.Validator";
+    private static final String MAIN_CLASS = "org.interlis2.validator.Main";
+    private static final String SETTINGS_CLASS = "ch.ehi.basics.settings.Settings";
+    private static final String EHI_LOGGER_CLASS = "ch.ehi.basics.logging.EhiLogger";
+    private static final String STD_LISTENER_CLASS = "ch.ehi.basics.logging.StdListener";
+    private static final String LOG_LISTENER_CLASS = "ch.ehi.basics.logging.LogListener";
+
+    private final TestOptions options;
+    private final ValidatorOptions validatorOptions;
+    private final String modelDirectories;
+    private final URLClassLoader classLoader;
+    private final boolean ownsClassLoader;
+    private final Class<?> settingsClass;
+    private final Method setValueMethod;
+    private final Method setDefaultSettingsMethod;
+    private final Method runValidationMethod;
+    private final String logFileSetting;
+    private final String modelDirectoriesSetting;
+    private final String configFileSetting;
+    private final String appHomeSetting;
+    private final Object lock;
+
+    /**
+     * Creates a new instance of the InProcessValidator class.
+     *
+     * @param options the test options.
+     * @throws ValidatorException if the ilivalidator jar could not be loaded.
+     */
+    public InProcessValidator(TestOptions options) throws ValidatorException {
+        this(options, ValidatorOptions.defaults());
+    }
+
+    /**
+     * Creates a new instance of the InProcessValidator class.
+     *
+     * @param options          the test options.
+     * @param validatorOptions the validator options.
+     * @throws ValidatorException if the ilivalidator jar could not be loaded or the models could not be compiled.
+     */
+    public InProcessValidator(TestOptions options, ValidatorOptions validatorOptions) throws ValidatorException {
+        this(options, validatorOptions, ModelCompiler.getModelDirectories(options, validatorOptions));
+    }
+
+    /**
+     * Creates a new instance of the InProcessValidator class.
+     *
+     * @param options          the test options.
+     * @param modelDirectories the model directories to use for all validations.
+     * @throws ValidatorException if the ilivalidator jar could not be loaded.
+     */
+    InProcessValidator(TestOptions options, String modelDirectories) throws ValidatorException {
+        this(options, ValidatorOptions.defaults(), modelDirectories);
+    }
+
+    private InProcessValidator(TestOptions options, ValidatorOptions validatorOptions, String modelDirectories) throws ValidatorException {
+        this.options = options;
+        this.validatorOptions = validatorOptions;
+        this.modelDirectories = modelDirectories;
+        this.ownsClassLoader = true;
+        this.lock = new Object();
+
+        LOGGER.info("Loading ilivalidator from {}", options.ilivalidatorPath());
+        classLoader = createClassLoader(options.ilivalidatorPath());
+        try {
+            var validatorClass = classLoader.loadClass(VALIDATOR_CLASS);
+            settingsClass = classLoader.loadClass(SETTINGS_CLASS);
+            setValueMethod = settingsClass.getMethod("setValue", String.class, String.class);
+            runValidationMethod = validatorClass.getMethod("runValidation", String[].class, settingsClass);
+            setDefaultSettingsMethod = findDefaultSettingsMethod(settingsClass);
+
+            logFileSetting = getSettingName(validatorClass, "SETTING_LOGFILE");
+            modelDirectoriesSetting = getSettingName(validatorClass, "SETTING_ILIDIRS");
+            configFileSetting = getSettingName(validatorClass, "SETTING_CONFIGFILE");
+            appHomeSetting = getSettingName(validatorClass, "SETTING_APPHOME");
+
+            disableConsoleOutput();
+        } catch (ReflectiveOperationException e) {
+            close();
+            throw new ValidatorException("The file at " + options.ilivalidatorPath() + " does not provide a supported ilivalidator version.", e);
+        }
+    }
+
+    private InProcessValidator(InProcessValidator sharedValidator, TestOptions options) throws ValidatorException {
+        this.options = options;
+        this.validatorOptions = sharedValidator.validatorOptions;
+        this.modelDirectories = ModelCompiler.getModelDirectories(options, validatorOptions);
+        this.classLoader = sharedValidator.classLoader;
+        this.ownsClassLoader = false;
+        this.settingsClass = sharedValidator.settingsClass;
+        this.setValueMethod = sharedValidator.setValueMethod;
+        this.setDefaultSettingsMethod = sharedValidator.setDefaultSettingsMethod;
+        this.runValidationMethod = sharedValidator.runValidationMethod;
+        this.logFileSetting = sharedValidator.logFileSetting;
+        this.modelDirectoriesSetting = sharedValidator.modelDirectoriesSetting;
+        this.configFileSetting = sharedValidator.configFileSetting;
+        this.appHomeSetting = sharedValidator.appHomeSetting;
+        this.lock = sharedValidator.lock;
+    }
+
+    @Override
+    public boolean validate(Path filePath, Path logFile) throws ValidatorException {
+        return validate(filePath, logFile, modelDirectories);
+    }
+
+    /**
+     * Validates the given file with the provided model directories.
+     *
+     * @param filePath         the path to the file to validate.
+     * @param logFile          the path to the log file.
+     * @param modelDirectories the model directories to use for the validation.
+     * @return {@code true} if the validation was successful, {@code false} otherwise.
+     * @throws ValidatorException if the validation could not be performed.
+     */
+    boolean validate(Path filePath, Path logFile, String modelDirectories) throws ValidatorException {
+        LOGGER.info("Validating {} with log file {}", filePath, logFile);
+        try {
+            Files.createDirectories(logFile.getParent());
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+
+        var event = new ValidationEvent();
+        event.begin();
+        boolean valid;
+        try (var measurement = PhaseTimer.start(Phase.VALIDATION)) {
+            valid = validateLocked(filePath, logFile, modelDirectories);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setFile(filePath);
+            event.setFileSize(filePath.toFile().length());
+            event.setEngine("in-process");
+            event.setValid(valid);
+            event.commit();
+        }
+        return valid;
+    }
+
+    private boolean validateLocked(Path filePath, Path logFile, String modelDirectories) throws ValidatorException {
+        synchronized (lock) {
+            var currentThread = Thread.currentThread();
+            var previousClassLoader = currentThread.getContextClassLoader();
+            currentThread.setContextClassLoader(classLoader);
+            try {
+                var settings = createSettings(logFile, modelDirectories);
+                var dataFiles = new String[] {filePath.toString()};
+                return (boolean) runValidationMethod.invoke(null, dataFiles, settings);
+            } catch (InvocationTargetException e) {
+                throw new ValidatorException("ilivalidator failed to validate " + filePath + ".", e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new ValidatorException(e);
+            } finally {
+                currentThread.setContextClassLoader(previousClassLoader);
+            }
+        }
+    }
+
+    @Override
+    public Optional<ValidatorOptions> getOptions() {
+        return Optional.of(validatorOptions);
+    }
+
+    @Override
+    public Validator forTestbed(TestOptions testbedOptions) throws ValidatorException {
+        if (testbedOptions.equals(options)) {
+            return this;
+        }
+        return new InProcessValidator(this, testbedOptions);
+    }
+
+    @Override
+    public void close() {
+        if (!ownsClassLoader) {
+            return;
+        }
+
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close the class loader of ilivalidator.", e);
+        }
+    }
+
+    private Object createSettings(Path logFile, String modelDirectories) throws ReflectiveOperationException {
+        var settings = settingsClass.getConstructor().newInstance();
+        if (setDefaultSettingsMethod != null) {
+            setDefaultSettingsMethod.invoke(null, settings);
+        }
+
+        setValueMethod.invoke(settings, appHomeSetting, options.ilivalidatorPath().getParent().toString());
+        setValueMethod.invoke(settings, modelDirectoriesSetting, modelDirectories);
+        setValueMethod.invoke(settings, logFileSetting, logFile.toString());
+        if (options.ilivalidatorConfigPath().isPresent()) {
+            setValueMethod.invoke(settings, configFileSetting, options.ilivalidatorConfigPath().get().toString());
+        }
+        return settings;
+    }
+
+    private Method findDefaultSettingsMethod(Class<?> settings) {
+        try {
+            return classLoader.loadClass(MAIN_CLASS).getMethod("setDefaultIliValidatorSettings", settings);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("ilivalidator does not provide default settings, using empty settings.");
+            return null;
+        }
+    }
+
+    private void disableConsoleOutput() {
+        try {
+            var ehiLogger = classLoader.loadClass(EHI_LOGGER_CLASS).getMethod("getInstance").invoke(null);
+            var stdListener = classLoader.loadClass(STD_LISTENER_CLASS).getMethod("getInstance").invoke(null);
+            var logListenerClass = classLoader.loadClass(LOG_LISTENER_CLASS);
+            ehiLogger.getClass().getMethod("removeListener", logListenerClass).invoke(ehiLogger, stdListener);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Could not disable the console output of ilivalidator.", e);
+        }
+    }
+
+    private static String getSettingName(Class<?> validatorClass, String fieldName) throws ReflectiveOperationException {
+        return (String) validatorClass.getField(fieldName).get(null);
+    }
+
+    /**
+     * Creates an isolated class loader for the ilivalidator jar.
+     *
+     * @param jarPath the path to ilivalidator.jar.
+     * @return the class loader.
+     * @throws ValidatorException if the jar does not exist.
+     */
+    static URLClassLoader createClassLoader(Path jarPath) throws ValidatorException {
+        if (!Files.isRegularFile(jarPath)) {
+            throw new ValidatorException("ilivalidator not found at " + jarPath + ".");
+        }
+
+        try {
+            var urls = new URL[] {jarPath.toUri().toURL()};
+            return new URLClassLoader("ilivalidator", urls, ClassLoader.getPlatformClassLoader());
+        } catch (MalformedURLException e) {
+            throw new ValidatorException(e);
+        }
+    }
+}
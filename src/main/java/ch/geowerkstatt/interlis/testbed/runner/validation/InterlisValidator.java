@@ -1,27 +1,92 @@
 package ch.geowerkstatt.interlis.testbed.runner.validation;
 
 import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import ch.geowerkstatt.interlis.testbed.runner.timing.ValidationEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Validates transfer files by running ilivalidator in separate processes.
+ * <p>
+ * By default, a new process is started for every file. If a worker pool size is configured,
+ * the validations are instead sent to a pool of long-lived worker processes that load ilivalidator only once.
+ */
 public final class InterlisValidator implements Validator {
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final int LOG_BUFFER_SIZE = 1024 * 1024;
+    private static final String PROCESS_ENGINE = "process";
+    private static final String WORKER_ENGINE = "worker";
+    private static final int ABORTED_EXIT_CODE = -1;
 
     private final TestOptions options;
+    private final ValidatorOptions validatorOptions;
+    private final String modelDirectories;
+    private final ValidatorWorkerPool workerPool;
+    private final boolean ownsWorkerPool;
+    private final ClassDataSharingArchive classDataSharingArchive;
+    private final Set<Process> runningProcesses = ConcurrentHashMap.newKeySet();
 
     /**
-     * Creates a new instance of the InterlisValidator class.
+     * Creates a new instance of the InterlisValidator class that starts a new process for every validation.
      *
      * @param options the test options.
      */
     public InterlisValidator(TestOptions options) {
+        this(options, getModelDirectories(options), ValidatorOptions.defaults(), null);
+    }
+
+    /**
+     * Creates a new instance of the InterlisValidator class.
+     *
+     * @param options          the test options.
+     * @param validatorOptions the validator options.
+     * @throws ValidatorException if the models could not be compiled.
+     */
+    public InterlisValidator(TestOptions options, ValidatorOptions validatorOptions) throws ValidatorException {
+        this(options, ModelCompiler.getModelDirectories(options, validatorOptions), validatorOptions, createClassDataSharingArchive(options, validatorOptions));
+    }
+
+    private InterlisValidator(TestOptions options, String modelDirectories, ValidatorOptions validatorOptions, ClassDataSharingArchive classDataSharingArchive) {
         this.options = options;
+        this.validatorOptions = validatorOptions;
+        this.modelDirectories = modelDirectories;
+        this.ownsWorkerPool = true;
+        this.classDataSharingArchive = classDataSharingArchive;
 
         LOGGER.info("Using ilivalidator at {}", options.ilivalidatorPath());
+        if (validatorOptions.workerCount() > 0) {
+            LOGGER.info("Using up to {} validator worker processes with {} validations each.", validatorOptions.workerCount(), validatorOptions.maxJobsPerWorker());
+            workerPool = new ValidatorWorkerPool(options, validatorOptions.workerCount(), validatorOptions.maxJobsPerWorker(), validatorOptions.jvmArguments());
+        } else {
+            workerPool = null;
+        }
+    }
+
+    private InterlisValidator(InterlisValidator sharedValidator, TestOptions options) throws ValidatorException {
+        this.options = options;
+        this.validatorOptions = sharedValidator.validatorOptions;
+        this.modelDirectories = ModelCompiler.getModelDirectories(options, validatorOptions);
+        this.workerPool = sharedValidator.workerPool;
+        this.ownsWorkerPool = false;
+        this.classDataSharingArchive = sharedValidator.classDataSharingArchive;
+    }
+
+    // The archive only contains the classes loaded by ilivalidator started as a jar, the worker processes start without it.
+    private static ClassDataSharingArchive createClassDataSharingArchive(TestOptions options, ValidatorOptions validatorOptions) throws ValidatorException {
+        if (validatorOptions.classDataSharing().isEmpty() || validatorOptions.workerCount() > 0) {
+            return null;
+        }
+        return ClassDataSharingArchive.create(options.ilivalidatorPath(), validatorOptions.jvmArguments(), validatorOptions.classDataSharing().get());
     }
 
     @Override
@@ -29,27 +94,206 @@ public final class InterlisValidator implements Validator {
         LOGGER.info("Validating {} with log file {}", filePath, logFile);
         try {
             Files.createDirectories(logFile.getParent());
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
 
-            var processBuilder = new ProcessBuilder()
-                    .command(
-                            "java", "-jar", options.ilivalidatorPath().toString(),
-                            "--log", logFile.toString(),
-                            "--modeldir", options.basePath() + ";%ITF_DIR;http://models.interlis.ch/;%JAR_DIR/ilimodels")
-                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
-                    .redirectError(ProcessBuilder.Redirect.DISCARD)
-                    .directory(options.basePath().toFile());
+        var event = new ValidationEvent();
+        event.begin();
+        if (workerPool != null) {
+            var valid = workerPool.validate(filePath, logFile, modelDirectories);
+            commitEvent(event, filePath, WORKER_ENGINE, valid);
+            return valid;
+        }
 
-            if (options.ilivalidatorConfigPath().isPresent()) {
-                processBuilder.command().add("--config");
-                processBuilder.command().add(options.ilivalidatorConfigPath().get().toString());
+        var classDataSharingArguments = getClassDataSharingArguments();
+        var exitCode = ABORTED_EXIT_CODE;
+        try {
+            var processBuilder = createProcessBuilder(filePath, logFile, classDataSharingArguments)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD);
+            try (var measurement = PhaseTimer.start(Phase.VALIDATION)) {
+                var processStart = System.nanoTime();
+                var process = startProcess(processBuilder);
+                exitCode = waitForProcess(process);
+                event.setProcessResult(System.nanoTime() - processStart, exitCode);
+                commitEvent(event, filePath, PROCESS_ENGINE, exitCode == 0);
+                return exitCode == 0;
             }
+        } catch (IOException | InterruptedException e) {
+            throw new ValidatorException(e);
+        } finally {
+            completeClassDataSharing(classDataSharingArguments, exitCode);
+        }
+    }
 
-            processBuilder.command().add(filePath.toString());
-            var process = processBuilder.start();
-            var exitCode = process.waitFor();
-            return exitCode == 0;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When a new process is started for every file, ilivalidator does not write a log file. Its diagnostics are read
+     * from the error stream of the process instead and kept in memory, up to a buffer of about one million characters.
+     * Larger logs are written to the log file. The worker processes always write the log file.
+     */
+    @Override
+    public ValidationResult validateCapturingLog(Path filePath, Path logFile) throws ValidatorException {
+        if (workerPool != null) {
+            return Validator.super.validateCapturingLog(filePath, logFile);
+        }
+
+        LOGGER.info("Validating {}", filePath);
+        var classDataSharingArguments = getClassDataSharingArguments();
+        var exitCode = ABORTED_EXIT_CODE;
+        try {
+            var processBuilder = createProcessBuilder(filePath, null, classDataSharingArguments)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            var event = new ValidationEvent();
+            event.begin();
+            try (var measurement = PhaseTimer.start(Phase.VALIDATION)) {
+                var processStart = System.nanoTime();
+                var process = startProcess(processBuilder);
+                ValidatorLog log;
+                try {
+                    log = ValidatorLog.capture(process.getErrorStream(), LOG_BUFFER_SIZE, logFile);
+                } catch (IOException e) {
+                    destroyProcess(process);
+                    throw e;
+                }
+                exitCode = waitForProcess(process);
+                event.setProcessResult(System.nanoTime() - processStart, exitCode);
+                commitEvent(event, filePath, PROCESS_ENGINE, exitCode == 0);
+                return new ValidationResult(exitCode == 0, log);
+            }
         } catch (IOException | InterruptedException e) {
             throw new ValidatorException(e);
+        } finally {
+            completeClassDataSharing(classDataSharingArguments, exitCode);
+        }
+    }
+
+    private List<String> getClassDataSharingArguments() {
+        return classDataSharingArchive != null ? classDataSharingArchive.getJvmArguments() : List.of();
+    }
+
+    private void completeClassDataSharing(List<String> classDataSharingArguments, int exitCode) {
+        if (classDataSharingArchive != null) {
+            classDataSharingArchive.processExited(classDataSharingArguments, exitCode);
+        }
+    }
+
+    private Process startProcess(ProcessBuilder processBuilder) throws IOException {
+        var process = processBuilder.start();
+        runningProcesses.add(process);
+        return process;
+    }
+
+    private int waitForProcess(Process process) throws InterruptedException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            destroyProcess(process);
+            throw e;
+        } finally {
+            runningProcesses.remove(process);
+        }
+    }
+
+    private void destroyProcess(Process process) {
+        runningProcesses.remove(process);
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Kills the ilivalidator processes started by this validator and the worker processes that are busy.
+     */
+    @Override
+    public void cancelRunningValidations() {
+        for (var process : List.copyOf(runningProcesses)) {
+            LOGGER.info("Stopping ilivalidator process {}.", process.pid());
+            destroyProcess(process);
+        }
+        if (workerPool != null) {
+            workerPool.destroyBusyWorkers();
+        }
+    }
+
+    private static void commitEvent(ValidationEvent event, Path filePath, String engine, boolean valid) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setFile(filePath);
+            event.setFileSize(filePath.toFile().length());
+            event.setEngine(engine);
+            event.setValid(valid);
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the java launcher of the JDK that runs the testbed runner.
+     * The ilivalidator processes and the worker processes run on the same JDK, so they can load the classes of the runner
+     * and map the class data sharing archive, which is only valid for the JDK that created it.
+     *
+     * @return the path to the java launcher.
+     */
+    static String getJavaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private ProcessBuilder createProcessBuilder(Path filePath, Path logFile, List<String> classDataSharingArguments) {
+        var processBuilder = new ProcessBuilder()
+                .command(getJavaCommand())
+                .directory(options.basePath().toFile());
+        processBuilder.command().addAll(validatorOptions.jvmArguments());
+        processBuilder.command().addAll(classDataSharingArguments);
+        processBuilder.command().add("-jar");
+        processBuilder.command().add(options.ilivalidatorPath().toString());
+
+        if (logFile != null) {
+            processBuilder.command().add("--log");
+            processBuilder.command().add(logFile.toString());
         }
+
+        processBuilder.command().add("--modeldir");
+        processBuilder.command().add(modelDirectories);
+
+        if (options.ilivalidatorConfigPath().isPresent()) {
+            processBuilder.command().add("--config");
+            processBuilder.command().add(options.ilivalidatorConfigPath().get().toString());
+        }
+
+        processBuilder.command().add(filePath.toString());
+        return processBuilder;
+    }
+
+    @Override
+    public Optional<ValidatorOptions> getOptions() {
+        return Optional.of(validatorOptions);
+    }
+
+    @Override
+    public Validator forTestbed(TestOptions testbedOptions) throws ValidatorException {
+        if (testbedOptions.equals(options)) {
+            return this;
+        }
+        return new InterlisValidator(this, testbedOptions);
+    }
+
+    @Override
+    public void close() {
+        if (workerPool != null && ownsWorkerPool) {
+            workerPool.close();
+        }
+    }
+
+    /**
+     * Gets the model directories that ilivalidator uses to resolve the models of the testbed.
+     *
+     * @param options the test options.
+     * @return the model directories separated by semicolons.
+     */
+    static String getModelDirectories(TestOptions options) {
+        return options.basePath() + ";%ITF_DIR;http://models.interlis.ch/;%JAR_DIR/ilimodels";
     }
 }
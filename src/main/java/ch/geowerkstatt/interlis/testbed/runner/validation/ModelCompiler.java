@@ -0,0 +1,118 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the INTERLIS models of a testbed with the ili2c compiler bundled in the ilivalidator jar.
+ * <p>
+ * ilivalidator does not accept an already compiled model, so the result of the compilation is the list of model directories
+ * that contain exactly the model files the testbed depends on. Every validation still compiles the models, but finds them
+ * locally and does not have to search the model repositories again. Errors in the models are reported before the first validation.
+ */
+final class ModelCompiler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String ILI_MANAGER_CLASS = "ch.interlis.ilirepository.IliManager";
+    private static final String COMPILER_CLASS = "ch.interlis.ili2c.Ili2c";
+    private static final String CONFIGURATION_CLASS = "ch.interlis.ili2c.config.Configuration";
+    private static final String ITF_DIR = "%ITF_DIR";
+    private static final String JAR_DIR = "%JAR_DIR";
+
+    private ModelCompiler() {
+    }
+
+    /**
+     * Gets the model directories to use for all validations of the testbed.
+     *
+     * @param options          the test options.
+     * @param validatorOptions the validator options.
+     * @return the model directories, based on the compiled models if {@link ValidatorOptions#compileModels()} is set.
+     * @throws ValidatorException if the models could not be compiled.
+     */
+    static String getModelDirectories(TestOptions options, ValidatorOptions validatorOptions) throws ValidatorException {
+        if (!validatorOptions.compileModels()) {
+            return InterlisValidator.getModelDirectories(options);
+        }
+
+        try (var classLoader = InProcessValidator.createClassLoader(options.ilivalidatorPath())) {
+            return compile(classLoader, options);
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+
+    private static String compile(ClassLoader classLoader, TestOptions options) throws ValidatorException {
+        var defaultModelDirectories = InterlisValidator.getModelDirectories(options);
+        var modelFiles = findModelFiles(options);
+        if (modelFiles.isEmpty()) {
+            LOGGER.warn("No model files found in {}, models are resolved for every validation.", options.basePath());
+            return defaultModelDirectories;
+        }
+
+        LOGGER.info("Compiling models {}", modelFiles);
+        var currentThread = Thread.currentThread();
+        var previousClassLoader = currentThread.getContextClassLoader();
+        currentThread.setContextClassLoader(classLoader);
+        try {
+            var repositories = defaultModelDirectories
+                    .replace(ITF_DIR, options.basePath().toString())
+                    .replace(JAR_DIR, options.ilivalidatorPath().getParent().toString())
+                    .split(";");
+
+            var iliManager = classLoader.loadClass(ILI_MANAGER_CLASS).getConstructor().newInstance();
+            iliManager.getClass().getMethod("setRepositories", String[].class).invoke(iliManager, (Object) repositories);
+            var configuration = iliManager.getClass().getMethod("getConfigWithFiles", ArrayList.class).invoke(iliManager, modelFiles);
+
+            var configurationClass = classLoader.loadClass(CONFIGURATION_CLASS);
+            var transferDescription = classLoader.loadClass(COMPILER_CLASS).getMethod("runCompiler", configurationClass).invoke(null, configuration);
+            if (transferDescription == null) {
+                throw new ValidatorException("The models in " + options.basePath() + " could not be compiled.");
+            }
+
+            var modelDirectories = getModelDirectories(configuration, configurationClass);
+            LOGGER.info("Compiled models successfully, using model directories {}", modelDirectories);
+            return String.join(";", modelDirectories) + ";" + defaultModelDirectories;
+        } catch (InvocationTargetException e) {
+            throw new ValidatorException("The models in " + options.basePath() + " could not be compiled.", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new ValidatorException("The file at " + options.ilivalidatorPath() + " does not provide a supported ili2c version.", e);
+        } finally {
+            currentThread.setContextClassLoader(previousClassLoader);
+        }
+    }
+
+    private static List<String> getModelDirectories(Object configuration, Class<?> configurationClass) throws ReflectiveOperationException {
+        var fileEntryCount = (int) configurationClass.getMethod("getSizeFileEntry").invoke(configuration);
+        var getFileEntry = configurationClass.getMethod("getFileEntry", int.class);
+
+        var directories = new LinkedHashSet<String>();
+        for (var i = 0; i < fileEntryCount; i++) {
+            var fileEntry = getFileEntry.invoke(configuration, i);
+            var fileName = (String) fileEntry.getClass().getMethod("getFilename").invoke(fileEntry);
+            var parent = Path.of(fileName).toAbsolutePath().getParent();
+            if (parent != null) {
+                directories.add(parent.toString());
+            }
+        }
+        return new ArrayList<>(directories);
+    }
+
+    private static ArrayList<String> findModelFiles(TestOptions options) throws ValidatorException {
+        try {
+            return options.modelFiles().stream()
+                    .map(Path::toString)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new ValidatorException(e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+/**
+ * The result of a validation together with the diagnostics of the validator.
+ *
+ * @param valid {@code true} if the validation was successful, {@code false} otherwise.
+ * @param log   the diagnostics of the validator.
+ */
+public record ValidationResult(boolean valid, ValidatorLog log) {
+}
@@ -1,8 +1,17 @@
 package ch.geowerkstatt.interlis.testbed.runner.validation;
 
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
 
-public interface Validator {
+/**
+ * Validates transfer files and checks the resulting logs.
+ * <p>
+ * Implementations must be safe to use from multiple threads, as the runner can validate several fail cases in parallel.
+ */
+public interface Validator extends AutoCloseable {
     /**
      * Validates the given file.
      *
@@ -13,6 +22,19 @@ public interface Validator {
      */
     boolean validate(Path filePath, Path logFile) throws ValidatorException;
 
+    /**
+     * Validates the given file and keeps the diagnostics of the validator in memory, if supported by the validator.
+     * The default implementation writes the diagnostics to the log file.
+     *
+     * @param filePath the path to the file to validate.
+     * @param logFile  the path to the log file, used if the diagnostics are not kept in memory.
+     * @return the result of the validation and the diagnostics of the validator.
+     * @throws ValidatorException if the validation could not be performed.
+     */
+    default ValidationResult validateCapturingLog(Path filePath, Path logFile) throws ValidatorException {
+        return new ValidationResult(validate(filePath, logFile), ValidatorLog.ofFile(logFile));
+    }
+
     /**
      * Checks if the log file contains at least one error for the provided constraint.
      *
@@ -24,4 +46,76 @@ public interface Validator {
     default boolean containsConstraintError(Path logFile, String constraintName) throws ValidatorException {
         return IliValidatorLogParser.containsConstraintError(logFile, constraintName);
     }
+
+    /**
+     * Checks if the log contains at least one error for the provided constraint.
+     *
+     * @param log            the diagnostics of the validator.
+     * @param constraintName the fully qualified name of the constraint to check.
+     * @return {@code true} if the log contains an error for the constraint, {@code false} otherwise.
+     * @throws ValidatorException if an unexpected error occurred.
+     */
+    default boolean containsConstraintError(ValidatorLog log, String constraintName) throws ValidatorException {
+        return log.containsConstraintError(constraintName);
+    }
+
+    /**
+     * Searches the log file for errors of several constraints in a single pass.
+     *
+     * @param logFile         the path to the log file.
+     * @param constraintNames the fully qualified names of the constraints to check.
+     * @return the constraints with errors and the lines of the errors.
+     * @throws ValidatorException if an unexpected error occurred.
+     */
+    default ConstraintMatches findConstraintErrors(Path logFile, Collection<String> constraintNames) throws ValidatorException {
+        return IliValidatorLogParser.findConstraintErrors(logFile, constraintNames);
+    }
+
+    /**
+     * Searches the log for errors of several constraints in a single pass.
+     *
+     * @param log             the diagnostics of the validator.
+     * @param constraintNames the fully qualified names of the constraints to check.
+     * @return the constraints with errors and the lines of the errors.
+     * @throws ValidatorException if an unexpected error occurred.
+     */
+    default ConstraintMatches findConstraintErrors(ValidatorLog log, Collection<String> constraintNames) throws ValidatorException {
+        return log.findConstraintErrors(constraintNames);
+    }
+
+    /**
+     * Gets the options of the validator that may change the results of the validations.
+     *
+     * @return the validator options, or an empty optional if the validator is not configured by validator options.
+     */
+    default Optional<ValidatorOptions> getOptions() {
+        return Optional.empty();
+    }
+
+    /**
+     * Gets a validator for another testbed that shares the resources of this validator, such as loaded classes or worker processes.
+     * The returned validator must not be used after this validator has been closed.
+     * Validators that do not depend on the testbed return themselves.
+     *
+     * @param testbedOptions the test options of the other testbed.
+     * @return the validator for the testbed.
+     * @throws ValidatorException if the validator could not be prepared for the testbed.
+     */
+    default Validator forTestbed(TestOptions testbedOptions) throws ValidatorException {
+        return this;
+    }
+
+    /**
+     * Stops the validations that are currently running on other threads, if supported by the validator.
+     * The interrupted validations fail with a {@link ValidatorException} or an invalid result.
+     */
+    default void cancelRunningValidations() {
+    }
+
+    /**
+     * Releases the resources held by the validator.
+     */
+    @Override
+    default void close() {
+    }
 }
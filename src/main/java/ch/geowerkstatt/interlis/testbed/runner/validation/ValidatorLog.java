@@ -0,0 +1,175 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The diagnostics of a single validation, either captured in memory or stored in a log file.
+ */
+public final class ValidatorLog {
+    private final Path file;
+    private final List<String> lines;
+
+    private ValidatorLog(Path file, List<String> lines) {
+        this.file = file;
+        this.lines = lines;
+    }
+
+    /**
+     * Creates a log that is stored in a log file.
+     *
+     * @param logFile the path to the log file.
+     * @return the log.
+     */
+    public static ValidatorLog ofFile(Path logFile) {
+        return new ValidatorLog(logFile, null);
+    }
+
+    /**
+     * Creates a log from lines captured in memory.
+     *
+     * @param lines the lines of the log.
+     * @return the log.
+     */
+    public static ValidatorLog ofLines(List<String> lines) {
+        return new ValidatorLog(null, List.copyOf(lines));
+    }
+
+    /**
+     * Captures the diagnostics written to the stream until the stream is closed.
+     * The lines are kept in memory as long as they fit into the buffer. When the buffer is exceeded,
+     * all lines are written to the overflow file instead and the log is stored in this file.
+     *
+     * @param stream       the stream to read the diagnostics from.
+     * @param bufferSize   the maximum number of characters kept in memory.
+     * @param overflowFile the path to the log file that is used if the buffer is exceeded.
+     * @return the captured log.
+     * @throws IOException if the stream could not be read or the overflow file could not be written.
+     */
+    static ValidatorLog capture(InputStream stream, int bufferSize, Path overflowFile) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        var capturedLines = new ArrayList<String>();
+        var capturedSize = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            capturedLines.add(line);
+            capturedSize += line.length() + 1;
+            if (capturedSize > bufferSize) {
+                writeOverflow(reader, capturedLines, overflowFile);
+                return ofFile(overflowFile);
+            }
+        }
+        return ofLines(capturedLines);
+    }
+
+    private static void writeOverflow(BufferedReader reader, List<String> capturedLines, Path overflowFile) throws IOException {
+        Files.createDirectories(overflowFile.getParent());
+        try (Writer writer = Files.newBufferedWriter(overflowFile, StandardCharsets.UTF_8)) {
+            for (var capturedLine : capturedLines) {
+                writer.write(capturedLine);
+                writer.write('\n');
+            }
+            capturedLines.clear();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Gets the log file if the log is stored on disk.
+     *
+     * @return the path to the log file, or an empty optional if the log is kept in memory.
+     */
+    public Optional<Path> file() {
+        return Optional.ofNullable(file);
+    }
+
+    /**
+     * Checks if the log contains at least one error for the provided constraint.
+     *
+     * @param constraintName the fully qualified name of the constraint to check.
+     * @return {@code true} if the log contains an error for the constraint, {@code false} otherwise.
+     * @throws ValidatorException if the log file could not be read.
+     */
+    public boolean containsConstraintError(String constraintName) throws ValidatorException {
+        if (file != null) {
+            return IliValidatorLogParser.containsConstraintError(file, constraintName);
+        }
+        return IliValidatorLogParser.containsConstraintError(lines, constraintName);
+    }
+
+    /**
+     * Searches the log for errors of several constraints in a single pass.
+     *
+     * @param constraintNames the fully qualified names of the constraints to check.
+     * @return the constraints with errors and the lines of the errors.
+     * @throws ValidatorException if the log file could not be read.
+     */
+    public ConstraintMatches findConstraintErrors(Collection<String> constraintNames) throws ValidatorException {
+        if (file != null) {
+            return IliValidatorLogParser.findConstraintErrors(file, constraintNames);
+        }
+        return new ConstraintErrorScanner(constraintNames).scan(lines);
+    }
+
+    /**
+     * Writes the log to the given file, unless it is already stored there.
+     *
+     * @param logFile the path to the log file.
+     * @throws IOException if the log file could not be written.
+     */
+    public void writeTo(Path logFile) throws IOException {
+        if (file != null && file.toAbsolutePath().normalize().equals(logFile.toAbsolutePath().normalize())) {
+            return;
+        }
+
+        Files.createDirectories(logFile.getParent());
+        if (file != null) {
+            Files.copy(file, logFile, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.write(logFile, lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes the log compressed with gzip to the given file.
+     * Captured lines are compressed as they are written, without writing an uncompressed log file first.
+     *
+     * @param compressedFile the path to the compressed log file.
+     * @throws IOException if the log could not be read or the compressed file could not be written.
+     */
+    public void writeCompressedTo(Path compressedFile) throws IOException {
+        Files.createDirectories(compressedFile.getParent());
+        try (var output = new GZIPOutputStream(Files.newOutputStream(compressedFile))) {
+            if (file != null) {
+                Files.copy(file, output);
+                return;
+            }
+
+            var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (var line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Options that control how ilivalidator is run.
+ *
+ * @param workerCount      the maximum number of long-lived worker processes, or {@code 0} to start a new process for every validation.
+ * @param maxJobsPerWorker the number of validations after which a worker process is replaced.
+ * @param compileModels    whether the models of the testbed are compiled before the first validation to resolve the model directories.
+ * @param jvmArguments     additional arguments for the JVMs of the ilivalidator processes, for example the heap size or the garbage collector.
+ * @param classDataSharing the cache directory of the Class Data Sharing archive that is used to start the ilivalidator processes,
+ *                         or an empty optional to start them without an archive.
+ */
+public record ValidatorOptions(int workerCount, int maxJobsPerWorker, boolean compileModels, List<String> jvmArguments, Optional<Path> classDataSharing) {
+    private static final int DEFAULT_MAX_JOBS_PER_WORKER = 100;
+
+    /**
+     * Gets the options that start a new ilivalidator process for every validation.
+     *
+     * @return the default options.
+     */
+    public static ValidatorOptions defaults() {
+        return new ValidatorOptions(0, DEFAULT_MAX_JOBS_PER_WORKER, false, List.of(), Optional.empty());
+    }
+
+    /**
+     * Gets the default number of validations after which a worker process is replaced.
+     *
+     * @return the default number of validations per worker.
+     */
+    public static int defaultMaxJobsPerWorker() {
+        return DEFAULT_MAX_JOBS_PER_WORKER;
+    }
+}
@@ -0,0 +1,82 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Entry point of a long-lived validator worker process.
+ * <p>
+ * The worker loads ilivalidator once and then handles validation requests read line by line from stdin.
+ * Each request consists of the {@link #VALIDATE_COMMAND} followed by the path of the file to validate, the path of the log file
+ * and the model directories, separated by tabs. As the model directories are part of the request, a worker can validate files of several testbeds. The worker answers every request with a single line on stdout, either {@link #RESULT_RESPONSE}
+ * followed by the validation result or {@link #ERROR_RESPONSE} followed by an error message.
+ * All other output of the worker is redirected to stderr.
+ */
+public final class ValidatorWorker {
+    static final String SEPARATOR = "\t";
+    static final String READY_RESPONSE = "READY";
+    static final String VALIDATE_COMMAND = "VALIDATE";
+    static final String RESULT_RESPONSE = "RESULT";
+    static final String ERROR_RESPONSE = "ERROR";
+
+    private ValidatorWorker() {
+    }
+
+    /**
+     * Worker process entry point.
+     *
+     * @param args the path to ilivalidator.jar, the working directory and optionally the path to the ilivalidator config file.
+     */
+    public static void main(String[] args) {
+        var protocolOut = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        // The logger is only created once stdout is redirected, so the console appender cannot write into the protocol.
+        var logger = LogManager.getLogger(ValidatorWorker.class);
+
+        if (args.length < 2) {
+            logger.error("Usage: ValidatorWorker <ilivalidator.jar> <working directory> [config file]");
+            System.exit(1);
+        }
+
+        var configPath = args.length > 2 ? Optional.of(Path.of(args[2])) : Optional.<Path>empty();
+        var options = new TestOptions(Path.of(args[1]), Path.of(args[0]), configPath);
+        try (var validator = new InProcessValidator(options, InterlisValidator.getModelDirectories(options))) {
+            protocolOut.println(READY_RESPONSE);
+            handleRequests(validator, protocolOut, logger);
+        } catch (ValidatorException | IOException e) {
+            logger.error("Validator worker failed.", e);
+            System.exit(1);
+        }
+    }
+
+    private static void handleRequests(InProcessValidator validator, PrintStream protocolOut, Logger logger) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var parts = line.split(SEPARATOR, -1);
+            if (parts.length != 4 || !VALIDATE_COMMAND.equals(parts[0])) {
+                protocolOut.println(ERROR_RESPONSE + SEPARATOR + "Invalid request: " + line);
+                continue;
+            }
+
+            try {
+                var valid = validator.validate(Path.of(parts[1]), Path.of(parts[2]), parts[3]);
+                protocolOut.println(RESULT_RESPONSE + SEPARATOR + valid);
+            } catch (ValidatorException e) {
+                logger.error("Validation of {} failed.", parts[1], e);
+                protocolOut.println(ERROR_RESPONSE + SEPARATOR + String.valueOf(e.getMessage()).replace('\n', ' '));
+            }
+        }
+    }
+}
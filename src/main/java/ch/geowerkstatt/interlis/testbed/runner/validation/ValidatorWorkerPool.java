@@ -0,0 +1,259 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of long-lived worker processes that each run a {@link ValidatorWorker}.
+ * <p>
+ * Workers are started on demand up to the configured pool size. A worker is replaced after it handled
+ * the configured number of validations or when it crashed.
+ */
+final class ValidatorWorkerPool implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final TestOptions options;
+    private final int maxJobsPerWorker;
+    private final List<String> jvmArguments;
+    private final Class<?> workerClass;
+    private final Semaphore available;
+    private final LinkedBlockingQueue<WorkerProcess> idleWorkers = new LinkedBlockingQueue<>();
+    private final List<WorkerProcess> allWorkers = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Creates a new instance of the ValidatorWorkerPool class.
+     *
+     * @param options          the test options.
+     * @param size             the maximum number of worker processes.
+     * @param maxJobsPerWorker the number of validations after which a worker process is replaced.
+     * @param jvmArguments     additional arguments for the JVMs of the worker processes.
+     */
+    ValidatorWorkerPool(TestOptions options, int size, int maxJobsPerWorker, List<String> jvmArguments) {
+        this(options, size, maxJobsPerWorker, jvmArguments, ValidatorWorker.class);
+    }
+
+    /**
+     * Creates a new instance of the ValidatorWorkerPool class whose worker processes run the main method of the given class.
+     * The class has to implement the protocol of {@link ValidatorWorker} and be on the class path of this process.
+     *
+     * @param options          the test options.
+     * @param size             the maximum number of worker processes.
+     * @param maxJobsPerWorker the number of validations after which a worker process is replaced.
+     * @param jvmArguments     additional arguments for the JVMs of the worker processes.
+     * @param workerClass      the main class of the worker processes.
+     */
+    ValidatorWorkerPool(TestOptions options, int size, int maxJobsPerWorker, List<String> jvmArguments, Class<?> workerClass) {
+        this.options = options;
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.jvmArguments = jvmArguments;
+        this.workerClass = workerClass;
+        this.available = new Semaphore(size);
+    }
+
+    /**
+     * Validates the file with one of the worker processes.
+     * If the worker crashes during the validation, the validation is retried once with a new worker.
+     *
+     * @param filePath         the path to the file to validate.
+     * @param logFile          the path to the log file.
+     * @param modelDirectories the model directories to use for the validation.
+     * @return {@code true} if the validation was successful, {@code false} otherwise.
+     * @throws ValidatorException if the validation could not be performed.
+     */
+    boolean validate(Path filePath, Path logFile, String modelDirectories) throws ValidatorException {
+        try {
+            available.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidatorException(e);
+        }
+
+        try {
+            try {
+                return validateWithWorker(filePath, logFile, modelDirectories);
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                LOGGER.warn("Validator worker crashed while validating {}, retrying with a new worker.", filePath, e);
+                return validateWithWorker(filePath, logFile, modelDirectories);
+            }
+        } catch (IOException e) {
+            throw new ValidatorException("Validator worker crashed while validating " + filePath + ".", e);
+        } finally {
+            available.release();
+        }
+    }
+
+    private boolean validateWithWorker(Path filePath, Path logFile, String modelDirectories) throws IOException, ValidatorException {
+        var worker = acquireWorker();
+        var keepWorker = false;
+        try {
+            var request = String.join(ValidatorWorker.SEPARATOR, ValidatorWorker.VALIDATE_COMMAND, filePath.toString(), logFile.toString(), modelDirectories);
+            String response;
+            try (var measurement = PhaseTimer.start(Phase.VALIDATION)) {
+                response = worker.send(request);
+            }
+            keepWorker = worker.jobCount < maxJobsPerWorker;
+
+            var parts = response.split(ValidatorWorker.SEPARATOR, 2);
+            if (parts.length == 2 && ValidatorWorker.RESULT_RESPONSE.equals(parts[0])) {
+                return Boolean.parseBoolean(parts[1]);
+            }
+            if (parts.length == 2 && ValidatorWorker.ERROR_RESPONSE.equals(parts[0])) {
+                throw new ValidatorException(parts[1]);
+            }
+
+            keepWorker = false;
+            throw new IOException("Unexpected response from validator worker: " + response);
+        } finally {
+            if (keepWorker) {
+                idleWorkers.add(worker);
+            } else {
+                destroyWorker(worker);
+            }
+        }
+    }
+
+    private WorkerProcess acquireWorker() throws IOException {
+        var worker = idleWorkers.poll();
+        if (worker != null) {
+            return worker;
+        }
+
+        try (var measurement = PhaseTimer.start(Phase.JVM_STARTUP)) {
+            synchronized (allWorkers) {
+                if (closed) {
+                    throw new IOException("The validator worker pool is closed.");
+                }
+
+                worker = new WorkerProcess(startProcess());
+                allWorkers.add(worker);
+            }
+
+            try {
+                worker.awaitReady();
+            } catch (IOException e) {
+                destroyWorker(worker);
+                throw e;
+            }
+        }
+        return worker;
+    }
+
+    private Process startProcess() throws IOException {
+        var command = new ArrayList<String>();
+        command.add(InterlisValidator.getJavaCommand());
+        command.addAll(jvmArguments);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(workerClass.getName());
+        command.add(options.ilivalidatorPath().toString());
+        command.add(options.basePath().toString());
+        options.ilivalidatorConfigPath().ifPresent(path -> command.add(path.toString()));
+
+        LOGGER.info("Starting validator worker process.");
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .directory(options.basePath().toFile())
+                .start();
+    }
+
+    private void destroyWorker(WorkerProcess worker) {
+        synchronized (allWorkers) {
+            allWorkers.remove(worker);
+        }
+        worker.destroy();
+    }
+
+    /**
+     * Destroys the worker processes that are currently validating a file. Idle workers are kept.
+     */
+    void destroyBusyWorkers() {
+        List<WorkerProcess> busyWorkers;
+        synchronized (allWorkers) {
+            busyWorkers = allWorkers.stream().filter(worker -> !idleWorkers.contains(worker)).toList();
+        }
+
+        for (var worker : busyWorkers) {
+            destroyWorker(worker);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<WorkerProcess> workers;
+        synchronized (allWorkers) {
+            closed = true;
+            workers = new ArrayList<>(allWorkers);
+            allWorkers.clear();
+        }
+
+        idleWorkers.clear();
+        for (var worker : workers) {
+            worker.destroy();
+        }
+    }
+
+    private static final class WorkerProcess {
+        private final Process process;
+        private final Writer writer;
+        private final BufferedReader reader;
+        private int jobCount;
+
+        WorkerProcess(Process process) {
+            this.process = process;
+            this.writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+            this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        void awaitReady() throws IOException {
+            var response = reader.readLine();
+            if (!ValidatorWorker.READY_RESPONSE.equals(response)) {
+                throw new IOException("Validator worker did not start, exit code: " + exitCode());
+            }
+        }
+
+        String send(String request) throws IOException {
+            jobCount++;
+            writer.write(request);
+            writer.write('\n');
+            writer.flush();
+
+            var response = reader.readLine();
+            if (response == null) {
+                throw new IOException("Validator worker terminated unexpectedly, exit code: " + exitCode());
+            }
+            return response;
+        }
+
+        private String exitCode() {
+            return process.isAlive() ? "none" : String.valueOf(process.exitValue());
+        }
+
+        void destroy() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close the input of the validator worker.", e);
+            }
+            process.destroy();
+        }
+    }
+}
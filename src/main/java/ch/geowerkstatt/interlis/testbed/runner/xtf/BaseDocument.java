@@ -0,0 +1,211 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Read-only parsed base file that is shared by all merges of a run.
+ * <p>
+ * The baskets of the base file are indexed by their position in the document. Objects are not indexed up front;
+ * for every patch, the objects it references are looked up in a single scan of the patched baskets of the copy,
+ * so baskets that are never patched are not read.
+ * <p>
+ * Patches are applied to copies of the document that are kept for later merges, so the whole document is only
+ * copied once for every merge that runs at the same time. A merge only copies the baskets it patches, and the
+ * pristine baskets are put back into the copy once the merge is done.
+ */
+final class BaseDocument {
+    private final Path file;
+    private final FileTime lastModified;
+    private final long size;
+    private final Document document;
+    private final int dataSectionPosition;
+    private final Map<String, Integer> basketPositions;
+    private final Queue<Copy> copies = new ConcurrentLinkedQueue<>();
+
+    private BaseDocument(Path file, FileTime lastModified, long size, Document document, int dataSectionPosition, Map<String, Integer> basketPositions) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.document = document;
+        this.dataSectionPosition = dataSectionPosition;
+        this.basketPositions = basketPositions;
+    }
+
+    /**
+     * Creates the index for the parsed base file.
+     *
+     * @param file         the path to the base file.
+     * @param lastModified the last modified time of the file when it was parsed.
+     * @param size         the size of the file when it was parsed.
+     * @param document     the parsed base file.
+     * @return the indexed base document, or an empty optional if the document does not contain any baskets.
+     */
+    static Optional<BaseDocument> create(Path file, FileTime lastModified, long size, Document document) {
+        var baskets = XtfFileMerger.findBasketElements(document);
+        if (baskets.isEmpty() || baskets.get().isEmpty()) {
+            return Optional.empty();
+        }
+
+        var dataSection = baskets.get().values().iterator().next().getParentNode();
+        var dataSectionPosition = getChildPosition(dataSection);
+
+        var basketIds = new IdentityHashMap<Node, String>();
+        baskets.get().forEach((basketId, element) -> basketIds.put(element, basketId));
+        var basketIndex = new HashMap<String, Integer>();
+        var position = 0;
+        for (var child = dataSection.getFirstChild(); child != null; child = child.getNextSibling()) {
+            var basketId = basketIds.get(child);
+            if (basketId != null) {
+                basketIndex.put(basketId, position);
+            }
+            position++;
+        }
+
+        return Optional.of(new BaseDocument(file, lastModified, size, document, dataSectionPosition, basketIndex));
+    }
+
+    /**
+     * Checks whether this document was parsed from the current state of the file.
+     *
+     * @param path            the path to the base file.
+     * @param currentModified the current last modified time of the file.
+     * @param currentSize     the current size of the file.
+     * @return {@code true} if the document is up to date, {@code false} otherwise.
+     */
+    boolean isCurrent(Path path, FileTime currentModified, long currentSize) {
+        return file.equals(path) && lastModified.equals(currentModified) && size == currentSize;
+    }
+
+    /**
+     * Borrows a copy of the base document for one merge. The copy must be closed once the merged document is written.
+     *
+     * @return a copy of the document that is not used by any other merge.
+     */
+    Copy borrowCopy() {
+        var copy = copies.poll();
+        return copy != null ? copy : createCopy();
+    }
+
+    private Copy createCopy() {
+        Document clone;
+        // Xerces initializes some node state lazily while reading, so copies are created one at a time.
+        synchronized (document) {
+            clone = (Document) document.cloneNode(true);
+        }
+        return new Copy(clone, clone.getFirstChild().getChildNodes().item(dataSectionPosition));
+    }
+
+    /**
+     * Locates the baskets and objects referenced by the patch in a copy of the base document.
+     * Baskets and objects that are not referenced by the patch are not included in the result.
+     * The referenced baskets are replaced by copies in the document, so they can be modified.
+     *
+     * @param copy         the copy of the base document borrowed with {@link #borrowCopy()}, before it is modified.
+     * @param patchBaskets the baskets of the patch.
+     * @return the baskets of the copy by their basket ID.
+     */
+    Map<String, Basket> resolveBaskets(Copy copy, Map<String, Basket> patchBaskets) {
+        var result = new HashMap<String, Basket>();
+        for (var patchBasketEntry : patchBaskets.entrySet()) {
+            var basketId = patchBasketEntry.getKey();
+            var basketPosition = basketPositions.get(basketId);
+            if (basketPosition == null) {
+                continue;
+            }
+
+            var basketElement = copy.copyBasket(basketPosition);
+            var patchBasket = patchBasketEntry.getValue();
+            var objects = XtfFileMerger.hasDeleteAttribute(patchBasket.element())
+                    ? Map.<String, Element>of()
+                    : findObjects(basketElement, patchBasket.objects().keySet());
+            result.put(basketId, new Basket(basketElement, objects));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the objects with the given IDs in a single pass over the basket, which ends as soon as all objects are found.
+     * Every object of the patch is looked up, as objects that already exist are replaced regardless of their operation.
+     */
+    private static Map<String, Element> findObjects(Element basket, Set<String> objectIds) {
+        var objects = new HashMap<String, Element>();
+        for (var child = basket.getFirstChild(); child != null && objects.size() < objectIds.size(); child = child.getNextSibling()) {
+            if (child instanceof Element element) {
+                var objectId = XtfFileMerger.getInterlisAttribute(element, XtfFileMerger.OBJECT_ID);
+                if (objectId != null && objectIds.contains(objectId)) {
+                    objects.putIfAbsent(objectId, element);
+                }
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * A copy of the base document that is used by one merge at a time.
+     */
+    final class Copy implements AutoCloseable {
+        private final Document document;
+        private final Node dataSection;
+        private final Node[] children;
+
+        private Copy(Document document, Node dataSection) {
+            this.document = document;
+            this.dataSection = dataSection;
+            var childNodes = dataSection.getChildNodes();
+            children = new Node[childNodes.getLength()];
+            for (var i = 0; i < children.length; i++) {
+                children[i] = childNodes.item(i);
+            }
+        }
+
+        /**
+         * Gets the copied document, which can be modified until the copy is closed.
+         *
+         * @return the document.
+         */
+        Document document() {
+            return document;
+        }
+
+        private Element copyBasket(int position) {
+            var basket = (Element) children[position].cloneNode(true);
+            dataSection.replaceChild(basket, children[position]);
+            return basket;
+        }
+
+        /**
+         * Puts the pristine baskets back into the document and returns the copy for the next merge.
+         */
+        @Override
+        public void close() {
+            // Baskets may have been replaced, deleted or pruned, so the data section is rebuilt from its pristine children.
+            while (dataSection.getFirstChild() != null) {
+                dataSection.removeChild(dataSection.getFirstChild());
+            }
+            for (var child : children) {
+                dataSection.appendChild(child);
+            }
+            copies.add(this);
+        }
+    }
+
+    private static int getChildPosition(Node node) {
+        var position = 0;
+        for (var sibling = node.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,146 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a merged file and, optionally, a copy of it compressed with gzip in the same pass.
+ * <p>
+ * The files are written to temporary files next to them, which only replace the files when the output is committed.
+ * Closing the output without committing it deletes the temporary files, so a failed merge leaves no partial files behind.
+ */
+final class MergedFileOutput extends OutputStream {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    private final List<Path> files = new ArrayList<>();
+    private final List<Path> temporaryFiles = new ArrayList<>();
+    private final List<OutputStream> outputs = new ArrayList<>();
+    private boolean committed;
+
+    private MergedFileOutput() {
+    }
+
+    /**
+     * Opens the output for a merged file.
+     *
+     * @param outputFile     the merged file.
+     * @param compressedFile the file for the compressed copy, if any.
+     * @return the buffered output stream that writes to all files.
+     * @throws IOException if a file could not be opened.
+     */
+    static MergedFileOutput open(Path outputFile, Optional<Path> compressedFile) throws IOException {
+        var output = new MergedFileOutput();
+        try {
+            output.addFile(outputFile, false);
+            if (compressedFile.isPresent()) {
+                output.addFile(compressedFile.get(), true);
+            }
+            return output;
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    private void addFile(Path file, boolean compressed) throws IOException {
+        var temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        files.add(file);
+        temporaryFiles.add(temporaryFile);
+
+        var stream = Files.newOutputStream(temporaryFile);
+        try {
+            outputs.add(compressed ? new GZIPOutputStream(stream, COMPRESSION_BUFFER_SIZE) : new BufferedOutputStream(stream));
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Completes the files and moves them into place.
+     *
+     * @throws IOException if a file could not be written or moved.
+     */
+    void commit() throws IOException {
+        closeOutputs();
+        for (var i = 0; i < files.size(); i++) {
+            Files.move(temporaryFiles.get(i), files.get(i), StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        for (var output : outputs) {
+            output.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (var output : outputs) {
+            output.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (var output : outputs) {
+            output.flush();
+        }
+    }
+
+    /**
+     * Closes the files, and deletes them if the output was not committed.
+     *
+     * @throws IOException if a file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeOutputs();
+        } finally {
+            if (!committed) {
+                temporaryFiles.forEach(MergedFileOutput::deleteTemporaryFile);
+            }
+        }
+    }
+
+    private void closeOutputs() throws IOException {
+        IOException exception = null;
+        for (var output : outputs) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static void deleteTemporaryFile(Path temporaryFile) {
+        try {
+            Files.deleteIfExists(temporaryFile);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete temporary file {}.", temporaryFile, e);
+        }
+    }
+}
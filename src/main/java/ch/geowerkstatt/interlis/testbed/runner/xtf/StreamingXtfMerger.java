@@ -0,0 +1,358 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Comment;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Defines a class that can be used to merge INTERLIS XTF files without loading the base file into memory.
+ * <p>
+ * The base file is read with StAX and written to the output as it is read. Only the operations of the patch file are kept in memory,
+ * so the memory usage depends on the size of the patch file instead of the size of the base file.
+ * Supports the same XTF files and patch operations as {@link XtfFileMerger}.
+ */
+public final class StreamingXtfMerger implements XtfMerger {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String DATA_SECTION = "datasection";
+    private static final int BASKET_DEPTH = 3;
+    private static final int OBJECT_DEPTH = 4;
+    private static final QName BASKET_ID = new QName(XtfFileMerger.BASKET_ID);
+    private static final QName BASKET_ID_ILI24 = new QName(XtfFileMerger.INTERLIS24_NAMESPACE, XtfFileMerger.BASKET_ID.toLowerCase());
+    private static final QName OBJECT_ID = new QName(XtfFileMerger.OBJECT_ID);
+    private static final QName OBJECT_ID_ILI24 = new QName(XtfFileMerger.INTERLIS24_NAMESPACE, XtfFileMerger.OBJECT_ID.toLowerCase());
+    private static final QName TRANSFER_KIND = new QName(XtfFileMerger.BASKET_TRANSFER_KIND);
+    private static final QName TRANSFER_KIND_ILI24 = new QName(XtfFileMerger.INTERLIS24_NAMESPACE, XtfFileMerger.BASKET_TRANSFER_KIND.toLowerCase());
+
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final ThreadLocal<DocumentBuilder> documentBuilders;
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+    private final XMLEventFactory eventFactory;
+
+    /**
+     * Operations of the patch file for a single basket.
+     *
+     * @param deleteBasket whether the whole basket is removed.
+     * @param deletes      the IDs of the objects to remove.
+     * @param upserts      the objects to add or replace by their ID, in the order of the patch file.
+     */
+    private record BasketOperations(boolean deleteBasket, Set<String> deletes, Map<String, Element> upserts) {
+    }
+
+    /**
+     * Creates a new instance of the StreamingXtfMerger class.
+     */
+    public StreamingXtfMerger() {
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilders = ThreadLocal.withInitial(this::createDocumentBuilder);
+
+        inputFactory = XMLInputFactory.newInstance();
+        outputFactory = XMLOutputFactory.newInstance();
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+        eventFactory = XMLEventFactory.newInstance();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The base file is expected to be a valid INTERLIS XTF file to which the patch data can be applied to.
+     * The patch file is expected to include a data section containing the elements to add, replace or delete.
+     * Object elements are identified by the id of their basket and the object id using the BID and TID attributes.
+     * The resulting data will be written to the output file, objects added by the patch are appended to the end of their basket.
+     */
+    @Override
+    public boolean merge(Path baseFile, Path patchFile, Path outputFile, Optional<Path> compressedFile) {
+        try {
+            LOGGER.info("Merging {} with {} into {}", baseFile, patchFile, outputFile);
+            var operations = readPatchOperations(patchFile);
+            if (operations == null) {
+                return false;
+            }
+
+            Files.createDirectories(outputFile.getParent());
+            try (var output = MergedFileOutput.open(outputFile, compressedFile)) {
+                if (!mergeStreams(baseFile, output, operations)) {
+                    return false;
+                }
+                output.commit();
+            }
+            LOGGER.info("Successfully merged files into {}", outputFile);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Failed to merge files.", e);
+            return false;
+        }
+    }
+
+    private Map<String, BasketOperations> readPatchOperations(Path patchFile) throws IOException, SAXException {
+        var patchDocument = documentBuilders.get().parse(patchFile.toFile());
+        var patchBaskets = XtfFileMerger.findBaskets(patchDocument);
+        if (patchBaskets.isEmpty()) {
+            LOGGER.error("No baskets found in patch file {}.", patchFile);
+            return null;
+        }
+
+        var operations = new HashMap<String, BasketOperations>();
+        for (var patchBasketEntry : patchBaskets.get().entrySet()) {
+            var patchBasket = patchBasketEntry.getValue();
+            var deletes = new HashSet<String>();
+            var upserts = new LinkedHashMap<String, Element>();
+            for (var element : getObjectsInDocumentOrder(patchBasket)) {
+                var entryId = XtfFileMerger.getInterlisAttribute(element, XtfFileMerger.OBJECT_ID);
+                if (XtfFileMerger.isDeleteEntry(element)) {
+                    deletes.add(entryId);
+                } else {
+                    element.removeAttributeNS(XtfFileMerger.INTERLIS24_NAMESPACE, XtfFileMerger.OPERATION_ATTRIBUTE);
+                    upserts.put(entryId, element);
+                }
+            }
+
+            var deleteBasket = XtfFileMerger.hasDeleteAttribute(patchBasket.element());
+            operations.put(patchBasketEntry.getKey(), new BasketOperations(deleteBasket, deletes, upserts));
+        }
+        return operations;
+    }
+
+    private boolean mergeStreams(Path baseFile, OutputStream output, Map<String, BasketOperations> operations) throws IOException, XMLStreamException {
+        var isValid = true;
+        var remainingBaskets = new HashSet<>(operations.keySet());
+
+        try (var input = Files.newInputStream(baseFile)) {
+            var reader = createReader(input);
+            XMLEventWriter writer = null;
+            try {
+                var depth = 0;
+                var inDataSection = false;
+                BasketOperations currentBasket = null;
+                String currentBasketId = null;
+                Set<String> handledObjects = null;
+
+                while (reader.hasNext()) {
+                    var event = reader.nextEvent();
+                    if (writer == null) {
+                        writer = createWriter(output, event);
+                    }
+
+                    if (event.isStartElement()) {
+                        depth++;
+                        var startElement = event.asStartElement();
+
+                        if (depth == BASKET_DEPTH && inDataSection) {
+                            currentBasketId = getBasketId(startElement);
+                            currentBasket = currentBasketId == null ? null : operations.get(currentBasketId);
+                            if (currentBasket != null) {
+                                remainingBaskets.remove(currentBasketId);
+                                handledObjects = new HashSet<>();
+                                if (currentBasket.deleteBasket()) {
+                                    skipElement(reader);
+                                    depth--;
+                                    currentBasket = null;
+                                    continue;
+                                }
+                            }
+                        } else if (depth == OBJECT_DEPTH && currentBasket != null) {
+                            var objectId = getAttribute(startElement, OBJECT_ID, OBJECT_ID_ILI24);
+                            if (objectId != null && currentBasket.deletes().contains(objectId)) {
+                                handledObjects.add(objectId);
+                                skipElement(reader);
+                                depth--;
+                                continue;
+                            }
+
+                            var replacement = objectId == null ? null : currentBasket.upserts().get(objectId);
+                            if (replacement != null) {
+                                handledObjects.add(objectId);
+                                skipElement(reader);
+                                depth--;
+                                writeElement(writer, replacement);
+                                continue;
+                            }
+                        } else if (depth == 2 && DATA_SECTION.equalsIgnoreCase(startElement.getName().getLocalPart())) {
+                            inDataSection = true;
+                        }
+                    } else if (event.isEndElement()) {
+                        if (depth == BASKET_DEPTH && currentBasket != null) {
+                            if (!appendNewObjects(writer, currentBasketId, currentBasket, handledObjects)) {
+                                isValid = false;
+                            }
+                            currentBasket = null;
+                        } else if (depth == 2) {
+                            inDataSection = false;
+                        }
+                        depth--;
+                    }
+
+                    writer.add(event);
+                }
+
+                if (writer != null) {
+                    writer.flush();
+                }
+            } finally {
+                reader.close();
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+
+        for (var basketId : remainingBaskets) {
+            LOGGER.error("Basket {} not found in base file.", basketId);
+            isValid = false;
+        }
+        return isValid;
+    }
+
+    private boolean appendNewObjects(XMLEventWriter writer, String basketId, BasketOperations basket, Set<String> handledObjects) throws XMLStreamException {
+        var isValid = true;
+        for (var upsert : basket.upserts().entrySet()) {
+            if (!handledObjects.contains(upsert.getKey())) {
+                writeElement(writer, upsert.getValue());
+            }
+        }
+
+        for (var entryId : basket.deletes()) {
+            if (!handledObjects.contains(entryId)) {
+                LOGGER.error("Could not remove entry {} from basket {} as it does not exist.", entryId, basketId);
+                isValid = false;
+            }
+        }
+        return isValid;
+    }
+
+    private void writeElement(XMLEventWriter writer, Element element) throws XMLStreamException {
+        var attributes = new ArrayList<Attribute>();
+        var domAttributes = element.getAttributes();
+        for (var i = 0; i < domAttributes.getLength(); i++) {
+            var attribute = (Attr) domAttributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                continue;
+            }
+
+            var name = attribute.getLocalName() == null ? attribute.getName() : attribute.getLocalName();
+            attributes.add(eventFactory.createAttribute(getPrefix(attribute), getNamespace(attribute), name, attribute.getValue()));
+        }
+
+        writer.add(eventFactory.createStartElement(getPrefix(element), getNamespace(element), element.getLocalName(), attributes.iterator(), null));
+        for (var child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element childElement) {
+                writeElement(writer, childElement);
+            } else if (child instanceof Comment comment) {
+                writer.add(eventFactory.createComment(comment.getData()));
+            } else if (child instanceof Text text) {
+                writer.add(eventFactory.createCharacters(text.getData()));
+            }
+        }
+        writer.add(eventFactory.createEndElement(getPrefix(element), getNamespace(element), element.getLocalName()));
+    }
+
+    private XMLEventReader createReader(InputStream input) throws XMLStreamException {
+        synchronized (inputFactory) {
+            return inputFactory.createXMLEventReader(input);
+        }
+    }
+
+    private XMLEventWriter createWriter(OutputStream output, XMLEvent firstEvent) throws XMLStreamException {
+        var encoding = "UTF-8";
+        if (firstEvent instanceof StartDocument startDocument && startDocument.encodingSet()) {
+            encoding = startDocument.getCharacterEncodingScheme();
+        }
+
+        synchronized (outputFactory) {
+            return outputFactory.createXMLEventWriter(output, encoding);
+        }
+    }
+
+    private DocumentBuilder createDocumentBuilder() {
+        try {
+            synchronized (documentBuilderFactory) {
+                return documentBuilderFactory.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create XML parser.", e);
+        }
+    }
+
+    private static List<Element> getObjectsInDocumentOrder(Basket basket) {
+        var objects = new ArrayList<>(basket.objects().values());
+        objects.sort((a, b) -> {
+            if (a == b) {
+                return 0;
+            }
+            return (a.compareDocumentPosition(b) & Node.DOCUMENT_POSITION_FOLLOWING) != 0 ? -1 : 1;
+        });
+        return objects;
+    }
+
+    private static String getBasketId(StartElement basket) {
+        var transferKind = getAttribute(basket, TRANSFER_KIND, TRANSFER_KIND_ILI24);
+        if (transferKind != null && !transferKind.equals(XtfFileMerger.BASKET_TRANSFER_KIND_UPDATE)) {
+            LOGGER.warn("Basket with {}={} found. This is not supported.", XtfFileMerger.BASKET_TRANSFER_KIND, transferKind);
+            return null;
+        }
+        return getAttribute(basket, BASKET_ID, BASKET_ID_ILI24);
+    }
+
+    private static String getAttribute(StartElement element, QName name, QName ili24Name) {
+        var attribute = element.getAttributeByName(name);
+        if (attribute == null) {
+            attribute = element.getAttributeByName(ili24Name);
+        }
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+        var depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            var event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+    }
+
+    private static String getPrefix(Node node) {
+        return node.getPrefix() == null ? XMLConstants.DEFAULT_NS_PREFIX : node.getPrefix();
+    }
+
+    private static String getNamespace(Node node) {
+        return node.getNamespaceURI() == null ? XMLConstants.NULL_NS_URI : node.getNamespaceURI();
+    }
+}
@@ -1,12 +1,20 @@
 package ch.geowerkstatt.interlis.testbed.runner.xtf;
 
+import ch.geowerkstatt.interlis.testbed.runner.timing.MergeEvent;
+import ch.geowerkstatt.interlis.testbed.runner.timing.Phase;
+import ch.geowerkstatt.interlis.testbed.runner.timing.PhaseTimer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -14,8 +22,14 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -25,28 +39,62 @@ import java.util.stream.Stream;
  * <p>
  * Supports XTF files using a single namespace for INTERLIS up to version 2.3
  * as well as files for INTERLIS version 2.4 using multiple namespaces.
+ * <p>
+ * Optionally, the merged file only contains the baskets changed by the patch and the baskets they refer to,
+ * so the validator does not check unchanged baskets again. This is only suitable for models whose constraints
+ * do not look beyond the basket of an object and the baskets it refers to.
+ * <p>
+ * Instances are safe to use from multiple threads.
  */
 public final class XtfFileMerger implements XtfMerger {
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final String BASKET_ID = "BID";
-    private static final String OBJECT_ID = "TID";
-    private static final String BASKET_TRANSFER_KIND = "KIND";
-    private static final String BASKET_TRANSFER_KIND_UPDATE = "UPDATE";
+    static final String BASKET_ID = "BID";
+    static final String OBJECT_ID = "TID";
+    static final String BASKET_TRANSFER_KIND = "KIND";
+    static final String BASKET_TRANSFER_KIND_UPDATE = "UPDATE";
     private static final String DELETE_ATTRIBUTE = "DELETE";
     private static final String DELETE_ATTRIBUTE_LOWERCASE = DELETE_ATTRIBUTE.toLowerCase();
-    private static final String OPERATION_ATTRIBUTE = "operation";
+    static final String OPERATION_ATTRIBUTE = "operation";
     private static final String OPERATION_ATTRIBUTE_DELETE = "DELETE";
     private static final String DELETE_OBJECT_NAME = "delete";
-    private static final String INTERLIS24_NAMESPACE = "http://www.interlis.ch/xtf/2.4/INTERLIS";
+    static final String INTERLIS24_NAMESPACE = "http://www.interlis.ch/xtf/2.4/INTERLIS";
+
+    private static final String DEFER_NODE_EXPANSION_FEATURE = "http://apache.org/xml/features/dom/defer-node-expansion";
 
     private final DocumentBuilderFactory factory;
+    private final TransformerFactory transformerFactory;
+    private final ThreadLocal<DocumentBuilder> documentBuilders;
+    private final ThreadLocal<Transformer> transformers;
+    private final boolean pruneBaskets;
+    private final Object baseDocumentLock = new Object();
+    private volatile BaseDocument baseDocument;
 
     /**
-     * Creates a new instance of the XtfFileMerger class.
+     * Creates a new instance of the XtfFileMerger class that keeps all baskets of the base file.
      */
     public XtfFileMerger() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance of the XtfFileMerger class.
+     *
+     * @param pruneBaskets whether the merged files only contain the baskets changed by the patch and the baskets they refer to.
+     */
+    public XtfFileMerger(boolean pruneBaskets) {
+        this.pruneBaskets = pruneBaskets;
         factory = DocumentBuilderFactory.newInstance();
         factory.setNamespaceAware(true);
+        try {
+            // The base document is shared between threads and must not be modified when it is read.
+            factory.setFeature(DEFER_NODE_EXPANSION_FEATURE, false);
+        } catch (ParserConfigurationException e) {
+            LOGGER.debug("XML parser does not support disabling deferred node expansion.", e);
+        }
+
+        transformerFactory = TransformerFactory.newInstance();
+        documentBuilders = ThreadLocal.withInitial(this::createDocumentBuilder);
+        transformers = ThreadLocal.withInitial(this::createTransformer);
     }
 
     /**
@@ -56,33 +104,55 @@ public final class XtfFileMerger implements XtfMerger {
      * The patch file is expected to include a data section containing the elements to add, replace or delete.
      * Object elements are identified by the id of their basket and the object id using the BID and TID attributes.
      * The resulting data will be written to the output file.
+     * <p>
+     * The parsed base file is kept for subsequent merges with the same base file, as long as the file is not modified.
      */
     @Override
-    public boolean merge(Path baseFile, Path patchFile, Path outputFile) {
+    public boolean merge(Path baseFile, Path patchFile, Path outputFile, Optional<Path> compressedFile) {
+        var event = new MergeEvent();
+        event.begin();
+        var success = mergeFiles(baseFile, patchFile, outputFile, compressedFile, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.setPatchFile(patchFile);
+            event.setFileSizes(fileSize(baseFile), fileSize(patchFile), success ? fileSize(outputFile) : 0);
+            event.setSuccess(success);
+            event.commit();
+        }
+        return success;
+    }
+
+    private boolean mergeFiles(Path baseFile, Path patchFile, Path outputFile, Optional<Path> compressedFile, MergeEvent event) {
         try {
             LOGGER.info("Merging {} with {} into {}", baseFile, patchFile, outputFile);
-            var documentBuilder = factory.newDocumentBuilder();
-
-            var baseDocument = documentBuilder.parse(baseFile.toFile());
-            var patchDocument = documentBuilder.parse(patchFile.toFile());
-
-            var baseBaskets = findBaskets(baseDocument);
-            if (baseBaskets.isEmpty()) {
+            var base = getBaseDocument(baseFile);
+            if (base.isEmpty()) {
                 LOGGER.error("No baskets found in base file {}.", baseFile);
                 return false;
             }
 
+            var patchDocument = documentBuilders.get().parse(patchFile.toFile());
             var patchBaskets = findBaskets(patchDocument);
             if (patchBaskets.isEmpty()) {
                 LOGGER.error("No baskets found in patch file {}.", patchFile);
                 return false;
             }
-
-            if (!mergeBaskets(baseDocument, baseBaskets.get(), patchBaskets.get())) {
-                return false;
+            if (event.isEnabled()) {
+                event.setPatchCounts(patchBaskets.get().size(), patchBaskets.get().values().stream().mapToInt(basket -> basket.objects().size()).sum());
             }
 
-            writeMergedFile(baseDocument, outputFile);
+            try (var copy = base.get().borrowCopy()) {
+                var document = copy.document();
+                var baseBaskets = base.get().resolveBaskets(copy, patchBaskets.get());
+                if (!mergeBaskets(document, baseBaskets, patchBaskets.get())) {
+                    return false;
+                }
+                if (pruneBaskets) {
+                    pruneUnchangedBaskets(document, patchBaskets.get().keySet());
+                }
+
+                writeMergedFile(document, outputFile, compressedFile);
+            }
             LOGGER.info("Successfully merged files into {}", outputFile);
             return true;
         } catch (Exception e) {
@@ -91,6 +161,110 @@ public final class XtfFileMerger implements XtfMerger {
         }
     }
 
+    @Override
+    public boolean prunesBaskets() {
+        return pruneBaskets;
+    }
+
+    /**
+     * Removes all baskets from the merged document that are neither changed by the patch nor referred to by a kept basket.
+     * References to other baskets are identified by the BID attribute of the reference elements.
+     *
+     * @param document         the merged document.
+     * @param changedBasketIds the IDs of the baskets changed by the patch.
+     */
+    private static void pruneUnchangedBaskets(Document document, Set<String> changedBasketIds) {
+        var dataSection = findDataSection(document);
+        if (dataSection.isEmpty()) {
+            return;
+        }
+
+        var baskets = new HashMap<String, Element>();
+        streamChildElementNodes(dataSection.get())
+                .filter(e -> hasInterlisAttribute(e, BASKET_ID))
+                .forEach(e -> baskets.put(getInterlisAttribute(e, BASKET_ID), e));
+
+        var keptBasketIds = new HashSet<String>();
+        var pendingBasketIds = new ArrayDeque<>(changedBasketIds);
+        while (!pendingBasketIds.isEmpty()) {
+            var basketId = pendingBasketIds.pop();
+            var basket = baskets.get(basketId);
+            if (basket != null && keptBasketIds.add(basketId)) {
+                collectReferencedBaskets(basket, pendingBasketIds);
+            }
+        }
+
+        for (var basketEntry : baskets.entrySet()) {
+            if (!keptBasketIds.contains(basketEntry.getKey())) {
+                dataSection.get().removeChild(basketEntry.getValue());
+            }
+        }
+        LOGGER.debug("Kept {} of {} baskets in merged file.", keptBasketIds.size(), baskets.size());
+    }
+
+    private static void collectReferencedBaskets(Element basket, Collection<String> basketIds) {
+        var descendants = basket.getElementsByTagName("*");
+        for (var i = 0; i < descendants.getLength(); i++) {
+            var referencedBasketId = getInterlisAttribute((Element) descendants.item(i), BASKET_ID);
+            if (referencedBasketId != null) {
+                basketIds.add(referencedBasketId);
+            }
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Optional<BaseDocument> getBaseDocument(Path baseFile) throws IOException, SAXException {
+        var path = baseFile.toAbsolutePath().normalize();
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        var current = baseDocument;
+        if (current != null && current.isCurrent(path, attributes.lastModifiedTime(), attributes.size())) {
+            return Optional.of(current);
+        }
+
+        synchronized (baseDocumentLock) {
+            current = baseDocument;
+            if (current != null && current.isCurrent(path, attributes.lastModifiedTime(), attributes.size())) {
+                return Optional.of(current);
+            }
+
+            LOGGER.info("Parsing base file {}", path);
+            try (var measurement = PhaseTimer.start(Phase.BASE_PARSE)) {
+                var document = documentBuilders.get().parse(path.toFile());
+                var parsed = BaseDocument.create(path, attributes.lastModifiedTime(), attributes.size(), document);
+                baseDocument = parsed.orElse(null);
+                return parsed;
+            }
+        }
+    }
+
+    private DocumentBuilder createDocumentBuilder() {
+        try {
+            synchronized (factory) {
+                return factory.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create XML parser.", e);
+        }
+    }
+
+    private Transformer createTransformer() {
+        try {
+            synchronized (transformerFactory) {
+                return transformerFactory.newTransformer();
+            }
+        } catch (TransformerConfigurationException e) {
+            throw new IllegalStateException("Failed to create XML writer.", e);
+        }
+    }
+
     private static boolean mergeBaskets(Document document, Map<String, Basket> baseBaskets, Map<String, Basket> patchBaskets) {
         var isValid = true;
 
@@ -113,9 +287,8 @@ public final class XtfFileMerger implements XtfMerger {
             for (var patchEntry : patchBasket.objects().entrySet()) {
                 var entryId = patchEntry.getKey();
                 var element = patchEntry.getValue();
-                var objectOperation = getInterlisAttribute(element, OPERATION_ATTRIBUTE);
 
-                if (hasDeleteAttribute(element) || OPERATION_ATTRIBUTE_DELETE.equals(objectOperation) || isDeleteObject(element)) {
+                if (isDeleteEntry(element)) {
                     if (!originalBasket.removeChildNode(entryId)) {
                         LOGGER.error("Could not remove entry {} from basket {} as it does not exist.", entryId, basketId);
                         isValid = false;
@@ -131,17 +304,29 @@ public final class XtfFileMerger implements XtfMerger {
         return isValid;
     }
 
-    private static void writeMergedFile(Document document, Path outputFile) throws IOException, TransformerException {
+    private void writeMergedFile(Document document, Path outputFile, Optional<Path> compressedFile) throws IOException, TransformerException {
         Files.createDirectories(outputFile.getParent());
 
-        var transformerFactory = TransformerFactory.newInstance();
-        var transformer = transformerFactory.newTransformer();
-        var source = new DOMSource(document);
-        var result = new StreamResult(outputFile.toFile());
-        transformer.transform(source, result);
+        var transformer = transformers.get();
+        transformer.reset();
+        try (var output = MergedFileOutput.open(outputFile, compressedFile)) {
+            transformer.transform(new DOMSource(document), new StreamResult(output));
+            output.commit();
+        }
     }
 
     static Optional<Map<String, Basket>> findBaskets(Document document) {
+        return findBasketElements(document).map(baskets -> baskets.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> collectBasket(e.getValue()))));
+    }
+
+    /**
+     * Finds the baskets in the data section of the document without collecting their objects.
+     *
+     * @param document the XTF document.
+     * @return the basket elements by their basket ID, or an empty optional if the document has no data section.
+     */
+    static Optional<Map<String, Element>> findBasketElements(Document document) {
         var dataSection = findDataSection(document);
         if (dataSection.isEmpty()) {
             return Optional.empty();
@@ -162,7 +347,7 @@ public final class XtfFileMerger implements XtfMerger {
 
                     return true;
                 })
-                .collect(Collectors.toMap(e -> getInterlisAttribute(e, BASKET_ID), XtfFileMerger::collectBasket));
+                .collect(Collectors.toMap(e -> getInterlisAttribute(e, BASKET_ID), e -> e));
         return Optional.of(baskets);
     }
 
@@ -179,7 +364,18 @@ public final class XtfFileMerger implements XtfMerger {
         return new Basket(basket, objects);
     }
 
-    private static boolean hasDeleteAttribute(Element element) {
+    /**
+     * Checks whether the entry of a patch basket describes the removal of an object.
+     *
+     * @param element the entry of the patch basket.
+     * @return {@code true} if the object should be removed, {@code false} if it should be added or replaced.
+     */
+    static boolean isDeleteEntry(Element element) {
+        var objectOperation = getInterlisAttribute(element, OPERATION_ATTRIBUTE);
+        return hasDeleteAttribute(element) || OPERATION_ATTRIBUTE_DELETE.equals(objectOperation) || isDeleteObject(element);
+    }
+
+    static boolean hasDeleteAttribute(Element element) {
         return element.hasAttribute(DELETE_ATTRIBUTE) || element.hasAttribute(DELETE_ATTRIBUTE_LOWERCASE);
     }
 
@@ -187,7 +383,7 @@ public final class XtfFileMerger implements XtfMerger {
         return getInterlisAttribute(element, attributeName) != null;
     }
 
-    private static String getInterlisAttribute(Element element, String attributeName) {
+    static String getInterlisAttribute(Element element, String attributeName) {
         if (element.hasAttribute(attributeName)) {
             return element.getAttribute(attributeName);
         }
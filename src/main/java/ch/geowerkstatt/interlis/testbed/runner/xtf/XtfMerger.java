@@ -1,7 +1,13 @@
 package ch.geowerkstatt.interlis.testbed.runner.xtf;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
+/**
+ * Merges the data of a fail case into the base data.
+ * <p>
+ * Implementations must be safe to use from multiple threads, as the runner can merge several fail cases in parallel.
+ */
 public interface XtfMerger {
     /**
      * Merges the patch file into the base file and writes the result to the output file.
@@ -11,5 +17,30 @@ public interface XtfMerger {
      * @param outputFile the output file
      * @return {@code true} if the merge was successful, {@code false} otherwise.
      */
-    boolean merge(Path baseFile, Path patchFile, Path outputFile);
+    default boolean merge(Path baseFile, Path patchFile, Path outputFile) {
+        return merge(baseFile, patchFile, outputFile, Optional.empty());
+    }
+
+    /**
+     * Merges the patch file into the base file and writes the result to the output file.
+     * Optionally, a copy of the result compressed with gzip is written at the same time,
+     * so a merged file that is kept compressed does not have to be read again.
+     *
+     * @param baseFile       the base file
+     * @param patchFile      the patch file
+     * @param outputFile     the output file
+     * @param compressedFile the file for the compressed copy of the output file, if any
+     * @return {@code true} if the merge was successful, {@code false} otherwise.
+     */
+    boolean merge(Path baseFile, Path patchFile, Path outputFile, Optional<Path> compressedFile);
+
+    /**
+     * Checks whether the merged files only contain the baskets changed by the patch and the baskets they refer to.
+     * Validation results of pruned and complete merged files can differ, so they must not be cached under the same key.
+     *
+     * @return {@code true} if unchanged baskets are removed from the merged files.
+     */
+    default boolean prunesBaskets() {
+        return false;
+    }
 }
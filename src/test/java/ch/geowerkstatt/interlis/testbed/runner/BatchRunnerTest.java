@@ -0,0 +1,102 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class BatchRunnerTest extends MockitoTestBase {
+    private static final Path DATA_PATH = Path.of("src/test/data").toAbsolutePath().normalize();
+    private static final String CONSTRAINT_NAME = "constraintA";
+
+    private Path rootPath;
+    private Path testbedPath;
+    private Path testbedWithPatchesPath;
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @BeforeEach
+    public void setup(@TempDir Path tempDir) throws IOException {
+        rootPath = tempDir;
+
+        testbedPath = Files.createDirectories(rootPath.resolve("testbed"));
+        Files.copy(DATA_PATH.resolve("testbed").resolve("data.xtf"), testbedPath.resolve("data.xtf"));
+
+        testbedWithPatchesPath = TemporaryTestbed.create(rootPath.resolve("testbed-with-patches"), 1);
+    }
+
+    @Test
+    public void findTestbedsReturnsDirectoriesWithDataFile() throws IOException {
+        Files.createDirectories(rootPath.resolve("empty"));
+        Files.writeString(Files.createDirectories(rootPath.resolve("docs")).resolve("readme.txt"), "not a testbed");
+        Files.writeString(rootPath.resolve("data.xtf"), "not a directory");
+
+        var testbeds = BatchRunner.findTestbeds(rootPath);
+
+        assertIterableEquals(List.of(testbedPath, testbedWithPatchesPath), testbeds);
+    }
+
+    @Test
+    public void runReportsResultPerTestbed() throws ValidatorException {
+        var testbed = new TestOptions(testbedPath, Path.of("ilivalidator.jar"), Optional.empty());
+        var testbedWithPatches = new TestOptions(testbedWithPatchesPath, Path.of("ilivalidator.jar"), Optional.empty());
+        var mergedLogFile = testbedWithPatches.outputPath().resolve(CONSTRAINT_NAME).resolve("testcase-1.log");
+
+        when(validatorMock.forTestbed(any())).thenReturn(validatorMock);
+        when(validatorMock.validate(eq(testbedPath.resolve("data.xtf")), any())).thenReturn(true);
+        when(validatorMock.validate(eq(testbedWithPatchesPath.resolve("data.xtf")), any())).thenReturn(true);
+        when(validatorMock.containsConstraintError(mergedLogFile, CONSTRAINT_NAME)).thenReturn(true);
+        when(mergerMock.merge(any(), any(), any())).thenReturn(true);
+
+        var batchRunner = new BatchRunner(List.of(testbed, testbedWithPatches), RunOptions.builder().jobs(2).build(), validatorMock, mergerMock);
+
+        var results = batchRunner.run();
+
+        assertEquals(2, results.size(), "The testbeds after a failed testbed should still run.");
+        assertEquals(testbedPath, results.get(0).basePath());
+        assertFalse(results.get(0).success(), "The testbed without patch files should have failed.");
+        assertEquals(testbedWithPatchesPath, results.get(1).basePath());
+        assertTrue(results.get(1).success(), "The testbed with patch files should have succeeded.");
+
+        verify(validatorMock).forTestbed(eq(testbed));
+        verify(validatorMock).forTestbed(eq(testbedWithPatches));
+    }
+
+    @Test
+    public void failFastSkipsTestbedsAfterFailedTestbed() throws ValidatorException {
+        var testbed = new TestOptions(testbedPath, Path.of("ilivalidator.jar"), Optional.empty());
+        var testbedWithPatches = new TestOptions(testbedWithPatchesPath, Path.of("ilivalidator.jar"), Optional.empty());
+
+        when(validatorMock.forTestbed(any())).thenReturn(validatorMock);
+        when(validatorMock.validate(eq(testbedPath.resolve("data.xtf")), any())).thenReturn(true);
+
+        var batchRunner = new BatchRunner(List.of(testbed, testbedWithPatches), RunOptions.builder().failFast(true).build(), validatorMock, mergerMock);
+
+        var results = batchRunner.run();
+
+        assertEquals(1, results.size(), "The testbeds after the failed testbed should not run.");
+        assertFalse(results.getFirst().success());
+        verify(validatorMock, never()).forTestbed(eq(testbedWithPatches));
+    }
+}
@@ -0,0 +1,37 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.timing.TimingHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class CaseOrderTest {
+    private static final List<Path> PATCH_FILES = List.of(Path.of("a.xtf"), Path.of("b.xtf"), Path.of("c.xtf"));
+    private static final Map<Path, Long> SIZES = Map.of(Path.of("a.xtf"), 100L, Path.of("b.xtf"), 300L, Path.of("c.xtf"), 200L);
+
+    @Test
+    public void withoutHistoryLargestFilesComeFirst() {
+        var order = CaseOrder.longestFirst(PATCH_FILES, TimingHistory.empty(), Path::toString, SIZES::get);
+
+        assertEquals(List.of(1, 2, 0), order);
+    }
+
+    @Test
+    public void recordedDurationsComeBeforeFileSize(@TempDir Path tempDir) throws IOException {
+        var historyFile = tempDir.resolve(TimingHistory.FILE_NAME);
+        Files.writeString(historyFile, "a.xtf\t5000\nb.xtf\t300\n");
+        var history = TimingHistory.read(historyFile);
+
+        var order = CaseOrder.longestFirst(PATCH_FILES, history, Path::toString, SIZES::get);
+
+        // c.xtf has no history, its duration is estimated from the size: 5300 ms for 400 bytes, 2650 ms for 200 bytes.
+        assertEquals(List.of(0, 2, 1), order);
+    }
+}
@@ -0,0 +1,52 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CaseSelectionTest {
+    private static final Path BASE_PATH = Path.of("src/test/data/testbed-with-patches").toAbsolutePath().normalize();
+    private static final Path CASE_A1 = BASE_PATH.resolve("ModelA.TopicA.ClassA.ConstraintA").resolve("case1.xtf");
+    private static final Path CASE_A2 = BASE_PATH.resolve("ModelA.TopicA.ClassB.ConstraintB").resolve("case1.xtf");
+    private static final Path CASE_B1 = BASE_PATH.resolve("ModelA.TopicB.ClassA.ConstraintA").resolve("case1.xtf");
+    private static final List<Path> PATCH_FILES = List.of(CASE_A1, CASE_A2, CASE_B1);
+
+    private final TestOptions options = new TestOptions(BASE_PATH, Path.of("ilivalidator.jar"), Optional.empty());
+
+    @Test
+    public void allSelectsEveryFailCase() throws IOException {
+        assertTrue(CaseSelection.all().isAll());
+        assertEquals(PATCH_FILES, CaseSelection.all().select(options, PATCH_FILES));
+    }
+
+    @Test
+    public void constraintPatternMatchesConstraintDirectory() throws IOException {
+        var selection = new CaseSelection(List.of("ModelA.TopicA.*"), Optional.empty());
+
+        assertFalse(selection.isAll());
+        assertEquals(List.of(CASE_A1, CASE_A2), selection.select(options, PATCH_FILES));
+    }
+
+    @Test
+    public void anyConstraintPatternSelectsFailCase() throws IOException {
+        var selection = new CaseSelection(List.of("*.ConstraintB", "ModelA.TopicB.ClassA.ConstraintA"), Optional.empty());
+
+        assertEquals(List.of(CASE_A2, CASE_B1), selection.select(options, PATCH_FILES));
+    }
+
+    @Test
+    public void globPatternQuotesOtherCharacters() {
+        var pattern = CaseSelection.globToPattern("Model?.Topic[A].*");
+
+        assertTrue(pattern.matcher("ModelA.Topic[A].ClassA").matches());
+        assertFalse(pattern.matcher("ModelA.TopicA.ClassA").matches());
+        assertFalse(pattern.matcher("ModelAB.Topic[A].ClassA").matches());
+    }
+}
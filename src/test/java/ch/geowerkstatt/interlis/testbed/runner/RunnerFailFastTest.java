@@ -0,0 +1,118 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class RunnerFailFastTest extends MockitoTestBase {
+    private static final int CASE_COUNT = 3;
+
+    private TestOptions options;
+    private TestLogAppender appender;
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @BeforeEach
+    public void setup(@TempDir Path basePath) throws IOException, ValidatorException {
+        options = new TestOptions(TemporaryTestbed.create(basePath, CASE_COUNT), Path.of("ilivalidator.jar"), Optional.empty());
+        appender = TestLogAppender.registerAppender(Runner.class);
+
+        when(validatorMock.validate(eq(basePath.resolve("data.xtf")), any())).thenReturn(true);
+        when(mergerMock.merge(any(), any(), any())).thenReturn(false);
+    }
+
+    @AfterEach
+    public void teardown() {
+        appender.stop();
+        appender.unregister();
+    }
+
+    @Test
+    public void sequentialRunStopsAfterFirstFailedCase() {
+        var runner = new Runner(options, RunOptions.builder().failFast(true).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+
+        verify(mergerMock, times(1)).merge(any(), any(), any());
+        assertTrue(appender.getMessages().stream().anyMatch(m -> m.message().contains("2 fail cases were cancelled")), "The cancelled cases should have been logged.");
+    }
+
+    @Test
+    public void sequentialRunWithoutFailFastRunsAllCases() {
+        var runner = new Runner(options, validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+
+        verify(mergerMock, times(CASE_COUNT)).merge(any(), any(), any());
+    }
+
+    @Test
+    public void parallelRunCancelsRunningValidations() {
+        var runner = new Runner(options, RunOptions.builder().jobs(2).failFast(true).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+
+        verify(validatorMock, atLeastOnce()).cancelRunningValidations();
+    }
+
+    @Test
+    public void parallelRunStartsNoCasesAfterFailedCase() throws IOException {
+        for (var i = CASE_COUNT + 1; i <= 2 * CASE_COUNT; i++) {
+            TemporaryTestbed.addCase(options.basePath(), i);
+        }
+
+        // The first case fails at once, the other cases run until they are cancelled.
+        var firstCase = new AtomicBoolean(true);
+        var otherCasesReleased = new CountDownLatch(1);
+        when(mergerMock.merge(any(), any(), any())).thenAnswer(invocation -> {
+            if (!firstCase.getAndSet(false)) {
+                otherCasesReleased.await(10, TimeUnit.SECONDS);
+            }
+            return false;
+        });
+
+        var submittedCases = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                submittedCases.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        try {
+            var runner = new Runner(options, RunOptions.builder().jobs(2).failFast(true).build(), validatorMock, mergerMock, executor);
+
+            assertFalse(runner.run(), "Testbed run should have failed.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(submittedCases.get() <= 2, "No case should have been submitted after the failed case, but " + submittedCases.get() + " cases were submitted.");
+    }
+}
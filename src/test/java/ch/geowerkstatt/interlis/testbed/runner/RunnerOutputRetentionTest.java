@@ -0,0 +1,211 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidationResult;
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorLog;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class RunnerOutputRetentionTest extends MockitoTestBase {
+    private static final String CONSTRAINT_NAME = TemporaryTestbed.CONSTRAINT_NAME;
+
+    private Path mergedFile;
+    private Path mergedLogFile;
+    private TestOptions options;
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @BeforeEach
+    public void setup(@TempDir Path basePath) throws IOException, ValidatorException {
+        options = new TestOptions(TemporaryTestbed.create(basePath, 1), Path.of("ilivalidator.jar"), Optional.empty());
+        mergedFile = options.outputPath().resolve(CONSTRAINT_NAME).resolve("testcase-1_merged.xtf");
+        mergedLogFile = options.outputPath().resolve(CONSTRAINT_NAME).resolve("testcase-1.log");
+
+        when(validatorMock.validate(eq(options.basePath().resolve("data.xtf")), any())).thenReturn(true);
+    }
+
+    @Test
+    public void mergedFileOfVerifiedCaseIsDeleted() throws ValidatorException {
+        stubMerge();
+        when(validatorMock.validate(mergedFile, mergedLogFile)).thenReturn(false);
+        when(validatorMock.containsConstraintError(mergedLogFile, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runner = new Runner(options, RunOptions.builder().mergedFileRetention(OutputRetention.FAILED).build(), validatorMock, mergerMock);
+
+        assertTrue(runner.run(), "Testbed run should have succeeded.");
+        assertFalse(Files.exists(mergedFile), "The merged file of a verified fail case should have been deleted.");
+    }
+
+    @Test
+    public void mergedFileOfFailedCaseIsKept() throws ValidatorException {
+        stubMerge();
+        when(validatorMock.validate(mergedFile, mergedLogFile)).thenReturn(true);
+
+        var runner = new Runner(options, RunOptions.builder().mergedFileRetention(OutputRetention.FAILED).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertTrue(Files.exists(mergedFile), "The merged file of a failed case should have been kept.");
+    }
+
+    @Test
+    public void logFileOfVerifiedCaseIsNotWritten() throws ValidatorException {
+        stubMerge();
+        var log = ValidatorLog.ofLines(List.of("Error: line 1: " + CONSTRAINT_NAME));
+        when(validatorMock.validateCapturingLog(mergedFile, mergedLogFile)).thenReturn(new ValidationResult(false, log));
+        when(validatorMock.containsConstraintError(log, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runner = new Runner(options, RunOptions.builder().logFileRetention(OutputRetention.FAILED).build(), validatorMock, mergerMock);
+
+        assertTrue(runner.run(), "Testbed run should have succeeded.");
+        assertFalse(Files.exists(mergedLogFile), "The log file of a verified fail case should not have been written.");
+        verify(validatorMock, never()).validate(eq(mergedFile), any());
+    }
+
+    @Test
+    public void logFileOfFailedCaseIsWritten() throws IOException, ValidatorException {
+        stubMerge();
+        var log = ValidatorLog.ofLines(List.of("Info: validate data..."));
+        when(validatorMock.validateCapturingLog(mergedFile, mergedLogFile)).thenReturn(new ValidationResult(false, log));
+        when(validatorMock.containsConstraintError(log, CONSTRAINT_NAME)).thenReturn(false);
+
+        var runner = new Runner(options, RunOptions.builder().logFileRetention(OutputRetention.FAILED).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertEquals(List.of("Info: validate data..."), Files.readAllLines(mergedLogFile), "The log file of a failed case should have been written.");
+    }
+
+    @Test
+    public void mergedFileIsKeptByDefault() throws ValidatorException {
+        stubMerge();
+        when(validatorMock.validate(mergedFile, mergedLogFile)).thenReturn(false);
+        when(validatorMock.containsConstraintError(mergedLogFile, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runner = new Runner(options, validatorMock, mergerMock);
+
+        assertTrue(runner.run(), "Testbed run should have succeeded.");
+        assertTrue(Files.exists(mergedFile), "The merged file should have been kept.");
+    }
+
+    @Test
+    public void outputFilesOfFailedCaseAreNeverKept() throws ValidatorException {
+        stubMerge();
+        var log = ValidatorLog.ofLines(List.of("Info: validate data..."));
+        when(validatorMock.validateCapturingLog(mergedFile, mergedLogFile)).thenReturn(new ValidationResult(false, log));
+        when(validatorMock.containsConstraintError(log, CONSTRAINT_NAME)).thenReturn(false);
+
+        var runner = new Runner(options, RunOptions.builder().mergedFileRetention(OutputRetention.NEVER).logFileRetention(OutputRetention.NEVER).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertFalse(Files.exists(mergedFile), "The merged file should have been deleted.");
+        assertFalse(Files.exists(mergedLogFile), "The log file should not have been written.");
+    }
+
+    @Test
+    public void keptOutputFilesAreCompressed() throws IOException, ValidatorException {
+        stubCompressingMerge(true);
+        var log = ValidatorLog.ofLines(List.of("Info: validate data..."));
+        when(validatorMock.validateCapturingLog(mergedFile, mergedLogFile)).thenReturn(new ValidationResult(false, log));
+        when(validatorMock.containsConstraintError(log, CONSTRAINT_NAME)).thenReturn(false);
+
+        var runner = new Runner(options, RunOptions.builder().logFileRetention(OutputRetention.FAILED).compressOutput(true).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertFalse(Files.exists(mergedFile), "The uncompressed merged file should have been replaced.");
+        assertFalse(Files.exists(mergedLogFile), "The uncompressed log file should have been replaced.");
+        assertEquals("merged", readCompressed(mergedFile.resolveSibling("testcase-1_merged.xtf.gz")));
+        assertEquals(List.of("Info: validate data..."), readCompressed(mergedLogFile.resolveSibling("testcase-1.log.gz")).lines().toList());
+    }
+
+    @Test
+    public void compressedOutputFilesOfVerifiedCaseAreDeleted() throws ValidatorException {
+        stubCompressingMerge(true);
+        var log = ValidatorLog.ofLines(List.of("Error: line 1: " + CONSTRAINT_NAME));
+        when(validatorMock.validateCapturingLog(mergedFile, mergedLogFile)).thenReturn(new ValidationResult(false, log));
+        when(validatorMock.containsConstraintError(log, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runOptions = RunOptions.builder()
+                .mergedFileRetention(OutputRetention.FAILED)
+                .logFileRetention(OutputRetention.FAILED)
+                .compressOutput(true)
+                .build();
+        var runner = new Runner(options, runOptions, validatorMock, mergerMock);
+
+        assertTrue(runner.run(), "Testbed run should have succeeded.");
+        assertFalse(Files.exists(mergedFile), "The merged file should have been deleted.");
+        assertFalse(Files.exists(mergedFile.resolveSibling("testcase-1_merged.xtf.gz")), "The compressed merged file should have been deleted.");
+        assertFalse(Files.exists(mergedLogFile.resolveSibling("testcase-1.log.gz")), "The compressed log file should not have been written.");
+    }
+
+    @Test
+    public void outputFilesOfFailedMergeAreDeleted() {
+        stubCompressingMerge(false);
+
+        var runner = new Runner(options, RunOptions.builder().compressOutput(true).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertFalse(Files.exists(mergedFile), "The partial merged file should have been deleted.");
+        assertFalse(Files.exists(mergedFile.resolveSibling("testcase-1_merged.xtf.gz")), "The partial compressed merged file should have been deleted.");
+    }
+
+    @Test
+    public void mergedFileIsDeletedIfValidationFails() throws ValidatorException {
+        stubMerge();
+        when(validatorMock.validate(mergedFile, mergedLogFile)).thenThrow(new ValidatorException("ilivalidator crashed."));
+
+        var runner = new Runner(options, validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+        assertFalse(Files.exists(mergedFile), "The merged file of a case without a result should have been deleted.");
+    }
+
+    private void stubMerge() {
+        when(mergerMock.merge(any(), any(), eq(mergedFile))).thenAnswer(invocation -> {
+            Files.createDirectories(mergedFile.getParent());
+            Files.writeString(mergedFile, "merged");
+            return true;
+        });
+    }
+
+    // The merged file is compressed by the merger while it is written.
+    private void stubCompressingMerge(boolean success) {
+        var compressedFile = mergedFile.resolveSibling("testcase-1_merged.xtf.gz");
+        when(mergerMock.merge(any(), any(), eq(mergedFile), eq(Optional.of(compressedFile)))).thenAnswer(invocation -> {
+            Files.createDirectories(mergedFile.getParent());
+            Files.writeString(mergedFile, "merged");
+            try (var output = new GZIPOutputStream(Files.newOutputStream(compressedFile))) {
+                output.write("merged".getBytes(StandardCharsets.UTF_8));
+            }
+            return success;
+        });
+    }
+
+    private static String readCompressed(Path file) throws IOException {
+        try (var input = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorOptions;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class RunnerResultCacheTest extends MockitoTestBase {
+    private static final String CONSTRAINT_NAME = TemporaryTestbed.CONSTRAINT_NAME;
+    private static final String LOG_CONTENT = "Error: line 1: " + CONSTRAINT_NAME;
+
+    private Path baseDataFile;
+    private Path patchFile;
+    private Path mergedFile;
+    private Path mergedLogFile;
+    private TestOptions options;
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @BeforeEach
+    public void setup(@TempDir Path basePath) throws IOException, ValidatorException {
+        TemporaryTestbed.create(basePath, 1);
+        var validatorFile = Files.writeString(basePath.resolve("ilivalidator.jar"), "validator");
+
+        options = new TestOptions(basePath, validatorFile, Optional.empty());
+        baseDataFile = options.basePath().resolve("data.xtf");
+        patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("testcase-1.xtf");
+        mergedFile = options.outputPath().resolve(CONSTRAINT_NAME).resolve("testcase-1_merged.xtf");
+        mergedLogFile = options.outputPath().resolve(CONSTRAINT_NAME).resolve("testcase-1.log");
+
+        when(mergerMock.merge(any(), any(), any())).thenReturn(true);
+        when(validatorMock.validate(eq(baseDataFile), any())).thenReturn(true);
+        when(validatorMock.validate(mergedFile, mergedLogFile)).thenAnswer(invocation -> {
+            Files.createDirectories(mergedLogFile.getParent());
+            Files.writeString(mergedLogFile, LOG_CONTENT);
+            return false;
+        });
+        when(validatorMock.containsConstraintError(mergedLogFile, CONSTRAINT_NAME)).thenReturn(true);
+    }
+
+    @Test
+    public void runReusesCachedResult() throws IOException, ValidatorException {
+        var runOptions = RunOptions.builder().cacheMode(CacheMode.ENABLED).build();
+
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "First run should have succeeded.");
+        Files.delete(mergedLogFile);
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Second run should have succeeded.");
+
+        assertEquals(LOG_CONTENT, Files.readString(mergedLogFile), "The cached log file should have been restored.");
+        verify(mergerMock, times(1)).merge(eq(baseDataFile), eq(patchFile), eq(mergedFile));
+        verify(validatorMock, times(1)).validate(eq(mergedFile), eq(mergedLogFile));
+        verify(validatorMock, times(2)).containsConstraintError(eq(mergedLogFile), eq(CONSTRAINT_NAME));
+    }
+
+    @Test
+    public void runValidatesChangedPatchFile() throws IOException, ValidatorException {
+        var runOptions = RunOptions.builder().cacheMode(CacheMode.ENABLED).build();
+
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "First run should have succeeded.");
+        Files.writeString(patchFile, Files.readString(patchFile) + "\n");
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Second run should have succeeded.");
+
+        verify(mergerMock, times(2)).merge(eq(baseDataFile), eq(patchFile), eq(mergedFile));
+        verify(validatorMock, times(2)).validate(eq(mergedFile), eq(mergedLogFile));
+    }
+
+    @Test
+    public void runReusesHashOfPatchFileWithUnchangedSizeAndModificationTime() throws IOException, ValidatorException {
+        var runOptions = RunOptions.builder().cacheMode(CacheMode.ENABLED).build();
+
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "First run should have succeeded.");
+        // The content changes without changing the size and modification time, so the patch file is not read again.
+        var lastModified = Files.getLastModifiedTime(patchFile);
+        var content = Files.readString(patchFile);
+        Files.writeString(patchFile, content.substring(0, content.length() - 1) + (content.endsWith("\n") ? " " : "\n"));
+        Files.setLastModifiedTime(patchFile, lastModified);
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Second run should have succeeded.");
+
+        verify(mergerMock, times(1)).merge(eq(baseDataFile), eq(patchFile), eq(mergedFile));
+        verify(validatorMock, times(1)).validate(eq(mergedFile), eq(mergedLogFile));
+    }
+
+    @Test
+    public void runWritesManifestWithoutCache() throws ValidatorException {
+        var runOptions = RunOptions.builder().cacheMode(CacheMode.DISABLED).timingReport(false).build();
+
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Run should have succeeded.");
+
+        assertTrue(Files.exists(options.outputPath().resolve(TestbedManifest.FILE_NAME)), "The manifest should have been written.");
+    }
+
+    @Test
+    public void runIgnoresCacheInRefreshMode() throws ValidatorException {
+        assertTrue(new Runner(options, RunOptions.builder().cacheMode(CacheMode.ENABLED).build(), validatorMock, mergerMock).run(), "First run should have succeeded.");
+        assertTrue(new Runner(options, RunOptions.builder().cacheMode(CacheMode.REFRESH).build(), validatorMock, mergerMock).run(), "Second run should have succeeded.");
+
+        verify(mergerMock, times(2)).merge(eq(baseDataFile), eq(patchFile), eq(mergedFile));
+        verify(validatorMock, times(2)).validate(eq(mergedFile), eq(mergedLogFile));
+    }
+
+    @Test
+    public void runValidatesAgainWithChangedValidatorOptions() throws ValidatorException {
+        var runOptions = RunOptions.builder().cacheMode(CacheMode.ENABLED).build();
+
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "First run should have succeeded.");
+        when(validatorMock.getOptions()).thenReturn(Optional.of(new ValidatorOptions(0, ValidatorOptions.defaultMaxJobsPerWorker(), true, List.of(), Optional.empty())));
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Run with compiled models should have succeeded.");
+        when(validatorMock.getOptions()).thenReturn(Optional.of(new ValidatorOptions(0, ValidatorOptions.defaultMaxJobsPerWorker(), true, List.of("-Xmx2g"), Optional.empty())));
+        assertTrue(new Runner(options, runOptions, validatorMock, mergerMock).run(), "Run with JVM arguments should have succeeded.");
+
+        verify(mergerMock, times(3)).merge(eq(baseDataFile), eq(patchFile), eq(mergedFile));
+        verify(validatorMock, times(3)).validate(eq(mergedFile), eq(mergedLogFile));
+    }
+}
@@ -1,23 +1,37 @@
 package ch.geowerkstatt.interlis.testbed.runner;
 
+import ch.geowerkstatt.interlis.testbed.runner.validation.ConstraintMatches;
 import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
 import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
 import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -71,6 +85,139 @@ public final class RunnerWithConstraintsTest extends MockitoTestBase {
         verify(mergerMock).merge(eq(BASE_DATA_FILE), eq(PATCH_FILE), eq(MERGED_FILE));
     }
 
+    @Test
+    public void runMergesAndValidatesPatchFilesInParallel() throws ValidatorException {
+        when(validatorMock.validate(eq(BASE_DATA_FILE), any())).thenReturn(true);
+        when(validatorMock.validate(MERGED_FILE, MERGED_LOG_FILE)).thenReturn(false);
+        when(validatorMock.containsConstraintError(MERGED_LOG_FILE, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runner = new Runner(options, RunOptions.builder().jobs(4).build(), validatorMock, mergerMock);
+
+        var runResult = runner.run();
+
+        assertTrue(runResult, "Testbed run should have succeeded.");
+
+        var errors = appender.getErrorMessages();
+        assertTrue(errors.isEmpty(), "No errors should have been logged.");
+
+        verify(validatorMock).validate(eq(BASE_DATA_FILE), any());
+        verify(validatorMock).validate(eq(MERGED_FILE), eq(MERGED_LOG_FILE));
+
+        verify(mergerMock).merge(eq(BASE_DATA_FILE), eq(PATCH_FILE), eq(MERGED_FILE));
+    }
+
+    @Test
+    public void parallelRunReportsCasesInDiscoveryOrder(@TempDir Path basePath) throws IOException, ValidatorException {
+        var caseCount = 4;
+        TemporaryTestbed.create(basePath, caseCount);
+        var baseDataFile = basePath.resolve("data.xtf");
+
+        // Every validation waits until all cases run at the same time, and testcase-2 completes after testcase-3.
+        var allCasesStarted = new CountDownLatch(caseCount);
+        var thirdCaseCompleted = new CountDownLatch(1);
+        when(validatorMock.validate(any(), any())).thenAnswer(invocation -> {
+            Path file = invocation.getArgument(0);
+            if (file.equals(baseDataFile)) {
+                return true;
+            }
+
+            allCasesStarted.countDown();
+            assertTrue(allCasesStarted.await(10, TimeUnit.SECONDS), "All fail cases should have been validated at the same time.");
+            if (file.getFileName().toString().startsWith("testcase-2")) {
+                assertTrue(thirdCaseCompleted.await(10, TimeUnit.SECONDS), "testcase-3 should have completed.");
+            } else if (file.getFileName().toString().startsWith("testcase-3")) {
+                thirdCaseCompleted.countDown();
+            }
+            return false;
+        });
+        when(validatorMock.containsConstraintError(any(Path.class), eq(CONSTRAINT_NAME))).thenAnswer(invocation -> {
+            Path logFile = invocation.getArgument(0);
+            var name = logFile.getFileName().toString();
+            return !name.startsWith("testcase-2") && !name.startsWith("testcase-3");
+        });
+
+        var testbedOptions = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+        var runner = new Runner(testbedOptions, RunOptions.builder().jobs(caseCount).build(), validatorMock, mergerMock);
+
+        assertFalse(runner.run(), "Testbed run should have failed.");
+
+        var failedCases = appender.getMessages().stream()
+                .map(TestLogAppender.LogEntry::message)
+                .filter(message -> message.startsWith("Fail case "))
+                .toList();
+        assertEquals(List.of(
+                "Fail case " + basePath.resolve(CONSTRAINT_NAME).resolve("testcase-2.xtf") + " could not be verified.",
+                "Fail case " + basePath.resolve(CONSTRAINT_NAME).resolve("testcase-3.xtf") + " could not be verified."), failedCases);
+        verify(mergerMock, times(caseCount)).merge(eq(baseDataFile), any(), any());
+    }
+
+    @Test
+    public void parallelRunWithoutTimingHistoryStartsLargestCaseFirst(@TempDir Path basePath) throws IOException, ValidatorException {
+        TemporaryTestbed.create(basePath, 3);
+        var constraintPath = basePath.resolve(CONSTRAINT_NAME);
+        Files.writeString(constraintPath.resolve("testcase-2.xtf"), " ".repeat(2000), StandardOpenOption.APPEND);
+        Files.writeString(constraintPath.resolve("testcase-3.xtf"), " ".repeat(1000), StandardOpenOption.APPEND);
+        var baseDataFile = basePath.resolve("data.xtf");
+
+        var mergedPatchFiles = Collections.synchronizedList(new ArrayList<String>());
+        when(mergerMock.merge(eq(baseDataFile), any(), any())).thenAnswer(invocation -> {
+            Path patchFile = invocation.getArgument(1);
+            mergedPatchFiles.add(patchFile.getFileName().toString());
+            return true;
+        });
+        when(validatorMock.validate(any(), any())).thenAnswer(invocation -> baseDataFile.equals(invocation.getArgument(0)));
+        when(validatorMock.containsConstraintError(any(Path.class), eq(CONSTRAINT_NAME))).thenReturn(true);
+
+        // A single thread runs the submitted cases one after another in the order they were started.
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var testbedOptions = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+            var runner = new Runner(testbedOptions, RunOptions.builder().jobs(3).build(), validatorMock, mergerMock, executor, null);
+
+            assertTrue(runner.run(), "Testbed run should have succeeded.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of("testcase-2.xtf", "testcase-3.xtf", "testcase-1.xtf"), mergedPatchFiles);
+    }
+
+    @Test
+    public void interruptedRunFails() throws ValidatorException {
+        when(validatorMock.validate(eq(BASE_DATA_FILE), any())).thenReturn(true);
+        when(validatorMock.validate(MERGED_FILE, MERGED_LOG_FILE)).thenReturn(false);
+        when(validatorMock.containsConstraintError(MERGED_LOG_FILE, CONSTRAINT_NAME)).thenAnswer(invocation -> {
+            // The run is interrupted while it waits for the next fail case.
+            Thread.currentThread().interrupt();
+            return true;
+        });
+
+        var runner = new Runner(options, validatorMock, mergerMock);
+
+        var runResult = runner.run();
+        var interrupted = Thread.interrupted();
+
+        assertFalse(runResult, "An interrupted testbed run should have failed.");
+        assertTrue(interrupted, "The interrupt should have been kept.");
+    }
+
+    @Test
+    public void runFailCasesSkipsBaseDataValidation() throws ValidatorException {
+        when(validatorMock.validate(MERGED_FILE, MERGED_LOG_FILE)).thenReturn(false);
+        when(validatorMock.containsConstraintError(MERGED_LOG_FILE, CONSTRAINT_NAME)).thenReturn(true);
+
+        var runner = new Runner(options, validatorMock, mergerMock);
+
+        var runResult = runner.runFailCases(List.of(PATCH_FILE));
+
+        assertTrue(runResult, "Fail case run should have succeeded.");
+
+        verify(validatorMock, never()).validate(eq(BASE_DATA_FILE), any());
+        verify(validatorMock).validate(eq(MERGED_FILE), eq(MERGED_LOG_FILE));
+
+        verify(mergerMock).merge(eq(BASE_DATA_FILE), eq(PATCH_FILE), eq(MERGED_FILE));
+    }
+
     @Test
     public void runFailsIfMergeFails() throws ValidatorException {
         when(validatorMock.validate(eq(BASE_DATA_FILE), any())).thenReturn(true);
@@ -138,4 +285,45 @@ public final class RunnerWithConstraintsTest extends MockitoTestBase {
 
         verify(mergerMock).merge(eq(BASE_DATA_FILE), eq(PATCH_FILE), eq(MERGED_FILE));
     }
+
+    @Test
+    public void runVerifiesFurtherExpectedConstraints(@TempDir Path basePath) throws IOException, ValidatorException {
+        var runner = createRunnerExpectingFurtherConstraints(basePath);
+        when(validatorMock.findConstraintErrors(any(Path.class), eq(List.of(CONSTRAINT_NAME, "constraintB", "constraintC"))))
+                .thenReturn(new ConstraintMatches(Map.of(CONSTRAINT_NAME, List.of(3L), "constraintB", List.of(4L), "constraintC", List.of(5L))));
+
+        assertTrue(runner.run(), "Testbed run should have succeeded.");
+        assertTrue(appender.getErrorMessages().isEmpty(), "No errors should have been logged.");
+        verify(validatorMock, never()).containsConstraintError(any(Path.class), anyString());
+    }
+
+    @Test
+    public void runFailsIfFurtherExpectedConstraintIsMissing(@TempDir Path basePath) throws IOException, ValidatorException {
+        var runner = createRunnerExpectingFurtherConstraints(basePath);
+        when(validatorMock.findConstraintErrors(any(Path.class), eq(List.of(CONSTRAINT_NAME, "constraintB", "constraintC"))))
+                .thenReturn(new ConstraintMatches(Map.of(CONSTRAINT_NAME, List.of(3L))));
+
+        assertFalse(runner.run(), "Testbed run should have failed if an expected constraint error is missing.");
+
+        var errors = appender.getErrorMessages();
+        assertEquals(1, errors.size(), "One error should have been logged.");
+        var expectedErrorMessageStart = "Could not verify constraint constraintB, constraintC for merged file";
+        assertTrue(
+                errors.getFirst().startsWith(expectedErrorMessageStart),
+                "Expected error to start with: " + expectedErrorMessageStart + ". Actual: '" + errors.getFirst() + "'.");
+    }
+
+    private Runner createRunnerExpectingFurtherConstraints(Path basePath) throws IOException, ValidatorException {
+        var patchFile = TemporaryTestbed.create(basePath, 1).resolve(CONSTRAINT_NAME).resolve("testcase-1.xtf");
+        Files.writeString(ExpectedConstraints.getFile(patchFile), """
+                # Errors reported besides the constraint of the directory
+                constraintB
+
+                constraintC
+                """);
+        var baseDataFile = basePath.resolve("data.xtf");
+        when(validatorMock.validate(any(), any())).thenAnswer(invocation -> baseDataFile.equals(invocation.getArgument(0)));
+
+        return new Runner(new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty()), validatorMock, mergerMock);
+    }
 }
@@ -0,0 +1,80 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ShardResultTest {
+    @Test
+    public void writeAndReadResult(@TempDir Path tempDir) throws IOException {
+        var shard = new Shard(1, 2);
+        var result = createResult(shard, ShardResult.BaseDataStatus.SKIPPED, ShardResult.CaseStatus.FAILED);
+        var file = tempDir.resolve(ShardResult.fileName(shard));
+
+        result.write(file);
+        var readResult = ShardResult.read(file);
+
+        assertEquals(ShardResult.BaseDataStatus.SKIPPED, readResult.baseData());
+        assertEquals(result.cases(), readResult.cases());
+        assertFalse(readResult.success(), "The failed case should have been read.");
+        assertEquals(List.of(file), ShardResult.findFiles(List.of(tempDir)));
+    }
+
+    @Test
+    public void writeAndReadCombinedResult(@TempDir Path tempDir) throws IOException {
+        var merged = ShardResult.merge(List.of(
+                createResult(new Shard(0, 2), ShardResult.BaseDataStatus.VALID, ShardResult.CaseStatus.VERIFIED),
+                createResult(new Shard(1, 2), ShardResult.BaseDataStatus.SKIPPED, ShardResult.CaseStatus.VERIFIED)));
+        var file = tempDir.resolve("shards.tsv");
+
+        merged.write(file);
+        var readResult = ShardResult.read(file);
+
+        assertEquals(ShardResult.BaseDataStatus.VALID, readResult.baseData());
+        assertEquals(merged.cases(), readResult.cases());
+        assertTrue(readResult.success(), "The combined result should have been read as passed.");
+        assertFalse(ShardResult.merge(List.of(readResult)).success(), "A combined result should not be combined again.");
+    }
+
+    @Test
+    public void mergeCombinesAllShards() {
+        var merged = ShardResult.merge(List.of(
+                createResult(new Shard(0, 2), ShardResult.BaseDataStatus.VALID, ShardResult.CaseStatus.VERIFIED),
+                createResult(new Shard(1, 2), ShardResult.BaseDataStatus.SKIPPED, ShardResult.CaseStatus.VERIFIED)));
+
+        assertTrue(merged.success(), "The combined result should have passed.");
+        assertEquals(ShardResult.BaseDataStatus.VALID, merged.baseData());
+        assertEquals(2, merged.cases().size());
+    }
+
+    @Test
+    public void mergeFailsIfShardIsMissing() {
+        var merged = ShardResult.merge(List.of(createResult(new Shard(0, 2), ShardResult.BaseDataStatus.VALID, ShardResult.CaseStatus.VERIFIED)));
+
+        assertFalse(merged.success(), "The combined result should have failed.");
+    }
+
+    @Test
+    public void mergeFailsIfNoShardValidatedBaseData() {
+        var merged = ShardResult.merge(List.of(
+                createResult(new Shard(0, 2), ShardResult.BaseDataStatus.SKIPPED, ShardResult.CaseStatus.VERIFIED),
+                createResult(new Shard(1, 2), ShardResult.BaseDataStatus.SKIPPED, ShardResult.CaseStatus.VERIFIED)));
+
+        assertFalse(merged.success(), "The combined result should have failed.");
+    }
+
+    private static ShardResult createResult(Shard shard, ShardResult.BaseDataStatus baseData, ShardResult.CaseStatus status) {
+        var result = new ShardResult(shard);
+        result.setBaseData(baseData);
+        result.setCase(Path.of("constraintA", "testcase-" + shard.index() + ".xtf"), status);
+        result.setPassed(status == ShardResult.CaseStatus.VERIFIED);
+        return result;
+    }
+}
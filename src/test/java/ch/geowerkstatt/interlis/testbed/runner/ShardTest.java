@@ -0,0 +1,57 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class ShardTest {
+    private static final Map<Path, Long> WEIGHTS = Map.of(
+            Path.of("a", "case1.xtf"), 100L,
+            Path.of("a", "case2.xtf"), 60L,
+            Path.of("b", "case1.xtf"), 50L,
+            Path.of("b", "case2.xtf"), 40L,
+            Path.of("c", "case1.xtf"), 10L);
+    private static final List<Path> PATCH_FILES = WEIGHTS.keySet().stream().sorted().toList();
+
+    @Test
+    public void parseReadsIndexAndCount() {
+        assertEquals(new Shard(1, 4), Shard.parse("1/4"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("4/4"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("1"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("a/b"));
+    }
+
+    @Test
+    public void shardsContainEveryPatchFileOnce() {
+        var allFiles = new ArrayList<Path>();
+        for (var i = 0; i < 3; i++) {
+            allFiles.addAll(new Shard(i, 3).select(PATCH_FILES, WEIGHTS::get));
+        }
+
+        assertEquals(PATCH_FILES.size(), allFiles.size());
+        assertEquals(new HashSet<>(PATCH_FILES), new HashSet<>(allFiles));
+    }
+
+    @Test
+    public void selectBalancesWeights() {
+        assertEquals(List.of(Path.of("a", "case1.xtf"), Path.of("b", "case2.xtf")), new Shard(0, 2).select(PATCH_FILES, WEIGHTS::get));
+        assertEquals(List.of(Path.of("a", "case2.xtf"), Path.of("b", "case1.xtf"), Path.of("c", "case1.xtf")), new Shard(1, 2).select(PATCH_FILES, WEIGHTS::get));
+    }
+
+    @Test
+    public void selectDoesNotDependOnOrderOfPatchFiles() {
+        var reversed = new ArrayList<>(PATCH_FILES).reversed();
+
+        for (var i = 0; i < 3; i++) {
+            var shard = new Shard(i, 3);
+            assertEquals(new HashSet<>(shard.select(PATCH_FILES, WEIGHTS::get)), new HashSet<>(shard.select(reversed, WEIGHTS::get)));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates copies of the testbed with patches that can be modified by a test.
+ */
+public final class TemporaryTestbed {
+    public static final String CONSTRAINT_NAME = "constraintA";
+    private static final Path SOURCE_PATH = Path.of("src/test/data/testbed-with-patches");
+
+    private TemporaryTestbed() {
+    }
+
+    /**
+     * Copies the base data of the testbed with patches and adds fail cases for {@value #CONSTRAINT_NAME}.
+     *
+     * @param basePath  the directory of the new testbed, created if it does not exist.
+     * @param caseCount the number of fail cases, named testcase-1 to testcase-{@code caseCount}.
+     * @return the directory of the new testbed.
+     * @throws IOException if the testbed could not be copied.
+     */
+    public static Path create(Path basePath, int caseCount) throws IOException {
+        Files.createDirectories(basePath.resolve(CONSTRAINT_NAME));
+        Files.copy(SOURCE_PATH.resolve("data.xtf"), basePath.resolve("data.xtf"));
+        for (var i = 1; i <= caseCount; i++) {
+            addCase(basePath, i);
+        }
+        return basePath;
+    }
+
+    /**
+     * Adds a copy of the first fail case of the testbed with patches.
+     *
+     * @param basePath the directory of the testbed.
+     * @param number   the number of the fail case in its file name.
+     * @return the patch file of the fail case.
+     * @throws IOException if the fail case could not be copied.
+     */
+    public static Path addCase(Path basePath, int number) throws IOException {
+        return Files.copy(SOURCE_PATH.resolve(CONSTRAINT_NAME).resolve("testcase-1.xtf"), basePath.resolve(CONSTRAINT_NAME).resolve("testcase-" + number + ".xtf"));
+    }
+}
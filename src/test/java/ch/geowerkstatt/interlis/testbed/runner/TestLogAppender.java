@@ -7,6 +7,7 @@ import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,7 +15,7 @@ import java.util.List;
  */
 public final class TestLogAppender extends AbstractAppender {
     private final Class<?> loggerClass;
-    private final List<LogEntry> messages = new ArrayList<>();
+    private final List<LogEntry> messages = Collections.synchronizedList(new ArrayList<>());
 
     public record LogEntry(Level level, String message) {
     }
@@ -0,0 +1,96 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TestbedDiscoveryTest {
+    private Path basePath;
+    private TestOptions options;
+
+    @BeforeEach
+    public void setup(@TempDir Path basePath) throws IOException {
+        this.basePath = basePath;
+        options = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+
+        Files.writeString(basePath.resolve("data.xtf"), "base");
+        Files.writeString(basePath.resolve("model.ili"), "model");
+        for (var constraint : new String[] {"ModelA.TopicA.ClassA.ConstraintA", "ModelA.TopicA.ClassA.ConstraintB"}) {
+            var constraintDirectory = Files.createDirectory(basePath.resolve(constraint));
+            Files.writeString(constraintDirectory.resolve("case1.xtf"), "case1");
+            Files.writeString(constraintDirectory.resolve("case2.xtf"), "case2");
+            Files.writeString(constraintDirectory.resolve("notes.txt"), "notes");
+        }
+        var outputDirectory = Files.createDirectories(options.outputPath().resolve("ModelA.TopicA.ClassA.ConstraintA"));
+        Files.writeString(outputDirectory.resolve("case1_merged.xtf"), "merged");
+    }
+
+    @Test
+    public void findsFilesInTheOrderOfTestOptions() throws IOException {
+        var discovery = TestbedDiscovery.start(options);
+        var foundPatchFiles = new ArrayList<Path>();
+        var manifest = discovery.findPatchFiles(foundPatchFiles::add);
+
+        assertEquals(options.baseDataFilePath(), discovery.baseDataFile());
+        assertEquals(options.patchDataFiles(), foundPatchFiles);
+        assertEquals(options.patchDataFiles(), manifest.patchFiles());
+    }
+
+    @Test
+    public void manifestReportsChangedFiles() throws IOException {
+        var manifestFile = options.outputPath().resolve(TestbedManifest.FILE_NAME);
+        TestbedDiscovery.start(options).findPatchFiles(patchFile -> { }).write(manifestFile);
+
+        var changedFile = basePath.resolve("ModelA.TopicA.ClassA.ConstraintB").resolve("case1.xtf");
+        Files.writeString(changedFile, "changed case1");
+        Files.setLastModifiedTime(changedFile, FileTime.fromMillis(0));
+        var addedFile = Files.writeString(basePath.resolve("ModelA.TopicA.ClassA.ConstraintA").resolve("case3.xtf"), "case3");
+        var deletedFile = basePath.resolve("ModelA.TopicA.ClassA.ConstraintA").resolve("case2.xtf");
+        Files.delete(deletedFile);
+
+        var manifest = TestbedDiscovery.start(options).findPatchFiles(patchFile -> { });
+        var previousManifest = TestbedManifest.read(manifestFile, basePath);
+
+        assertTrue(previousManifest.isPresent());
+        assertEquals(Set.of(changedFile, addedFile, deletedFile), manifest.changedPaths(previousManifest.get()));
+    }
+
+    @Test
+    public void manifestKeepsHashesOfUnchangedFiles() throws IOException {
+        var manifestFile = options.outputPath().resolve(TestbedManifest.FILE_NAME);
+        var manifest = TestbedDiscovery.start(options).findPatchFiles(patchFile -> { });
+        var hashes = new HashMap<TestbedManifest.Entry, String>();
+        manifest.entries().forEach(entry -> hashes.put(entry, "hash of " + entry.path().getFileName()));
+        manifest.withContentHashes(hashes).write(manifestFile);
+
+        var changedFile = basePath.resolve("ModelA.TopicA.ClassA.ConstraintB").resolve("case1.xtf");
+        Files.writeString(changedFile, "changed case1");
+        var previousManifest = TestbedManifest.read(manifestFile, basePath).orElseThrow();
+        var currentManifest = TestbedDiscovery.start(options).findPatchFiles(patchFile -> { });
+
+        for (var entry : currentManifest.entries()) {
+            if (entry.path().equals(changedFile)) {
+                assertTrue(previousManifest.contentHash(entry).isEmpty(), "The hash of the changed file should not be reused.");
+            } else {
+                assertEquals(Optional.of("hash of " + entry.path().getFileName()), previousManifest.contentHash(entry));
+            }
+        }
+    }
+
+    @Test
+    public void missingManifestIsEmpty() throws IOException {
+        assertTrue(TestbedManifest.read(options.outputPath().resolve(TestbedManifest.FILE_NAME), basePath).isEmpty());
+    }
+}
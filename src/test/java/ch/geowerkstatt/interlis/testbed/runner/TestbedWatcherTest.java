@@ -0,0 +1,122 @@
+package ch.geowerkstatt.interlis.testbed.runner;
+
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public final class TestbedWatcherTest extends MockitoTestBase {
+    private static final Path BASE_PATH = Path.of("src/test/data/testbed-with-patches").toAbsolutePath().normalize();
+    private static final Path PATCH_FILE = BASE_PATH.resolve("constraintA").resolve("testcase-1.xtf");
+    private static final Path OTHER_PATCH_FILE = BASE_PATH.resolve("constraintA").resolve("testcase-2.xtf");
+    private static final Path OTHER_CONSTRAINT_PATCH_FILE = BASE_PATH.resolve("constraintB").resolve("testcase-1.xtf");
+
+    private final TestOptions options = new TestOptions(BASE_PATH, Path.of("ilivalidator.jar"), Optional.of(BASE_PATH.resolve("config.toml")));
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @Test
+    public void changedPatchFileAffectsOnlyItsFailCase() {
+        var changes = TestbedWatcher.getChanges(options, List.of(PATCH_FILE));
+
+        assertFalse(changes.allCases(), "Only the changed fail case should be affected.");
+        assertTrue(changes.affects(PATCH_FILE), "The changed fail case should be affected.");
+        assertFalse(changes.affects(OTHER_PATCH_FILE), "Other fail cases should not be affected.");
+    }
+
+    @Test
+    public void changedExpectedConstraintsFileAffectsItsFailCase() {
+        var changes = TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("constraintA").resolve("testcase-1.constraints")));
+
+        assertFalse(changes.allCases(), "Only the fail case of the changed file should be affected.");
+        assertTrue(changes.affects(PATCH_FILE), "The fail case of the changed file should be affected.");
+        assertFalse(changes.affects(OTHER_PATCH_FILE), "Other fail cases should not be affected.");
+    }
+
+    @Test
+    public void changedConstraintDirectoryAffectsItsFailCases() {
+        var changes = TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("constraintA")));
+
+        assertFalse(changes.allCases(), "Only the fail cases of the directory should be affected.");
+        assertTrue(changes.affects(PATCH_FILE), "The fail cases of the directory should be affected.");
+        assertTrue(changes.affects(OTHER_PATCH_FILE), "The fail cases of the directory should be affected.");
+        assertFalse(changes.affects(OTHER_CONSTRAINT_PATCH_FILE), "Fail cases of other directories should not be affected.");
+    }
+
+    @Test
+    public void changedBaseFileModelOrConfigAffectsAllCases() {
+        assertTrue(TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("data.xtf"))).allCases(), "A changed base data file should affect all fail cases.");
+        assertTrue(TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("Model.ili"))).allCases(), "A changed model file should affect all fail cases.");
+        assertTrue(TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("config.toml"))).allCases(), "A changed config file should affect all fail cases.");
+    }
+
+    @Test
+    public void changesInOutputDirectoryAreIgnored() {
+        var changes = TestbedWatcher.getChanges(options, List.of(
+                options.outputPath().resolve("constraintA"),
+                options.outputPath().resolve("constraintA").resolve("testcase-1_merged.xtf"),
+                options.outputPath().resolve("data.log")));
+
+        assertTrue(changes.isEmpty(), "Changes in the output directory should not affect any fail case.");
+    }
+
+    @Test
+    public void otherFilesInTestbedDirectoryAreIgnored() {
+        var changes = TestbedWatcher.getChanges(options, List.of(BASE_PATH.resolve("README.md"), BASE_PATH.resolve("notes.txt")));
+
+        assertTrue(changes.isEmpty(), "Files next to the base data that are no data or model files should not affect any fail case.");
+    }
+
+    @Test
+    public void changedConfigFileOutsideOfTestbedRunsTestbedAgain(@TempDir Path tempDir) throws IOException, ValidatorException, InterruptedException {
+        var basePath = TemporaryTestbed.create(tempDir.resolve("testbed"), 1);
+        var configFile = Files.writeString(Files.createDirectories(tempDir.resolve("config")).resolve("config.toml"), "[\"PARAMETER\"]");
+
+        var baseDataValidations = new Semaphore(0);
+        when(validatorMock.validate(any(), any())).thenAnswer(invocation -> {
+            baseDataValidations.release();
+            return true;
+        });
+        when(mergerMock.merge(any(), any(), any())).thenReturn(false);
+
+        var testbedOptions = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.of(configFile));
+        var watcher = new TestbedWatcher(testbedOptions, new Runner(testbedOptions, validatorMock, mergerMock));
+        var watcherThread = Thread.ofPlatform().start(() -> {
+            try {
+                watcher.watch();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try {
+            assertTrue(baseDataValidations.tryAcquire(10, TimeUnit.SECONDS), "The testbed should have been run.");
+
+            Files.writeString(tempDir.resolve("config").resolve("other.txt"), "other");
+            Files.writeString(configFile, "[\"PARAMETER\"]\nmultiplicity=\"off\"");
+
+            assertTrue(baseDataValidations.tryAcquire(10, TimeUnit.SECONDS), "The testbed should have been run again after the config file changed.");
+            assertFalse(baseDataValidations.tryAcquire(1, TimeUnit.SECONDS), "The other file next to the config file should not have run the testbed again.");
+        } finally {
+            watcherThread.interrupt();
+            watcherThread.join();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ch.geowerkstatt.interlis.testbed.runner;
 
+import ch.geowerkstatt.interlis.testbed.runner.validation.InProcessValidator;
 import ch.geowerkstatt.interlis.testbed.runner.validation.InterlisValidator;
 import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import java.nio.file.Path;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class ValidatorTest {
@@ -48,4 +50,9 @@ public final class ValidatorTest {
             assertTrue(hasConstraintInfo, "The log file should contain an info message for the constraint.");
         }
     }
+
+    @Test
+    public void inProcessValidatorRequiresValidatorJar() {
+        assertThrows(ValidatorException.class, () -> new InProcessValidator(options));
+    }
 }
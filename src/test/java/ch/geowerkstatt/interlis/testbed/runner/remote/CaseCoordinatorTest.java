@@ -0,0 +1,272 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import ch.geowerkstatt.interlis.testbed.runner.MockitoTestBase;
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import ch.geowerkstatt.interlis.testbed.runner.validation.Validator;
+import ch.geowerkstatt.interlis.testbed.runner.validation.ValidatorException;
+import ch.geowerkstatt.interlis.testbed.runner.xtf.XtfMerger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public final class CaseCoordinatorTest extends MockitoTestBase {
+    private static final String CONSTRAINT_NAME = "ModelA.TopicA.ClassA.ConstraintA";
+    private static final int CASE_COUNT = 4;
+    private static final String TOKEN = "secret";
+
+    private TestOptions options;
+    private Path baseFile;
+    private CaseCoordinator coordinator;
+    private ExecutorService executor;
+    @Mock
+    private Validator validatorMock;
+    @Mock
+    private XtfMerger mergerMock;
+
+    @BeforeEach
+    public void setup(@TempDir Path basePath) throws IOException {
+        baseFile = Files.writeString(basePath.resolve("data.xtf"), "base");
+        Files.createDirectories(basePath.resolve(CONSTRAINT_NAME));
+        for (var i = 1; i <= CASE_COUNT; i++) {
+            Files.writeString(basePath.resolve(CONSTRAINT_NAME).resolve("case" + i + ".xtf"), "case" + i);
+        }
+
+        options = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+        coordinator = CaseCoordinator.start(options, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), TOKEN);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void teardown() {
+        coordinator.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void casesAreRunBySeveralWorkers() throws Exception {
+        stubValidation();
+        var workers = new ArrayList<Future<Boolean>>();
+        for (var i = 0; i < 2; i++) {
+            var worker = new CaseWorker(options, validatorMock, mergerMock, 2, TOKEN);
+            workers.add(executor.submit(() -> worker.run("localhost", coordinator.port())));
+        }
+
+        var cases = new ArrayList<Future<Optional<ValidationResultSummary>>>();
+        for (var i = 1; i <= CASE_COUNT; i++) {
+            var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case" + i + ".xtf");
+            cases.add(executor.submit(() -> execute(patchFile)));
+        }
+
+        for (var remoteCase : cases) {
+            var result = remoteCase.get();
+            assertTrue(result.isPresent());
+            assertFalse(result.get().valid());
+            assertTrue(result.get().containsConstraintError());
+        }
+
+        coordinator.close();
+        for (var worker : workers) {
+            assertTrue(worker.get(), "The workers should end when the coordinator is closed.");
+        }
+    }
+
+    @Test
+    public void caseOfDisconnectedWorkerIsHandedOutAgain() throws Exception {
+        stubValidation();
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+        var result = executor.submit(() -> execute(patchFile));
+
+        try (var socket = connectWorker()) {
+            receiveCase(socket, "case1.xtf");
+        }
+
+        var worker = new CaseWorker(options, validatorMock, mergerMock, 1, TOKEN);
+        executor.submit(() -> worker.run("localhost", coordinator.port()));
+
+        assertTrue(result.get().get().containsConstraintError(), "The case should have been run by the second worker.");
+    }
+
+    @Test
+    public void caseOfSilentWorkerIsHandedOutAgain() throws Exception {
+        restartCoordinator(Duration.ofMillis(200), Duration.ofMinutes(1));
+        stubValidation();
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+        var result = executor.submit(() -> execute(patchFile));
+
+        // The first worker keeps the connection open but never answers.
+        try (var socket = connectWorker()) {
+            receiveCase(socket, "case1.xtf");
+
+            var worker = new CaseWorker(options, validatorMock, mergerMock, 1, TOKEN);
+            executor.submit(() -> worker.run("localhost", coordinator.port()));
+
+            assertTrue(result.get(10, TimeUnit.SECONDS).get().containsConstraintError(), "The case should have been run by the second worker.");
+        }
+    }
+
+    @Test
+    public void heartbeatsKeepBusyWorker() throws Exception {
+        restartCoordinator(Duration.ofMillis(200), Duration.ofMinutes(1));
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+        var result = executor.submit(() -> execute(patchFile));
+
+        try (var socket = connectWorker()) {
+            receiveCase(socket, "case1.xtf");
+
+            var output = new DataOutputStream(socket.getOutputStream());
+            for (var i = 0; i < 5; i++) {
+                Thread.sleep(100);
+                output.writeUTF(RemoteProtocol.HEARTBEAT_MESSAGE);
+                output.flush();
+            }
+            output.writeUTF(RemoteProtocol.RESULT_MESSAGE);
+            output.writeBoolean(true);
+            output.writeLong(0);
+            output.flush();
+
+            assertTrue(result.get(10, TimeUnit.SECONDS).get().valid(), "The result of the busy worker should have been used.");
+        }
+    }
+
+    @Test
+    public void caseFailsIfNoWorkerConnects() throws Exception {
+        restartCoordinator(Duration.ofMinutes(1), Duration.ofMillis(200));
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+
+        var exception = assertThrows(ValidatorException.class, () -> execute(patchFile));
+        assertTrue(exception.getMessage().startsWith("No worker connected"), exception.getMessage());
+    }
+
+    @Test
+    public void caseFailsAfterMaxAttempts() throws Exception {
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+        var result = executor.submit(() -> execute(patchFile));
+
+        for (var i = 0; i < 3; i++) {
+            try (var socket = connectWorker()) {
+                receiveCase(socket, "case1.xtf");
+            }
+        }
+
+        var exception = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertEquals("Fail case " + CONSTRAINT_NAME + "/case1.xtf was lost by 3 workers.", exception.getCause().getMessage());
+    }
+
+    @Test
+    public void failedMergeIsReported() throws Exception {
+        when(mergerMock.merge(any(), any(), any())).thenReturn(false);
+        var worker = new CaseWorker(options, validatorMock, mergerMock, 1, TOKEN);
+        executor.submit(() -> worker.run("localhost", coordinator.port()));
+
+        assertTrue(execute(options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf")).isEmpty());
+    }
+
+    @Test
+    public void missingPatchFileOnWorkerIsAnError() throws Exception {
+        var worker = new CaseWorker(options, validatorMock, mergerMock, 1, TOKEN);
+        executor.submit(() -> worker.run("localhost", coordinator.port()));
+
+        assertThrows(ValidatorException.class, () -> execute(options.basePath().resolve(CONSTRAINT_NAME).resolve("missing.xtf")));
+    }
+
+    @Test
+    public void workerWithInvalidTokenIsRejected() throws Exception {
+        stubValidation();
+        var patchFile = options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf");
+        var result = executor.submit(() -> execute(patchFile));
+
+        var rejectedWorker = new CaseWorker(options, validatorMock, mergerMock, 1, "wrong");
+        assertFalse(executor.submit(() -> rejectedWorker.run("localhost", coordinator.port())).get(10, TimeUnit.SECONDS), "The worker should have been rejected.");
+        assertFalse(result.isDone(), "The case should not have been handed out to the rejected worker.");
+
+        var worker = new CaseWorker(options, validatorMock, mergerMock, 1, TOKEN);
+        executor.submit(() -> worker.run("localhost", coordinator.port()));
+        assertTrue(result.get(10, TimeUnit.SECONDS).get().containsConstraintError(), "The case should have been run by the accepted worker.");
+    }
+
+    @Test
+    public void changedPatchFileOnWorkerIsAnError() throws Exception {
+        var workerBasePath = Files.createDirectories(options.outputPath().resolve("worker-testbed"));
+        Files.copy(baseFile, workerBasePath.resolve("data.xtf"));
+        Files.createDirectories(workerBasePath.resolve(CONSTRAINT_NAME));
+        Files.writeString(workerBasePath.resolve(CONSTRAINT_NAME).resolve("case1.xtf"), "changed case1");
+        var workerOptions = new TestOptions(workerBasePath, Path.of("ilivalidator.jar"), Optional.empty());
+        var worker = new CaseWorker(workerOptions, validatorMock, mergerMock, 1, TOKEN);
+        executor.submit(() -> worker.run("localhost", coordinator.port()));
+
+        var exception = assertThrows(ValidatorException.class, () -> execute(options.basePath().resolve(CONSTRAINT_NAME).resolve("case1.xtf")));
+        assertTrue(exception.getMessage().contains("contains another version of"), exception.getMessage());
+    }
+
+    private void restartCoordinator(Duration readTimeout, Duration workerTimeout) throws IOException {
+        coordinator.close();
+        coordinator = CaseCoordinator.start(options, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), TOKEN, readTimeout, workerTimeout);
+    }
+
+    private Socket connectWorker() throws IOException {
+        var socket = new Socket("localhost", coordinator.port());
+        var output = new DataOutputStream(socket.getOutputStream());
+        output.writeUTF(RemoteProtocol.HELLO_MESSAGE);
+        output.writeInt(RemoteProtocol.VERSION);
+        output.writeUTF(TOKEN);
+        output.flush();
+        return socket;
+    }
+
+    private static void receiveCase(Socket socket, String patchFileName) throws IOException {
+        var input = new DataInputStream(socket.getInputStream());
+        assertEquals(RemoteProtocol.CASE_MESSAGE, input.readUTF());
+        assertEquals("data.xtf", input.readUTF());
+        assertEquals(64, input.readUTF().length(), "The SHA-256 hash of the base data file should have been sent.");
+        assertEquals(CONSTRAINT_NAME + "/" + patchFileName, input.readUTF());
+        assertEquals(64, input.readUTF().length(), "The SHA-256 hash of the patch file should have been sent.");
+    }
+
+    private void stubValidation() throws ValidatorException {
+        when(mergerMock.merge(any(), any(), any())).thenReturn(true);
+        when(validatorMock.validate(any(), any())).thenAnswer(invocation -> {
+            Path logFile = invocation.getArgument(1);
+            Files.writeString(logFile, "Error: line 1: ModelA.TopicA.ClassA tid 1: " + CONSTRAINT_NAME + " failed\n");
+            return false;
+        });
+    }
+
+    private Optional<ValidationResultSummary> execute(Path patchFile) throws ValidatorException {
+        var mergedFile = options.resolveOutputFilePath(patchFile, "merged.xtf");
+        var logFile = options.resolveOutputFilePath(patchFile, "merged.log");
+        var result = coordinator.execute(baseFile, patchFile, mergedFile, logFile);
+        if (result.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ValidationResultSummary(result.get().valid(), result.get().log().containsConstraintError(CONSTRAINT_NAME)));
+    }
+
+    private record ValidationResultSummary(boolean valid, boolean containsConstraintError) {
+    }
+}
@@ -0,0 +1,54 @@
+package ch.geowerkstatt.interlis.testbed.runner.remote;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class RemoteProtocolTest {
+    @Test
+    public void readLogReturnsWrittenLog(@TempDir Path tempDir) throws IOException {
+        var sentLogFile = Files.writeString(tempDir.resolve("sent.log"), "Info: first\nError: second\n");
+
+        var bytes = new ByteArrayOutputStream();
+        RemoteProtocol.writeLog(new DataOutputStream(bytes), sentLogFile);
+        var log = RemoteProtocol.readLog(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), tempDir.resolve("received.log"));
+
+        var writtenLogFile = tempDir.resolve("written.log");
+        log.writeTo(writtenLogFile);
+        assertEquals(List.of("Info: first", "Error: second"), Files.readAllLines(writtenLogFile));
+    }
+
+    @Test
+    public void readLogRejectsNegativeLength(@TempDir Path tempDir) throws IOException {
+        var logFile = tempDir.resolve("received.log");
+
+        assertThrows(IOException.class, () -> RemoteProtocol.readLog(toStream(-1), logFile));
+        assertFalse(Files.exists(logFile));
+    }
+
+    @Test
+    public void readLogRejectsOversizedLength(@TempDir Path tempDir) throws IOException {
+        var logFile = tempDir.resolve("received.log");
+
+        assertThrows(IOException.class, () -> RemoteProtocol.readLog(toStream(Long.MAX_VALUE), logFile));
+        assertFalse(Files.exists(logFile), "No log file should have been written for an oversized log.");
+    }
+
+    private static DataInputStream toStream(long length) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeLong(length);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
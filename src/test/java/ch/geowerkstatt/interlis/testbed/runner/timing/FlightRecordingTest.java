@@ -0,0 +1,40 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class FlightRecordingTest {
+    @Test
+    public void recordingContainsRunnerEvents(@TempDir Path tempDir) throws IOException {
+        var recordingFile = tempDir.resolve("recordings").resolve("run.jfr");
+
+        try (var recording = FlightRecording.start(recordingFile)) {
+            var report = new TimingReport(tempDir);
+            try (var caseTimings = report.startCase("constraintA/case.xtf", "constraintA")) {
+                var event = new MergeEvent();
+                event.begin();
+                event.end();
+                event.setPatchFile(tempDir.resolve("constraintA").resolve("case.xtf"));
+                event.setPatchCounts(2, 5);
+                event.setSuccess(true);
+                event.commit();
+            }
+        }
+
+        assertTrue(Files.exists(recordingFile), "The recording should have been written.");
+        var events = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(e -> e.getEventType().getName().equals("ch.geowerkstatt.interlis.testbed.runner.Merge"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("constraintA", events.getFirst().getString("constraintName"));
+        assertEquals(5, events.getFirst().getInt("patchObjectCount"));
+    }
+}
@@ -0,0 +1,50 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TimingHistoryTest {
+    @Test
+    public void readMissingFileReturnsEmptyHistory(@TempDir Path tempDir) throws IOException {
+        var history = TimingHistory.read(tempDir.resolve(TimingHistory.FILE_NAME));
+
+        assertTrue(history.isEmpty(), "The history should be empty.");
+    }
+
+    @Test
+    public void updateAddsCasesOfReport(@TempDir Path tempDir) throws IOException {
+        var historyFile = tempDir.resolve("output").resolve(TimingHistory.FILE_NAME);
+        var report = new TimingReport(tempDir);
+        report.startCase("constraintA/case1.xtf", "constraintA").close();
+        try (var cachedCase = report.startCase("constraintA/case2.xtf", "constraintA")) {
+            cachedCase.markCached();
+        }
+
+        var history = TimingHistory.empty();
+        history.update(report);
+        history.write(historyFile);
+        var readHistory = TimingHistory.read(historyFile);
+
+        assertTrue(readHistory.durationMillis("constraintA/case1.xtf").isPresent(), "The case should have been recorded.");
+        assertEquals(OptionalLong.empty(), readHistory.durationMillis("constraintA/case2.xtf"), "Cached cases should not be recorded.");
+    }
+
+    @Test
+    public void readIgnoresInvalidLines(@TempDir Path tempDir) throws IOException {
+        var historyFile = tempDir.resolve(TimingHistory.FILE_NAME);
+        Files.writeString(historyFile, "constraintA/case1.xtf\t120\ninvalid\nconstraintA/case2.xtf\tslow\n");
+
+        var history = TimingHistory.read(historyFile);
+
+        assertEquals(OptionalLong.of(120), history.durationMillis("constraintA/case1.xtf"));
+        assertEquals(OptionalLong.empty(), history.durationMillis("constraintA/case2.xtf"));
+    }
+}
@@ -0,0 +1,60 @@
+package ch.geowerkstatt.interlis.testbed.runner.timing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TimingReportTest {
+    @Test
+    public void writeReportsPhasesOfCases(@TempDir Path tempDir) throws IOException {
+        var report = new TimingReport(tempDir);
+        try (var runTimings = report.startRun()) {
+            PhaseTimer.start(Phase.DISCOVERY).close();
+            try (var caseTimings = report.startCase("constraintA/case1.xtf", "constraintA")) {
+                PhaseTimer.start(Phase.MERGE).close();
+                PhaseTimer.start(Phase.VALIDATION).close();
+            }
+            try (var caseTimings = report.startCase("constraintB/case1.xtf", "constraintB")) {
+                caseTimings.markCached();
+            }
+        }
+
+        var reportFile = tempDir.resolve(TimingReport.FILE_NAME);
+        report.write(reportFile);
+
+        var content = Files.readString(reportFile);
+        assertTrue(content.contains("\"caseCount\": 2"), "Both cases should have been reported.");
+        assertTrue(content.contains("\"discovery\""), "The discovery of the run should have been reported.");
+        assertTrue(content.contains("\"merge\": {\n      \"cases\": 1"), "The merge statistics should have been reported.");
+        assertTrue(content.contains("\"case\": \"constraintA/case1.xtf\""), "The first case should have been reported.");
+        assertTrue(content.contains("\"cached\": true"), "The cached case should have been reported.");
+        assertFalse(content.contains("\"logScan\""), "Phases without measurements should not have been reported.");
+    }
+
+    @Test
+    public void measurementWithoutCaseIsDiscarded() {
+        var report = new TimingReport(Path.of("."));
+        PhaseTimer.start(Phase.MERGE).close();
+
+        try (var caseTimings = report.startCase("case.xtf", "constraint")) {
+            assertTrue(caseTimings.phases().isEmpty(), "No phase should have been recorded.");
+        }
+    }
+
+    @Test
+    public void percentileUsesNearestRank() {
+        var values = new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertEquals(5, TimingReport.percentile(values, 50));
+        assertEquals(9, TimingReport.percentile(values, 90));
+        assertEquals(10, TimingReport.percentile(values, 99));
+        assertEquals(7, TimingReport.percentile(new long[] {7}, 50));
+    }
+}
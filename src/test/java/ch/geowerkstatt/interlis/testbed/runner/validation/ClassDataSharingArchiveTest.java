@@ -0,0 +1,104 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ClassDataSharingArchiveTest {
+    private static final String CREATE_ARGUMENT_PREFIX = "-XX:ArchiveClassesAtExit=";
+
+    private Path ilivalidatorPath;
+    private Path cacheDirectory;
+
+    @BeforeEach
+    public void setup(@TempDir Path tempDir) throws IOException {
+        ilivalidatorPath = Files.writeString(tempDir.resolve("ilivalidator.jar"), "ilivalidator 1.0");
+        cacheDirectory = tempDir.resolve("cds");
+    }
+
+    @Test
+    public void firstProcessCreatesArchive() throws ValidatorException, IOException {
+        var archive = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory);
+
+        var creatingArguments = archive.getJvmArguments();
+        assertEquals(1, creatingArguments.size());
+        assertTrue(creatingArguments.getFirst().startsWith(CREATE_ARGUMENT_PREFIX));
+        assertEquals(List.of(), archive.getJvmArguments(), "Other processes should not wait for the archive.");
+
+        Files.writeString(getTemporaryArchiveFile(creatingArguments), "archive");
+        archive.processExited(creatingArguments, 0);
+
+        assertTrue(Files.exists(archive.archiveFile()));
+        assertEquals(List.of("-XX:SharedArchiveFile=" + archive.archiveFile()), archive.getJvmArguments());
+    }
+
+    @Test
+    public void archiveIsNotCreatedAgainAfterFailure() throws ValidatorException {
+        var archive = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory);
+
+        var creatingArguments = archive.getJvmArguments();
+        archive.processExited(creatingArguments, 0);
+
+        assertFalse(Files.exists(archive.archiveFile()));
+        assertFalse(Files.exists(getTemporaryArchiveFile(creatingArguments)), "The empty archive should have been deleted.");
+        assertEquals(List.of(), archive.getJvmArguments());
+    }
+
+    @Test
+    public void runnersSharingTheCacheDirectoryWriteSeparateArchives() throws ValidatorException, IOException {
+        var archive = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory);
+        var otherArchive = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory);
+
+        var creatingArguments = archive.getJvmArguments();
+        var otherCreatingArguments = otherArchive.getJvmArguments();
+        assertNotEquals(creatingArguments, otherCreatingArguments, "Each runner should write the archive to its own file.");
+
+        Files.writeString(getTemporaryArchiveFile(creatingArguments), "archive");
+        var otherTemporaryArchiveFile = Files.writeString(getTemporaryArchiveFile(otherCreatingArguments), "incomplete");
+        archive.processExited(creatingArguments, 0);
+
+        assertEquals("archive", Files.readString(archive.archiveFile()));
+        assertEquals("incomplete", Files.readString(otherTemporaryArchiveFile), "The archive of the other runner should not be touched.");
+        otherArchive.processExited(otherCreatingArguments, 137);
+        assertFalse(Files.exists(otherTemporaryArchiveFile));
+        assertEquals("archive", Files.readString(archive.archiveFile()));
+    }
+
+    @Test
+    public void archiveOfAbortedProcessIsDiscarded() throws ValidatorException, IOException {
+        var archive = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory);
+
+        var creatingArguments = archive.getJvmArguments();
+        var temporaryArchiveFile = Files.writeString(getTemporaryArchiveFile(creatingArguments), "incomplete");
+        archive.processExited(creatingArguments, 137);
+
+        assertFalse(Files.exists(archive.archiveFile()), "The archive of a killed process should not be used.");
+        assertFalse(Files.exists(temporaryArchiveFile));
+        assertEquals(List.of(), archive.getJvmArguments());
+    }
+
+    @Test
+    public void archiveDependsOnJarAndJvmArguments() throws ValidatorException, IOException {
+        var archiveFile = ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory).archiveFile();
+
+        assertEquals(archiveFile, ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory).archiveFile());
+        assertNotEquals(archiveFile, ClassDataSharingArchive.create(ilivalidatorPath, List.of("-Xmx4g"), cacheDirectory).archiveFile());
+
+        Files.writeString(ilivalidatorPath, "ilivalidator 1.1");
+        assertNotEquals(archiveFile, ClassDataSharingArchive.create(ilivalidatorPath, List.of(), cacheDirectory).archiveFile());
+    }
+
+    private static Path getTemporaryArchiveFile(List<String> creatingArguments) {
+        return Path.of(creatingArguments.getFirst().substring(CREATE_ARGUMENT_PREFIX.length()));
+    }
+}
@@ -0,0 +1,104 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ConstraintErrorScannerTest {
+    private static final String CONSTRAINT_A = "ModelA.TopicA.ClassA.ConstraintA";
+    private static final String CONSTRAINT_B = "ModelA.TopicA.ClassA.ConstraintB";
+    private static final String CONSTRAINT_C = "ModelA.TopicA.ClassA.ConstraintC";
+    private static final String LOG_CONTENT = """
+            Info: validate mandatory constraint ModelA.TopicA.ClassA.ConstraintA...
+            Error: line 10: ModelA.TopicA.ClassA: tid 1: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintAB is not true.
+            Error: line 11: ModelA.TopicA.ClassA: tid 2: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintA is not true.
+            Warning: line 12: ModelA.TopicA.ClassA: tid 3: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintB is not true.
+            Error: line 13: ModelA.TopicA.ClassA: tid 4: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintA is not true.
+            Error: line 14: ModelA.TopicA.ClassA: tid 5: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintB is not true.
+            Error: line 15: ModelA.TopicA.ClassA: tid 6: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintA is not true.
+            """;
+
+    @Test
+    public void scanFindsSeveralConstraintsInOnePass() {
+        var scanner = new ConstraintErrorScanner(List.of(CONSTRAINT_A, CONSTRAINT_B));
+
+        var matches = scanner.scan(LOG_CONTENT.lines().toList());
+
+        assertEquals(Map.of(CONSTRAINT_A, List.of(3L, 5L), CONSTRAINT_B, List.of(6L)), matches.lineNumbers(), "The scan should stop when all constraints have been found.");
+        assertTrue(matches.containsAll(List.of(CONSTRAINT_A, CONSTRAINT_B)));
+    }
+
+    @Test
+    public void scanReportsMissingConstraint() {
+        var scanner = new ConstraintErrorScanner(List.of(CONSTRAINT_A, CONSTRAINT_C));
+
+        var matches = scanner.scan(LOG_CONTENT.lines().toList());
+
+        assertEquals(List.of(3L, 5L, 7L), matches.lineNumbers().get(CONSTRAINT_A));
+        assertFalse(matches.contains(CONSTRAINT_C), "Constraint without error should not have been found.");
+        assertFalse(matches.containsAll(List.of(CONSTRAINT_A, CONSTRAINT_C)));
+    }
+
+    @Test
+    public void scanMatchesWholeConstraintNamesOnly() {
+        var scanner = new ConstraintErrorScanner(List.of("ModelA.TopicA.ClassA.Constraint", "TopicA.ClassA.ConstraintA"));
+
+        var matches = scanner.scan(LOG_CONTENT.lines().toList());
+
+        assertFalse(matches.contains("ModelA.TopicA.ClassA.Constraint"), "A prefix of a constraint name should not match.");
+        assertTrue(matches.contains("TopicA.ClassA.ConstraintA"), "Name parts separated by dots are whole words.");
+    }
+
+    @Test
+    public void scanFileWithLinesLongerThanBuffer(@TempDir Path tempDir) throws IOException {
+        var logFile = tempDir.resolve("case.log");
+        Files.writeString(logFile, LOG_CONTENT, StandardCharsets.UTF_8);
+        var scanner = new ConstraintErrorScanner(List.of(CONSTRAINT_A, CONSTRAINT_C), 16);
+
+        var matches = scanner.scan(logFile);
+
+        assertEquals(Map.of(CONSTRAINT_A, List.of(3L, 5L, 7L)), matches.lineNumbers());
+    }
+
+    @Test
+    public void scanSmallFiles(@TempDir Path tempDir) throws IOException {
+        var emptyFile = Files.createFile(tempDir.resolve("empty.log"));
+        var lastLineFile = tempDir.resolve("last-line.log");
+        Files.writeString(lastLineFile, LOG_CONTENT.lines().skip(2).findFirst().orElseThrow(), StandardCharsets.UTF_8);
+        var scanner = new ConstraintErrorScanner(List.of(CONSTRAINT_A));
+
+        assertFalse(scanner.scan(emptyFile).contains(CONSTRAINT_A));
+        assertEquals(Map.of(CONSTRAINT_A, List.of(1L)), scanner.scan(lastLineFile).lineNumbers(), "A last line without line break should have been scanned.");
+    }
+
+    @Test
+    public void scanCompressedFile(@TempDir Path tempDir) throws IOException {
+        var logFile = tempDir.resolve("case.log.gz");
+        try (var output = new GZIPOutputStream(Files.newOutputStream(logFile))) {
+            output.write(LOG_CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+        var scanner = new ConstraintErrorScanner(List.of(CONSTRAINT_A, CONSTRAINT_B));
+
+        var matches = scanner.scan(logFile);
+
+        assertEquals(Map.of(CONSTRAINT_A, List.of(3L, 5L), CONSTRAINT_B, List.of(6L)), matches.lineNumbers());
+    }
+
+    @Test
+    public void scannerRequiresConstraintNames() {
+        assertThrows(IllegalArgumentException.class, () -> new ConstraintErrorScanner(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new ConstraintErrorScanner(List.of("")));
+    }
+}
@@ -0,0 +1,46 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Worker process for {@link ValidatorWorkerPoolTest} that speaks the protocol of {@link ValidatorWorker} without ilivalidator.
+ * <p>
+ * The process id of the worker is written to the log file of every request. Files whose name starts with {@code invalid}
+ * are invalid, files starting with {@code error} cannot be validated, and for files starting with {@code crash}
+ * the first worker that gets the request exits.
+ */
+public final class FakeValidatorWorker {
+    private FakeValidatorWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println(ValidatorWorker.READY_RESPONSE);
+
+        var reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var parts = line.split(ValidatorWorker.SEPARATOR, -1);
+            var fileName = Path.of(parts[1]).getFileName().toString();
+            var logFile = Path.of(parts[2]);
+            Files.writeString(logFile, String.valueOf(ProcessHandle.current().pid()));
+
+            if (fileName.startsWith("crash") && !Files.exists(getCrashMarker(logFile))) {
+                Files.createFile(getCrashMarker(logFile));
+                System.exit(1);
+            } else if (fileName.startsWith("error")) {
+                System.out.println(ValidatorWorker.ERROR_RESPONSE + ValidatorWorker.SEPARATOR + "Could not validate " + fileName);
+            } else {
+                System.out.println(ValidatorWorker.RESULT_RESPONSE + ValidatorWorker.SEPARATOR + !fileName.startsWith("invalid"));
+            }
+        }
+    }
+
+    static Path getCrashMarker(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + ".crashed");
+    }
+}
@@ -0,0 +1,71 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ModelCompilerTest {
+    private static final ValidatorOptions COMPILE_MODELS = new ValidatorOptions(0, ValidatorOptions.defaultMaxJobsPerWorker(), true, List.of(), Optional.empty());
+
+    private Path basePath;
+    private Path ilivalidatorPath;
+
+    @BeforeEach
+    public void setup(@TempDir Path tempDir) throws IOException {
+        basePath = Files.createDirectories(tempDir.resolve("testbed"));
+        Files.writeString(basePath.resolve("data.xtf"), "base");
+
+        // A jar without the ili2c classes.
+        ilivalidatorPath = tempDir.resolve("ilivalidator.jar");
+        try (var jar = new JarOutputStream(Files.newOutputStream(ilivalidatorPath))) {
+            jar.flush();
+        }
+    }
+
+    @Test
+    public void defaultModelDirectoriesWithoutCompilation() throws ValidatorException {
+        var options = createOptions(basePath.resolve("missing.jar"));
+
+        assertEquals(InterlisValidator.getModelDirectories(options), ModelCompiler.getModelDirectories(options, ValidatorOptions.defaults()));
+    }
+
+    @Test
+    public void defaultModelDirectoriesWithoutModelFiles() throws ValidatorException {
+        var options = createOptions(ilivalidatorPath);
+
+        assertEquals(InterlisValidator.getModelDirectories(options), ModelCompiler.getModelDirectories(options, COMPILE_MODELS));
+    }
+
+    @Test
+    public void missingValidatorIsAnError() {
+        var options = createOptions(basePath.resolve("missing.jar"));
+
+        var exception = assertThrows(ValidatorException.class, () -> ModelCompiler.getModelDirectories(options, COMPILE_MODELS));
+        assertTrue(exception.getMessage().startsWith("ilivalidator not found"), exception.getMessage());
+    }
+
+    @Test
+    public void validatorWithoutCompilerIsAnError() throws IOException {
+        Files.writeString(basePath.resolve("ModelA.ili"), "INTERLIS 2.4; MODEL ModelA AT \"mailto:test@example.com\" VERSION \"1\" = END ModelA.");
+        var options = createOptions(ilivalidatorPath);
+
+        var exception = assertThrows(ValidatorException.class, () -> ModelCompiler.getModelDirectories(options, COMPILE_MODELS));
+        assertEquals("The file at " + ilivalidatorPath + " does not provide a supported ili2c version.", exception.getMessage());
+    }
+
+    private TestOptions createOptions(Path validatorPath) {
+        return new TestOptions(basePath, validatorPath, Optional.empty());
+    }
+}
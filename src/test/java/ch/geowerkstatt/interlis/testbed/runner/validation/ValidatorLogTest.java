@@ -0,0 +1,89 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ValidatorLogTest {
+    private static final String CONSTRAINT_NAME = "ModelA.TopicA.ClassA.ConstraintA";
+    private static final String LOG_CONTENT = """
+            Info: validate data...
+            Error: line 10: ModelA.TopicA.ClassA: tid 1: Mandatory Constraint ModelA.TopicA.ClassA.ConstraintA is not true.
+            Info: validate mandatory constraint ModelA.TopicA.ClassA.ConstraintB...
+            """;
+
+    @Test
+    public void captureKeepsSmallLogInMemory(@TempDir Path tempDir) throws IOException, ValidatorException {
+        var overflowFile = tempDir.resolve("overflow.log");
+
+        var log = ValidatorLog.capture(toStream(LOG_CONTENT), 1024, overflowFile);
+
+        assertTrue(log.file().isEmpty(), "The log should have been kept in memory.");
+        assertFalse(Files.exists(overflowFile), "The overflow file should not have been written.");
+        assertTrue(log.containsConstraintError(CONSTRAINT_NAME), "The constraint error should have been found.");
+        assertFalse(log.containsConstraintError("ModelA.TopicA.ClassA.ConstraintB"), "Info lines should not be reported as errors.");
+    }
+
+    @Test
+    public void captureWritesLargeLogToOverflowFile(@TempDir Path tempDir) throws IOException, ValidatorException {
+        var overflowFile = tempDir.resolve("output").resolve("overflow.log");
+
+        var log = ValidatorLog.capture(toStream(LOG_CONTENT), 40, overflowFile);
+
+        assertEquals(overflowFile, log.file().orElseThrow(), "The log should have been written to the overflow file.");
+        assertEquals(LOG_CONTENT.lines().toList(), Files.readAllLines(overflowFile));
+        assertTrue(log.containsConstraintError(CONSTRAINT_NAME), "The constraint error should have been found.");
+    }
+
+    @Test
+    public void findConstraintErrorsChecksSeveralConstraints(@TempDir Path tempDir) throws IOException, ValidatorException {
+        var constraintNames = List.of(CONSTRAINT_NAME, "ModelA.TopicA.ClassA.ConstraintB");
+        var capturedLog = ValidatorLog.capture(toStream(LOG_CONTENT), 1024, tempDir.resolve("overflow.log"));
+        var logFile = tempDir.resolve("case.log");
+        Files.writeString(logFile, LOG_CONTENT);
+
+        for (var log : List.of(capturedLog, ValidatorLog.ofFile(logFile))) {
+            var matches = log.findConstraintErrors(constraintNames);
+
+            assertEquals(List.of(2L), matches.lineNumbers().get(CONSTRAINT_NAME));
+            assertFalse(matches.contains("ModelA.TopicA.ClassA.ConstraintB"), "Info lines should not be reported as errors.");
+        }
+    }
+
+    @Test
+    public void writeToStoresCapturedLines(@TempDir Path tempDir) throws IOException {
+        var logFile = tempDir.resolve("output").resolve("case.log");
+
+        ValidatorLog.capture(toStream(LOG_CONTENT), 1024, tempDir.resolve("overflow.log")).writeTo(logFile);
+
+        assertEquals(LOG_CONTENT.lines().toList(), Files.readAllLines(logFile));
+    }
+
+    @Test
+    public void containsConstraintErrorReadsCompressedLogFile(@TempDir Path tempDir) throws IOException, ValidatorException {
+        var logFile = tempDir.resolve("case.log.gz");
+        try (var output = new GZIPOutputStream(Files.newOutputStream(logFile))) {
+            output.write(LOG_CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        var log = ValidatorLog.ofFile(logFile);
+
+        assertTrue(log.containsConstraintError(CONSTRAINT_NAME), "The constraint error should have been found in the compressed log.");
+        assertFalse(log.containsConstraintError("ModelA.TopicA.ClassA.ConstraintB"), "Info lines should not be reported as errors.");
+    }
+
+    private static ByteArrayInputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package ch.geowerkstatt.interlis.testbed.runner.validation;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ValidatorWorkerPoolTest {
+    private static final String MODEL_DIRECTORIES = "%ITF_DIR";
+
+    private Path basePath;
+    private ValidatorWorkerPool pool;
+
+    @BeforeEach
+    public void setup(@TempDir Path tempDir) {
+        basePath = tempDir;
+    }
+
+    @AfterEach
+    public void teardown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void resultsAreReadFromWorker() throws ValidatorException, IOException {
+        pool = createPool(10);
+
+        assertTrue(pool.validate(basePath.resolve("valid.xtf"), basePath.resolve("valid.log"), MODEL_DIRECTORIES));
+        assertFalse(pool.validate(basePath.resolve("invalid.xtf"), basePath.resolve("invalid.log"), MODEL_DIRECTORIES));
+
+        var exception = assertThrows(ValidatorException.class, () -> pool.validate(basePath.resolve("error.xtf"), basePath.resolve("error.log"), MODEL_DIRECTORIES));
+        assertEquals("Could not validate error.xtf", exception.getMessage());
+
+        assertEquals(readWorkerId("valid.log"), readWorkerId("invalid.log"), "The worker should have been reused.");
+        assertEquals(readWorkerId("valid.log"), readWorkerId("error.log"), "The worker should have been kept after an error response.");
+    }
+
+    @Test
+    public void workerIsReplacedAfterMaxJobs() throws ValidatorException, IOException {
+        pool = createPool(2);
+
+        for (var i = 1; i <= 3; i++) {
+            assertTrue(pool.validate(basePath.resolve("valid" + i + ".xtf"), basePath.resolve("valid" + i + ".log"), MODEL_DIRECTORIES));
+        }
+
+        assertEquals(readWorkerId("valid1.log"), readWorkerId("valid2.log"));
+        assertNotEquals(readWorkerId("valid2.log"), readWorkerId("valid3.log"), "The worker should have been replaced after two validations.");
+    }
+
+    @Test
+    public void validationIsRetriedAfterWorkerCrash() throws ValidatorException, IOException {
+        pool = createPool(10);
+        var logFile = basePath.resolve("crash.log");
+
+        assertTrue(pool.validate(basePath.resolve("crash.xtf"), logFile, MODEL_DIRECTORIES));
+
+        assertTrue(Files.exists(FakeValidatorWorker.getCrashMarker(logFile)), "The first worker should have crashed.");
+        assertTrue(pool.validate(basePath.resolve("valid.xtf"), basePath.resolve("valid.log"), MODEL_DIRECTORIES));
+        assertEquals(readWorkerId("crash.log"), readWorkerId("valid.log"), "The worker that retried the validation should have been kept.");
+    }
+
+    private ValidatorWorkerPool createPool(int maxJobsPerWorker) {
+        var options = new TestOptions(basePath, Path.of("ilivalidator.jar"), Optional.empty());
+        return new ValidatorWorkerPool(options, 1, maxJobsPerWorker, List.of(), FakeValidatorWorker.class);
+    }
+
+    private String readWorkerId(String logFileName) throws IOException {
+        return Files.readString(basePath.resolve(logFileName));
+    }
+}
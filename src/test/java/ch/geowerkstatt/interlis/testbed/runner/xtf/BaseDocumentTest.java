@@ -0,0 +1,126 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class BaseDocumentTest {
+    private static final String BASE_DATA = """
+            <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                <ili:datasection>
+                    <TopicA ili:bid="B1">
+                        <ClassA ili:tid="A1"/>
+                        <ClassA ili:tid="A2"/>
+                    </TopicA>
+                    <TopicA ili:bid="B2">
+                        <ClassA ili:tid="A3"/>
+                    </TopicA>
+                </ili:datasection>
+            </ili:transfer>
+            """;
+
+    private BaseDocument baseDocument;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        baseDocument = BaseDocument.create(Path.of("data.xtf"), FileTime.fromMillis(0), BASE_DATA.length(), parse(BASE_DATA)).orElseThrow();
+    }
+
+    @Test
+    public void resolveOnlyObjectsOfPatch() throws Exception {
+        var patch = parse("""
+                <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                    <ili:datasection>
+                        <TopicA ili:bid="B1">
+                            <ClassA ili:tid="A2" ili:operation="UPDATE"/>
+                            <ClassA ili:tid="A9" ili:operation="UPDATE"/>
+                        </TopicA>
+                    </ili:datasection>
+                </ili:transfer>
+                """);
+
+        try (var copy = baseDocument.borrowCopy()) {
+            var baskets = baseDocument.resolveBaskets(copy, XtfFileMerger.findBaskets(patch).orElseThrow());
+
+            assertEquals(Set.of("B1"), baskets.keySet());
+            assertEquals(Set.of("A2"), baskets.get("B1").objects().keySet());
+            assertEquals("A2", XtfFileMerger.getInterlisAttribute(baskets.get("B1").objects().get("A2"), XtfFileMerger.OBJECT_ID));
+        }
+    }
+
+    @Test
+    public void resolveExistingObjectsOfInsert() throws Exception {
+        var patch = parse("""
+                <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                    <ili:datasection>
+                        <TopicA ili:bid="B2">
+                            <ClassA ili:tid="A3" ili:operation="INSERT"/>
+                            <ClassA ili:tid="A4" ili:operation="INSERT"/>
+                        </TopicA>
+                    </ili:datasection>
+                </ili:transfer>
+                """);
+
+        try (var copy = baseDocument.borrowCopy()) {
+            var baskets = baseDocument.resolveBaskets(copy, XtfFileMerger.findBaskets(patch).orElseThrow());
+
+            assertEquals(Set.of("B2"), baskets.keySet());
+            assertEquals(Set.of("A3"), baskets.get("B2").objects().keySet());
+        }
+    }
+
+    @Test
+    public void restoreCopyAfterMerge() throws Exception {
+        var patch = parse("""
+                <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                    <ili:datasection>
+                        <TopicA ili:bid="B1">
+                            <ClassA ili:tid="A1" ili:operation="DELETE"/>
+                        </TopicA>
+                        <TopicA ili:bid="B2">
+                            <ClassA ili:tid="A3" ili:operation="DELETE"/>
+                        </TopicA>
+                    </ili:datasection>
+                </ili:transfer>
+                """);
+
+        var copy = baseDocument.borrowCopy();
+        var baskets = baseDocument.resolveBaskets(copy, XtfFileMerger.findBaskets(patch).orElseThrow());
+        baskets.get("B1").removeChildNode("A1");
+        baskets.get("B2").removeBasketNode();
+        copy.close();
+
+        try (var reusedCopy = baseDocument.borrowCopy()) {
+            assertSame(copy, reusedCopy, "The copy should have been reused.");
+            var restoredBaskets = XtfFileMerger.findBaskets(reusedCopy.document()).orElseThrow();
+            assertEquals(Set.of("B1", "B2"), restoredBaskets.keySet());
+            assertEquals(Set.of("A1", "A2"), restoredBaskets.get("B1").objects().keySet());
+            assertEquals(Set.of("A3"), restoredBaskets.get("B2").objects().keySet());
+        }
+    }
+
+    @Test
+    public void borrowSeparateCopiesForConcurrentMerges() {
+        try (var first = baseDocument.borrowCopy(); var second = baseDocument.borrowCopy()) {
+            assertNotSame(first, second);
+            assertNotSame(first.document(), second.document());
+        }
+    }
+
+    private static Document parse(String xml) throws Exception {
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+}
@@ -0,0 +1,47 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+public final class StreamingXtfMergerTest extends XtfMergerTestBase {
+    @Override
+    protected XtfMerger createMerger() {
+        return new StreamingXtfMerger();
+    }
+
+    @Test
+    public void mergeFailsForUnknownBasket() throws IOException {
+        var basePath = Path.of(DATA_BASE_PATH, "ili24", "add");
+        var outputFile = basePath.resolve("output").resolve("unknown-basket.xtf");
+        Files.deleteIfExists(outputFile);
+
+        var patchFile = Files.createTempFile("patch", ".xtf");
+        try {
+            Files.writeString(patchFile, """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                        <ili:datasection>
+                            <TopicA ili:bid="unknown">
+                                <ClassA ili:tid="A1_1" ili:operation="DELETE"/>
+                            </TopicA>
+                        </ili:datasection>
+                    </ili:transfer>
+                    """);
+
+            var mergeResult = createMerger().merge(basePath.resolve("data.xtf"), patchFile, outputFile);
+
+            assertFalse(mergeResult, "Merging should have failed.");
+            assertFalse(Files.exists(outputFile), "Output file should not have been created.");
+            assertIterableEquals(List.of("Basket unknown not found in base file."), appender.getErrorMessages());
+        } finally {
+            Files.delete(patchFile);
+        }
+    }
+}
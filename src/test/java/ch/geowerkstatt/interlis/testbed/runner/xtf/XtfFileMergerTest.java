@@ -1,98 +1,45 @@
 package ch.geowerkstatt.interlis.testbed.runner.xtf;
 
-import ch.geowerkstatt.interlis.testbed.runner.TestLogAppender;
-import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
-import org.xmlunit.builder.DiffBuilder;
-import org.xmlunit.diff.DefaultNodeMatcher;
-import org.xmlunit.diff.ElementSelectors;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-public final class XtfFileMergerTest {
-    private static final String DATA_BASE_PATH = "src/test/data/xtf-merger";
-
-    private TestLogAppender appender;
-
-    @BeforeEach
-    public void setup() {
-        appender = TestLogAppender.registerAppender(XtfFileMerger.class);
-    }
-
-    @AfterEach
-    public void teardown() {
-        appender.stop();
-        appender.unregister();
-    }
-
-    @ParameterizedTest
-    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
-    public void addElements(String iliVersion) throws IOException {
-        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "add"));
-    }
-
-    @ParameterizedTest
-    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
-    public void replaceElements(String iliVersion) throws IOException {
-        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "replace"));
-    }
-
-    @ParameterizedTest
-    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
-    public void deleteElements(String iliVersion) throws IOException {
-        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "delete"));
+public final class XtfFileMergerTest extends XtfMergerTestBase {
+    @Override
+    protected XtfMerger createMerger() {
+        return new XtfFileMerger();
     }
 
     @ParameterizedTest
     @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
-    public void combinedOperations(String iliVersion) throws IOException {
-        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "combined"));
-    }
-
-    private void mergeAndValidateXtf(Path basePath) throws IOException {
-        var baseFile = basePath.resolve("data.xtf");
-        var patchFile = basePath.resolve("patch.xtf");
-        var expectedFile = basePath.resolve("expected.xtf");
-        var outputFile = basePath.resolve("output").resolve("merged.xtf");
-
+    public void reuseParsedBaseFile(String iliVersion) throws IOException {
         var merger = new XtfFileMerger();
+        var basePath = Path.of(DATA_BASE_PATH, iliVersion, "combined");
 
-        var mergeResult = merger.merge(baseFile, patchFile, outputFile);
-
-        assertTrue(mergeResult, "Merging should have been successful.");
-        assertTrue(Files.exists(outputFile), "Output file should have been created.");
+        mergeAndValidateXtf(merger, basePath);
+        mergeAndValidateXtf(merger, basePath);
 
-        assertEquals(0, appender.getErrorMessages().size(), "No errors should have been logged.");
-
-        assertEqualXtfFiles(expectedFile, outputFile);
+        var parseMessages = appender.getMessages().stream()
+                .filter(e -> e.message().startsWith("Parsing base file"))
+                .count();
+        assertEquals(1, parseMessages, "The base file should have been parsed once.");
     }
 
-    private void assertEqualXtfFiles(Path expectedFile, Path actualFile) throws IOException {
-        var expectedXml = Files.readString(expectedFile);
-        var actualXml = Files.readString(actualFile);
-
-        var nodeMatcher = new DefaultNodeMatcher(ElementSelectors.byName);
-        var diff = DiffBuilder
-                .compare(expectedXml)
-                .withTest(actualXml)
-                .checkForSimilar()
-                .withNodeMatcher(nodeMatcher)
-                .ignoreWhitespace()
-                .ignoreComments()
-                .build();
+    @Test
+    public void pruneUnchangedBaskets() throws IOException {
+        var merger = new XtfFileMerger(true);
 
-        for (var difference : diff.getDifferences()) {
-            System.out.println(difference);
-        }
+        var basePath = Path.of(DATA_BASE_PATH, "ili24", "prune-baskets");
 
-        assertFalse(diff.hasDifferences(), "Expected and actual XTF files should be equal.");
+        // The second merge uses the copy of the base file the first merge pruned.
+        mergeAndValidateXtf(merger, basePath);
+        mergeAndValidateXtf(merger, basePath);
+        assertTrue(merger.prunesBaskets());
     }
 }
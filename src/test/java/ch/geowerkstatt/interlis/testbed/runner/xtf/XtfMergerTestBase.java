@@ -0,0 +1,154 @@
+package ch.geowerkstatt.interlis.testbed.runner.xtf;
+
+import ch.geowerkstatt.interlis.testbed.runner.TestLogAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xmlunit.builder.DiffBuilder;
+import org.xmlunit.diff.DefaultNodeMatcher;
+import org.xmlunit.diff.ElementSelectors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that apply to all {@link XtfMerger} implementations.
+ */
+public abstract class XtfMergerTestBase {
+    protected static final String DATA_BASE_PATH = "src/test/data/xtf-merger";
+
+    protected TestLogAppender appender;
+
+    protected abstract XtfMerger createMerger();
+
+    @BeforeEach
+    public void setup() {
+        appender = TestLogAppender.registerAppender(createMerger().getClass());
+    }
+
+    @AfterEach
+    public void teardown() {
+        appender.stop();
+        appender.unregister();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
+    public void addElements(String iliVersion) throws IOException {
+        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "add"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
+    public void replaceElements(String iliVersion) throws IOException {
+        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "replace"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
+    public void deleteElements(String iliVersion) throws IOException {
+        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "delete"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ili23", "ili24", "ili24-increment"})
+    public void combinedOperations(String iliVersion) throws IOException {
+        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, iliVersion, "combined"));
+    }
+
+    @Test
+    public void insertExistingElements() throws IOException {
+        mergeAndValidateXtf(Path.of(DATA_BASE_PATH, "ili24-increment", "insert-existing"));
+    }
+
+    @Test
+    public void writeCompressedCopy(@TempDir Path outputPath) throws IOException {
+        var basePath = Path.of(DATA_BASE_PATH, "ili24", "combined");
+        var outputFile = outputPath.resolve("merged.xtf");
+        var compressedFile = outputPath.resolve("merged.xtf.gz");
+
+        var mergeResult = createMerger().merge(basePath.resolve("data.xtf"), basePath.resolve("patch.xtf"), outputFile, Optional.of(compressedFile));
+
+        assertTrue(mergeResult, "Merging should have been successful.");
+        assertEqualXtfFiles(basePath.resolve("expected.xtf"), outputFile);
+        try (var input = new GZIPInputStream(Files.newInputStream(compressedFile))) {
+            assertArrayEquals(Files.readAllBytes(outputFile), input.readAllBytes(), "The compressed copy should contain the merged file.");
+        }
+    }
+
+    @Test
+    public void failedMergeLeavesNoOutputFiles(@TempDir Path outputPath) throws IOException {
+        var basePath = Path.of(DATA_BASE_PATH, "ili24", "add");
+        var patchFile = Files.writeString(outputPath.resolve("patch.xtf"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <ili:transfer xmlns:ili="http://www.interlis.ch/xtf/2.4/INTERLIS" xmlns="http://www.interlis.ch/xtf/2.4/ModelA">
+                    <ili:datasection>
+                        <TopicA ili:bid="MissingBasket">
+                            <ClassA ili:tid="A9"/>
+                        </TopicA>
+                    </ili:datasection>
+                </ili:transfer>
+                """);
+        var outputFile = outputPath.resolve("merged.xtf");
+
+        var mergeResult = createMerger().merge(basePath.resolve("data.xtf"), patchFile, outputFile, Optional.of(outputPath.resolve("merged.xtf.gz")));
+
+        assertFalse(mergeResult, "Merging should have failed.");
+        try (var files = Files.list(outputPath)) {
+            assertEquals(List.of(patchFile), files.toList(), "No merged or temporary files should have been left behind.");
+        }
+    }
+
+    protected void mergeAndValidateXtf(Path basePath) throws IOException {
+        mergeAndValidateXtf(createMerger(), basePath);
+    }
+
+    protected void mergeAndValidateXtf(XtfMerger merger, Path basePath) throws IOException {
+        var baseFile = basePath.resolve("data.xtf");
+        var patchFile = basePath.resolve("patch.xtf");
+        var expectedFile = basePath.resolve("expected.xtf");
+        var outputFile = basePath.resolve("output").resolve("merged.xtf");
+
+        var mergeResult = merger.merge(baseFile, patchFile, outputFile);
+
+        assertTrue(mergeResult, "Merging should have been successful.");
+        assertTrue(Files.exists(outputFile), "Output file should have been created.");
+
+        assertEquals(0, appender.getErrorMessages().size(), "No errors should have been logged.");
+
+        assertEqualXtfFiles(expectedFile, outputFile);
+    }
+
+    private void assertEqualXtfFiles(Path expectedFile, Path actualFile) throws IOException {
+        var expectedXml = Files.readString(expectedFile);
+        var actualXml = Files.readString(actualFile);
+
+        var nodeMatcher = new DefaultNodeMatcher(ElementSelectors.byName);
+        var diff = DiffBuilder
+                .compare(expectedXml)
+                .withTest(actualXml)
+                .checkForSimilar()
+                .withNodeMatcher(nodeMatcher)
+                .ignoreWhitespace()
+                .ignoreComments()
+                .build();
+
+        for (var difference : diff.getDifferences()) {
+            System.out.println(difference);
+        }
+
+        assertFalse(diff.hasDifferences(), "Expected and actual XTF files should be equal.");
+    }
+}